@@ -4,6 +4,7 @@ import com.example.auth.auth_service.model.User;
 import com.example.auth.auth_service.repository.UserRepository;
 import com.example.auth.auth_service.security.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -14,6 +15,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @CrossOrigin(origins = "http://localhost:3000")
@@ -56,11 +58,14 @@ public class AuthController {
         String password = request.get("password");
         String email = request.get("email");
         Map<String, String> response = new HashMap<>();
-        if (userRepository.findByUsername(username).isPresent()) {
+        String usernameKey = User.normalize(username);
+        // Kullanıcı adı ve e-posta tek sorguda kontrol edilir
+        List<UserRepository.LookupKeys> conflicts = userRepository.findByUsernameKeyOrEmailKey(usernameKey, User.normalize(email));
+        if (conflicts.stream().anyMatch(c -> c.getUsernameKey().equals(usernameKey))) {
             response.put("error", "Kullanıcı adı zaten mevcut");
             return response;
         }
-        if (userRepository.findByEmail(email).isPresent()) {
+        if (!conflicts.isEmpty()) {
             response.put("error", "Email zaten kayıtlı");
             return response;
         }
@@ -68,13 +73,19 @@ public class AuthController {
         user.setUsername(username);
         user.setPassword(passwordEncoder.encode(password));
         user.setEmail(email);
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // Aynı anda yapılan iki kayıt isteğinden biri unique index'e takılır
+            response.put("error", "Kullanıcı adı veya email zaten kayıtlı");
+            return response;
+        }
         response.put("message", "Kullanıcı kaydı başarılı");
         return response;
     }
 
     @GetMapping("/user-exists/{username}")
     public boolean userExists(@PathVariable String username) {
-        return userRepository.findByUsername(username).isPresent();
+        return userRepository.existsByUsernameKey(User.normalize(username));
     }
 }
@@ -2,6 +2,8 @@ package com.example.auth.auth_service.model;
 
 import jakarta.persistence.*;
 
+import java.util.Locale;
+
 @Entity
 @Table(name = "users")
 public class User {
@@ -18,6 +20,24 @@ public class User {
     @Column(nullable = false, unique = true)
     private String email;
 
+    // Büyük/küçük harf duyarsız aramalar için küçük harfli kopyalar (unique index'li)
+    @Column(name = "username_key", nullable = false, unique = true)
+    private String usernameKey;
+
+    @Column(name = "email_key", nullable = false, unique = true)
+    private String emailKey;
+
+    public static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateLookupKeys() {
+        this.usernameKey = normalize(username);
+        this.emailKey = normalize(email);
+    }
+
     // Getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -27,4 +47,6 @@ public class User {
     public void setPassword(String password) { this.password = password; }
     public String getEmail() { return email; }
     public void setEmail(String email) { this.email = email; }
+    public String getUsernameKey() { return usernameKey; }
+    public String getEmailKey() { return emailKey; }
 }
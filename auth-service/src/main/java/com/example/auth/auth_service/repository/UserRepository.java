@@ -2,9 +2,22 @@ package com.example.auth.auth_service.repository;
 
 import com.example.auth.auth_service.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
+
+    // Aşağıdaki metotlar User.normalize ile küçük harfe çevrilmiş anahtar bekler
+    Optional<User> findByUsernameKey(String usernameKey);
+    boolean existsByUsernameKey(String usernameKey);
+
+    // Kayıt sırasında kullanıcı adı ve e-posta çakışmasını tek sorguda bulur
+    List<LookupKeys> findByUsernameKeyOrEmailKey(String usernameKey, String emailKey);
+
+    interface LookupKeys {
+        String getUsernameKey();
+        String getEmailKey();
+    }
 }
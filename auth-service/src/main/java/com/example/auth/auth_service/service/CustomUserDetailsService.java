@@ -17,7 +17,7 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Optional<User> userOpt = userRepository.findByUsername(username);
+        Optional<User> userOpt = userRepository.findByUsernameKey(User.normalize(username));
         if (userOpt.isPresent()) {
             User user = userOpt.get();
             return org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
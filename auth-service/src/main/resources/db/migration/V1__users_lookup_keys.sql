@@ -0,0 +1,25 @@
+-- Kullanıcı adı ve e-posta için büyük/küçük harf duyarsız arama anahtarları.
+-- upper(username) = upper(?) gibi sorgular normal unique index'i kullanamaz; bunun yerine
+-- küçük harfe çevrilmiş değerler ayrı sütunlarda saklanır ve unique index ile korunur.
+
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGSERIAL    PRIMARY KEY,
+    username VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    email    VARCHAR(255) NOT NULL UNIQUE
+);
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS username_key VARCHAR(255);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS email_key VARCHAR(255);
+
+UPDATE users
+   SET username_key = lower(username),
+       email_key    = lower(email)
+ WHERE username_key IS NULL OR email_key IS NULL;
+
+ALTER TABLE users ALTER COLUMN username_key SET NOT NULL;
+ALTER TABLE users ALTER COLUMN email_key SET NOT NULL;
+
+-- Sadece harf büyüklüğü farklı mükerrer kayıtlar varsa bu adım hata verir; önce elle birleştirilmelidir.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_username_key ON users (username_key);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email_key ON users (email_key);
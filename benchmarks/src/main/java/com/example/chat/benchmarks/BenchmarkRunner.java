@@ -0,0 +1,30 @@
+package com.example.chat.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner, benchmarks.jar'ın giriş noktasıdır; JMH'nin kendi Main sınıfıyla aynı argümanları kabul eder.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Argüman verilmezse tüm benchmark'lar çalışır; ör: "java -jar benchmarks.jar PrivateChannel" yalnızca adı eşleşenleri çalıştırır.</li>
+ *   <li>-rf verilmezse sonuçlar JSON biçiminde, -rff verilmezse target/jmh-result.json dosyasına yazılır.</li>
+ *   <li>Benchmark'lar veritabanı, RabbitMQ veya ağ gerektirmez; tamamen çevrimdışı çalışır.</li>
+ * </ul>
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (!cli.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue()) options.result("target/jmh-result.json");
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.chat.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import com.example.chat.chat_service.model.ChatMessage;
+import com.example.chat.chat_service.model.Conversation;
+
+/**
+ * ChatMessage'ın RabbitMQ için JSON'a çevrilmesini ölçer (RabbitMQConfig'teki Jackson2JsonMessageConverter ile).
+ * <p>
+ * <b>Nasıl çalışır?</b> toMessage: ChatMessageProducer'ın her mesajda yaptığı dönüşüm.
+ * fromMessage: ChatMessageConsumer'ın kuyruktan gelen gövdeyi tekrar ChatMessage'a çevirmesi.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatMessageJsonBenchmark {
+    private Jackson2JsonMessageConverter converter;
+    private ChatMessage message;
+    private Message serialized;
+
+    @Setup
+    public void setup() {
+        converter = new Jackson2JsonMessageConverter();
+        Conversation conversation = new Conversation();
+        conversation.setId(4L);
+        conversation.setUser1("veli");
+        conversation.setUser2("zeynep");
+        conversation.setCreatedAt(LocalDateTime.of(2026, 1, 1, 12, 0));
+        message = new ChatMessage();
+        message.setId(312030L);
+        message.setSender("Veli");
+        message.setContent("Merhaba, akşam toplantı saat kaçta başlıyor?");
+        message.setTimestamp(LocalDateTime.of(2026, 1, 1, 12, 5, 30));
+        message.setChannel("");
+        message.setConversation(conversation);
+        message.setClientMessageId("6f1c2d3e-4b5a-4c6d-8e9f-0a1b2c3d4e5f");
+        serialized = converter.toMessage(message, new MessageProperties());
+    }
+
+    @Benchmark
+    public Message toMessage() {
+        return converter.toMessage(message, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object fromMessage() {
+        return converter.fromMessage(serialized);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.chat.benchmarks;
+
+import java.lang.reflect.Field;
+
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Spring'in @Autowired / @Value ile doldurduğu private alanları, uygulama bağlamı açmadan atamak için yardımcı sınıf.
+ */
+final class Fields {
+    private Fields() {
+    }
+
+    static void set(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        if (field == null) throw new IllegalArgumentException(target.getClass().getSimpleName() + "." + name + " bulunamadı");
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
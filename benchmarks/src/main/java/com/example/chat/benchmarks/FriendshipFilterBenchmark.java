@@ -0,0 +1,128 @@
+package com.example.chat.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import com.example.chat.chat_service.model.FriendRequest;
+import com.example.chat.chat_service.repository.FriendRequestRepository;
+import com.example.chat.chat_service.service.ConversationParticipantCache.Participants;
+import com.example.chat.chat_service.service.PresenceRegistry;
+
+/**
+ * Arkadaşlık filtrelemesini ölçer.
+ * <p>
+ * <b>Nasıl çalışır?</b>
+ * <ul>
+ *   <li>findAllFilter: UserController.getFriends'in projeksiyon sorgusundan önceki hali; tüm friend_requests
+ *       satırları bellekte süzülür. Artık kullanılmaz, veritabanına taşınan işin CPU maliyetini göstermek için tutulur.</li>
+ *   <li>onlineFriends: /api/user/{username}/online-friends; PresenceRegistry'deki arkadaş kümesi çevrimiçi kullanıcılarla eşlenir.</li>
+ *   <li>participantsCheck: Her sohbet mesajında çalışan katılımcı kontrolü ve alıcı seçimi.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FriendshipFilterBenchmark {
+    /**
+     * friend_requests tablosundaki satır sayısı.
+     */
+    @Param({ "1000", "10000" })
+    private int rows;
+
+    /**
+     * Ölçülen kullanıcının arkadaş sayısı (yarısı çevrimiçi).
+     */
+    @Param({ "50", "500" })
+    private int friends;
+
+    private final String username = "user0";
+    private List<FriendRequest> allRequests;
+    private PresenceRegistry presenceRegistry;
+    private Participants participants;
+
+    @Setup
+    public void setup() {
+        allRequests = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            FriendRequest r = new FriendRequest();
+            r.setId((long) i);
+            boolean own = i < friends;
+            r.setFromUsername(own ? username : "user" + (i % 997 + 1000));
+            r.setToUsername(own ? "user" + (i + 1) : "user" + (i % 991 + 3000));
+            r.setStatus(i % 3 == 2 ? FriendRequest.Status.PENDING : FriendRequest.Status.ACCEPTED);
+            if (own) r.setStatus(FriendRequest.Status.ACCEPTED);
+            allRequests.add(r);
+        }
+
+        List<String> ownFriends = new ArrayList<>();
+        for (int i = 1; i <= friends; i++) ownFriends.add("user" + i);
+        FriendRequestRepository repository = (FriendRequestRepository) Proxy.newProxyInstance(
+            FriendRequestRepository.class.getClassLoader(), new Class<?>[] { FriendRequestRepository.class },
+            (proxy, method, args) -> {
+                if (method.getName().equals("findFriendUsernames") && args.length == 1) {
+                    return username.equals(args[0]) ? ownFriends : List.of(username);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        presenceRegistry = new PresenceRegistry();
+        Fields.set(presenceRegistry, "friendRequestRepository", repository);
+        Fields.set(presenceRegistry, "messagingTemplate", new SimpMessagingTemplate((message, timeout) -> true));
+        connect(username);
+        for (int i = 1; i <= friends; i += 2) connect("user" + i);
+
+        participants = new Participants(4L, "veli", "zeynep", LocalDateTime.now(), true);
+    }
+
+    @Benchmark
+    public List<String> findAllFilter() {
+        return allRequests.stream()
+            .filter(r -> r.getStatus() == FriendRequest.Status.ACCEPTED &&
+                (r.getFromUsername().equalsIgnoreCase(username) || r.getToUsername().equalsIgnoreCase(username)))
+            .map(r -> r.getFromUsername().equalsIgnoreCase(username) ? r.getToUsername() : r.getFromUsername())
+            .distinct()
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> onlineFriends() {
+        return presenceRegistry.onlineFriends(username);
+    }
+
+    @Benchmark
+    public String participantsCheck() {
+        return participants.includes("Veli") ? participants.otherThan("Veli") : null;
+    }
+
+    private void connect(String user) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+        accessor.setSessionId("session-" + user);
+        Principal principal = () -> user;
+        presenceRegistry.onConnected(new SessionConnectedEvent(this,
+            MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), principal));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.chat.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.example.auth.auth_service.security.JwtUtil;
+import com.example.chat.chat_service.security.JwtVerifier;
+
+/**
+ * Token üretimini (auth-service JwtUtil) ve doğrulamasını (JwtUtil ve chat-service JwtVerifier) ölçer.
+ * <p>
+ * <b>Nasıl çalışır?</b> JwtUtil imzalarken anahtarı 32 karaktere tamamlar, doğrularken tamamlamaz; iki yolun
+ * aynı anahtarı kullanması için benchmark'ta 32 karakterden uzun bir gizli anahtar kullanılır.
+ * verifierUncached her çağrıda önbelleği olmayan yeni bir doğrulama yapar (ilk istek), verifierCached ise
+ * aynı token'ın tekrar gelmesini (sonraki istekler) ölçer.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+    private static final String SECRET = "benchmark-secret-key-at-least-32-characters";
+
+    private JwtUtil jwtUtil;
+    private UserDetails user;
+    private String token;
+    private String otherToken;
+    private boolean alternate;
+    private JwtVerifier cachingVerifier;
+    private JwtVerifier nonCachingVerifier;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        Fields.set(jwtUtil, "secret", SECRET);
+        Fields.set(jwtUtil, "jwtExpirationInMs", TimeUnit.HOURS.toMillis(1));
+        user = User.withUsername("veli").password("unused").authorities(List.of()).build();
+        token = jwtUtil.generateToken(user);
+        otherToken = jwtUtil.generateToken(User.withUsername("zeynep").password("unused").authorities(List.of()).build());
+        cachingVerifier = new JwtVerifier(SECRET, 10_000);
+        cachingVerifier.verify(token);
+        nonCachingVerifier = new JwtVerifier(SECRET, 1);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token, user);
+    }
+
+    @Benchmark
+    public String verifierCached() {
+        return cachingVerifier.verify(token);
+    }
+
+    @Benchmark
+    public String verifierUncached() {
+        // Önbellekte tek yer var ve iki token dönüşümlü doğrulanır; her çağrı imza kontrolü yapar
+        alternate = !alternate;
+        return nonCachingVerifier.verify(alternate ? token : otherToken);
+    }
+}
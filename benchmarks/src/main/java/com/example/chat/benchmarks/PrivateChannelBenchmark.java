@@ -0,0 +1,45 @@
+package com.example.chat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.chat.chat_service.model.ChatMessage;
+
+/**
+ * Private kanal adı üretimini ve kanal erişim kontrolünü ölçer (her private_ kanal mesajında çalışır).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrivateChannelBenchmark {
+    private String user1 = "zeynep";
+    private String user2 = "Veli";
+    private String channel = "private_Veli_zeynep";
+
+    @Benchmark
+    public String getPrivateChannelName() {
+        return ChatMessage.getPrivateChannelName(user1, user2);
+    }
+
+    @Benchmark
+    public boolean canAccessPrivateChannelAllowed() {
+        return ChatMessage.canAccessPrivateChannel(user2, channel);
+    }
+
+    @Benchmark
+    public boolean canAccessPrivateChannelDenied() {
+        return ChatMessage.canAccessPrivateChannel("ahmet", channel);
+    }
+}
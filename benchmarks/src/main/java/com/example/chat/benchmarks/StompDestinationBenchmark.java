@@ -0,0 +1,92 @@
+package com.example.chat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Simple broker'ın (WebSocketConfig: enableSimpleBroker("/topic")) bir mesajın hedefine abone olan oturumları bulmasını ölçer.
+ * <p>
+ * <b>Nasıl çalışır?</b> Her oturum uygulamanın kullandığı kanallara abone olur: kendi sohbeti, typing, presence,
+ * unread ve ortak bir kanal. Ardından DefaultSubscriptionRegistry.findSubscriptions her yayında olduğu gibi çağrılır.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StompDestinationBenchmark {
+    /**
+     * Bağlı oturum sayısı.
+     */
+    @Param({ "1000", "10000" })
+    private int sessions;
+
+    private DefaultSubscriptionRegistry registry;
+    private Message<byte[]> conversationMessage;
+    private Message<byte[]> typingMessage;
+    private Message<byte[]> channelMessage;
+
+    @Setup
+    public void setup() {
+        registry = new DefaultSubscriptionRegistry();
+        for (int i = 0; i < sessions; i++) {
+            String sessionId = "session-" + i;
+            subscribe(sessionId, "s1", "/topic/conversation/" + (i / 2));
+            subscribe(sessionId, "s2", "/topic/typing/user" + i);
+            subscribe(sessionId, "s3", "/topic/presence/user" + i);
+            subscribe(sessionId, "s4", "/topic/unread/user" + i);
+            subscribe(sessionId, "s5", "/topic/messages/general");
+        }
+        conversationMessage = message("/topic/conversation/" + (sessions / 4));
+        typingMessage = message("/topic/typing/user" + (sessions / 3));
+        channelMessage = message("/topic/messages/general");
+    }
+
+    @Benchmark
+    public MultiValueMap<String, String> conversationDestination() {
+        return registry.findSubscriptions(conversationMessage);
+    }
+
+    @Benchmark
+    public MultiValueMap<String, String> typingDestination() {
+        return registry.findSubscriptions(typingMessage);
+    }
+
+    @Benchmark
+    public MultiValueMap<String, String> broadcastDestination() {
+        return registry.findSubscriptions(channelMessage);
+    }
+
+    private void subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        registry.registerSubscription(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private static Message<byte[]> message(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
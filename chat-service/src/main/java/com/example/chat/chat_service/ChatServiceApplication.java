@@ -2,6 +2,8 @@ package com.example.chat.chat_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 
 /**
  * ChatServiceApplication, Spring Boot chat uygulamasının ana giriş noktasıdır.
@@ -11,9 +13,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  *   <li>@SpringBootApplication: Spring Boot'un otomatik yapılandırmasını ve bileşen taramasını başlatır.</li>
  *   <li>main metodu: Java uygulamalarında ana giriş noktasıdır, uygulamayı başlatır.</li>
  *   <li>SpringApplication.run: Spring Boot uygulamasını başlatır.</li>
+ *   <li>R2DBC otomatik yapılandırması kapalıdır: R2DBC yalnızca mesaj geçmişi akışında (ReactiveMessageHistory) kendi havuzuyla kullanılır;
+ *       otomatik bir ConnectionFactory JDBC DataSource'unu, reaktif transaction yöneticisi de JPA'nınkini devre dışı bırakırdı.</li>
  * </ul>
  */
-@SpringBootApplication // Spring Boot'un otomatik yapılandırmasını ve bileşen taramasını başlatır.
+@SpringBootApplication(exclude = { R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class }) // Spring Boot'un otomatik yapılandırmasını ve bileşen taramasını başlatır.
 public class ChatServiceApplication {
     /**
      * Uygulamanın ana giriş noktası.
@@ -0,0 +1,122 @@
+package com.example.chat.chat_service.buffer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * MpscRingBuffer, çok üreticili / tek tüketicili (multi-producer single-consumer), boyutu sınırlı ve kilitsiz bir kuyruktur.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Elemanlar sabit boyutlu bir dizide (ring) tutulur; dizi boyutu 2'nin kuvveti olduğu için indeks "pozisyon &amp; mask" ile bulunur.</li>
+ *   <li>Her hücrenin bir sıra numarası (sequence) vardır. Üretici, hücrenin sırası kendi pozisyonuna eşitse
+ *       tail'i compareAndSet ile ilerletir ve hücreyi doldurur; kilit (synchronized) kullanılmaz.</li>
+ *   <li>Tüketici tektir (ör: toplu yazan thread), bu yüzden head için CAS gerekmez.</li>
+ *   <li>Kuyruk doluysa offer bekletmez, false döner; ne yapılacağına çağıran karar verir.</li>
+ * </ul>
+ *
+ * @param <E> Eleman tipi
+ */
+public class MpscRingBuffer<E> {
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    /**
+     * Üreticilerin yazacağı bir sonraki pozisyon.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Tüketicinin okuyacağı bir sonraki pozisyon (yalnızca tüketici yazar; size() için volatile).
+     */
+    private volatile long head;
+
+    /**
+     * Belirtilen kapasiteyle yeni bir kuyruk oluşturur.
+     * @param capacity Kapasite (2'nin kuvveti olmalı)
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity 2'nin kuvveti olmalı");
+        }
+        this.items = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+    }
+
+    /**
+     * Elemanı kuyruğa ekler (birden fazla thread aynı anda çağırabilir).
+     * @param element Eklenecek eleman (null olamaz)
+     * @return Eklendiyse true; kuyruk doluysa false
+     */
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items.set(index, element);
+                    sequences.set(index, pos + 1); // Hücre tüketiciye açılır
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // Tüketici bu hücreyi henüz boşaltmadı: kuyruk dolu
+            } else {
+                pos = tail.get(); // Başka bir üretici bu pozisyonu aldı
+            }
+        }
+    }
+
+    /**
+     * Kuyruktaki ilk elemanı alır (yalnızca tek tüketici thread çağırmalıdır).
+     * @return Eleman veya kuyruk boşsa null
+     */
+    public E poll() {
+        long pos = head;
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) return null;
+        E element = items.get(index);
+        items.set(index, null);
+        sequences.set(index, pos + mask + 1); // Hücre bir sonraki turda üreticiye açılır
+        head = pos + 1;
+        return element;
+    }
+
+    /**
+     * En fazla max elemanı kuyruktan alıp listeye ekler (yalnızca tek tüketici thread çağırmalıdır).
+     * @param target Elemanların ekleneceği liste
+     * @param max En fazla alınacak eleman sayısı
+     * @return Alınan eleman sayısı
+     */
+    public int drainTo(List<? super E> target, int max) {
+        int count = 0;
+        E element;
+        while (count < max && (element = poll()) != null) {
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Kuyruktaki yaklaşık eleman sayısı (eşzamanlı eklemeler sırasında anlık görüntüdür).
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.chat.chat_service.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * LruCache, uygulama içinde (in-process) tutulan, boyutu sınırlı bir önbellektir.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>LinkedHashMap erişim sırasıyla (accessOrder = true) oluşturulur; en son kullanılan kayıt listenin sonuna taşınır.</li>
+ *   <li>removeEldestEntry: Kapasite aşıldığında en uzun süredir kullanılmayan (LRU) kayıt otomatik silinir.</li>
+ *   <li>Tüm metotlar synchronized'dır; kritik bölüm çok kısa olduğu için kilit maliyeti ağ/DB çağrısına göre ihmal edilebilir.</li>
+ *   <li>Redis'ten farkı: Okuma bir ağ çağrısı gerektirmez, bu yüzden her istekte çalışan sıcak yollar için uygundur.</li>
+ * </ul>
+ *
+ * @param <K> Anahtar tipi
+ * @param <V> Değer tipi
+ */
+public class LruCache<K, V> {
+    /**
+     * Erişim sırasını tutan ve kapasite aşıldığında en eski kaydı silen harita.
+     */
+    private final LinkedHashMap<K, V> entries;
+
+    /**
+     * Belirtilen kapasiteyle yeni bir önbellek oluşturur.
+     * @param maxEntries Önbellekte tutulacak en fazla kayıt sayısı
+     */
+    public LruCache(int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries pozitif olmalı");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Anahtara karşılık gelen değeri döndürür (yoksa null).
+     * @param key Anahtar
+     * @return Değer veya null
+     */
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Anahtar için değeri önbelleğe yazar.
+     * @param key Anahtar
+     * @param value Değer
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    /**
+     * Anahtar önbellekte yoksa değeri yazar; varsa mevcut değere dokunmaz.
+     * @param key Anahtar
+     * @param value Değer
+     * @return Önbellekteki mevcut değer veya (yazıldıysa) null
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        return entries.putIfAbsent(key, value);
+    }
+
+    /**
+     * Değer önbellekte yoksa loader ile hesaplar ve (null değilse) önbelleğe yazar.
+     * <p>
+     * <b>Nasıl çalışır?</b> loader kilit dışında çalıştırılır; böylece yavaş bir DB sorgusu diğer okumaları bekletmez.
+     * Aynı anahtar için iki thread aynı anda yükleme yapabilir, sonuç aynı olduğundan bu zararsızdır.
+     * </p>
+     * @param key Anahtar
+     * @param loader Değeri hesaplayan fonksiyon
+     * @return Önbellekteki veya yeni hesaplanan değer
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V cached = get(key);
+        if (cached != null) return cached;
+        V loaded = loader.apply(key);
+        if (loaded != null) put(key, loaded);
+        return loaded;
+    }
+
+    /**
+     * Anahtarı önbellekten siler.
+     * @param key Anahtar
+     */
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Önbellekteki tüm kayıtları siler.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Önbellekteki kayıt sayısını döndürür.
+     * @return Kayıt sayısı
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.chat.chat_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * AsyncConfig, @Async ile işaretlenmiş metotların arka plan thread'lerinde çalışmasını etkinleştirir.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>@EnableAsync: @Async metotları çağıran thread'i bekletmeden Spring Boot'un görev havuzunda (applicationTaskExecutor) çalıştırır.</li>
+ *   <li>Örnek: ConversationPurgeService, arkadaşlık silindiğinde sohbet mesajlarını HTTP isteğini bekletmeden siler.</li>
+ * </ul>
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
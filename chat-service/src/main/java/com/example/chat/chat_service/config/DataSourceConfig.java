@@ -0,0 +1,103 @@
+package com.example.chat.chat_service.config;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * DataSourceConfig, okuma kopyası (read replica) tanımlıysa okuma ve yazma bağlantılarını ayrı havuzlara yönlendirir.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>chat.datasource.replica.url verilmezse bu sınıf devre dışıdır; Spring Boot tek bir DataSource (primary) oluşturur.</li>
+ *   <li>Verilirse iki HikariCP havuzu oluşturulur: "primary" (spring.datasource.*, spring.datasource.hikari.*) ve
+ *       "replica" (chat.datasource.replica.*, chat.datasource.replica.hikari.*). Havuz boyutları ayrı ayarlanır.</li>
+ *   <li>Uygulamanın kullandığı DataSource bir AbstractRoutingDataSource'tur: o anki transaction
+ *       @Transactional(readOnly = true) ise (JpaRepository'den gelen findById/findAll/count ve ChatMessageRepository'nin
+ *       geçmiş/arama sorguları) bağlantı replica havuzundan, değilse (yazma, Flyway, transaction dışı sorgular) primary'den alınır.</li>
+ *   <li>Yönlendirici bir LazyConnectionDataSourceProxy ile sarılır: Hibernate bağlantıyı transaction başında ister,
+ *       fakat gerçek bağlantı ilk SQL çalıştığında alınır; o anda transaction'ın readOnly olduğu bilinir.</li>
+ *   <li>Replica birkaç milisaniye geride olabilir; hemen önce yazılanı okuması gereken yerler (ör: ConversationParticipantCache)
+ *       readOnly olmayan bir transaction açarak primary'den okur.</li>
+ *   <li>Havuz metrikleri (hikaricp_connections_*{pool="primary|replica"}) Actuator tarafından otomatik yayınlanır.</li>
+ * </ul>
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.datasource.replica.url")
+public class DataSourceConfig {
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    /**
+     * Yazma havuzu: spring.datasource.* bağlantı bilgileri ve spring.datasource.hikari.* havuz ayarları.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource() {
+        HikariDataSource dataSource = primaryDataSourceProperties().initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("chat.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    /**
+     * Okuma havuzu: chat.datasource.replica.* bağlantı bilgileri ve chat.datasource.replica.hikari.* havuz ayarları.
+     */
+    @Bean
+    @ConfigurationProperties("chat.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = replicaDataSourceProperties().initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * Uygulamanın (JPA, JdbcTemplate, Flyway) kullandığı yönlendirici DataSource.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource() {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+        routing.setTargetDataSources(Map.of(Route.PRIMARY, primaryDataSource(), Route.REPLICA, replicaDataSource()));
+        routing.setDefaultTargetDataSource(primaryDataSource());
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    /**
+     * Bağlantıyı o anki transaction'ın readOnly bilgisine göre primary veya replica havuzundan alır.
+     */
+    private static final class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.chat.chat_service.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * FlywayConfig, chat-service migration'larını auth-service'in users tablosu hazır olduktan sonra çalıştırır.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>İki servis aynı veritabanını kullanır; users tablosunun sahibi auth-service'tir (DDL'i yalnızca o çalıştırır).</li>
+ *   <li>chat-service tabloları (ör: user_friends) users'a foreign key ile bağlıdır ve User entity'si doğrulanır (ddl-auto=validate).</li>
+ *   <li>docker-compose depends_on yalnızca konteynerlerin başlama sırasını belirler, auth-service'in migration'larını
+ *       bitirdiğini garanti etmez. Bu yüzden migration'dan önce users tablosu görünene kadar beklenir.</li>
+ *   <li>chat.flyway.users-table-wait-ms içinde tablo oluşmazsa uygulama açık bir hata ile durur. Varsayılan süre kısadır (10 sn);
+ *       servislerin birlikte açıldığı docker-compose bu süreyi CHAT_FLYWAY_USERS_TABLE_WAIT_MS ile uzatır.</li>
+ * </ul>
+ */
+@Configuration
+public class FlywayConfig {
+    private static final Logger log = LoggerFactory.getLogger(FlywayConfig.class);
+
+    @Value("${chat.flyway.users-table-wait-ms:10000}")
+    private long usersTableWaitMs;
+
+    /**
+     * users tablosunu bekleyip ardından migration'ları çalıştıran strateji.
+     * @return Spring Boot'un Flyway başlatırken kullandığı strateji
+     */
+    @Bean
+    public FlywayMigrationStrategy waitForUsersTable() {
+        return flyway -> {
+            awaitUsersTable(flyway);
+            flyway.migrate();
+        };
+    }
+
+    private void awaitUsersTable(Flyway flyway) {
+        DataSource dataSource = flyway.getConfiguration().getDataSource();
+        long deadline = System.currentTimeMillis() + usersTableWaitMs;
+        boolean logged = false;
+        while (!usersTableExists(dataSource)) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("users tablosu " + usersTableWaitMs
+                    + " ms içinde oluşmadı; auth-service'in aynı veritabanında (spring.datasource.url) migration'larını çalıştırdığından emin olun.");
+            }
+            if (!logged) {
+                log.info("users tablosu henüz yok, auth-service migration'ları bekleniyor");
+                logged = true;
+            }
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("users tablosu beklenirken kesildi", e);
+            }
+        }
+    }
+
+    private static boolean usersTableExists(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT to_regclass('users') IS NOT NULL");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() && rs.getBoolean(1);
+        } catch (SQLException e) {
+            // Veritabanı henüz hazır değilse de beklemeye devam edilir
+            return false;
+        }
+    }
+}
@@ -8,24 +8,41 @@ package com.example.chat.chat_service.config;
  *   <li>@Configuration: Bu sınıfın bir konfigürasyon sınıfı olduğunu belirtir.</li>
  *   <li>Queue, Exchange, Binding: RabbitMQ'da mesajların nasıl yönlendirileceğini belirler.</li>
  *   <li>Jackson2JsonMessageConverter: Mesajların JSON formatında iletilmesini sağlar.</li>
- *   <li>RabbitTemplate: Mesaj göndermek için kullanılır.</li>
+ *   <li>RabbitTemplate: Mesaj göndermek için kullanılır. Observation açıktır: gönderilen mesajın başlıklarına
+ *       trace bilgisi (traceparent) eklenir ve consumer aynı trace'e devam eder.</li>
+ *   <li>Kaydedilemeyen mesajlar için gecikmeli tekrar deneme kuyrukları (chat.retry.exchange → chat.queue.retry.{ms}) ve
+ *       ölü mesaj kuyruğu (chat.dlx → chat.queue.dlq) tanımlanır. Gecikme kuyruklarında tüketici yoktur: mesaj TTL dolunca
+ *       dead-letter ayarıyla chat.exchange'e, yani ana kuyruğa geri döner (bkz. ChatMessageRetryPolicy).</li>
+ *   <li>Ana kuyruğun argümanları değiştirilmez; mevcut bir kuyruk farklı argümanlarla tekrar tanımlanamaz (PRECONDITION_FAILED).
+ *       Tekrar deneme ve ölü mesaja gönderme bu yüzden ChatMessageConsumer tarafından yapılır.</li>
  * </ul>
  */
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.example.chat.chat_service.service.ChatMessageRetryPolicy;
+
 @Configuration
 public class RabbitMQConfig {
     public static final String QUEUE = "chat.queue";
     public static final String EXCHANGE = "chat.exchange";
     public static final String ROUTING_KEY = "chat.message";
+    public static final String RETRY_EXCHANGE = "chat.retry.exchange";
+    public static final String DEAD_LETTER_EXCHANGE = "chat.dlx";
+    public static final String DEAD_LETTER_QUEUE = "chat.queue.dlq";
 
     /**
      * RabbitMQ'da kalıcı (durable) bir kuyruk oluşturur.
@@ -51,6 +68,51 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(queue).to(exchange).with(ROUTING_KEY);
     }
 
+    /**
+     * Tekrar deneme sayısı biten mesajların bekletildiği kalıcı kuyruk.
+     */
+    @Bean
+    public Queue deadLetterQueue() {
+        return QueueBuilder.durable(DEAD_LETTER_QUEUE).build();
+    }
+
+    /**
+     * Ölü mesaj exchange'i.
+     */
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return new DirectExchange(DEAD_LETTER_EXCHANGE);
+    }
+
+    /**
+     * Ölü mesaj exchange'i ile kuyruğu arasındaki bağlantı.
+     */
+    @Bean
+    public Binding deadLetterBinding() {
+        return BindingBuilder.bind(deadLetterQueue()).to(deadLetterExchange()).with(ROUTING_KEY);
+    }
+
+    /**
+     * Her tekrar denemesi için bir gecikme kuyruğu: TTL süresince bekletilen mesaj ana exchange'e geri gönderilir.
+     */
+    @Bean
+    public Declarables retryQueues(ChatMessageRetryPolicy retryPolicy) {
+        DirectExchange retryExchange = new DirectExchange(RETRY_EXCHANGE);
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(retryExchange);
+        for (int attempt = 1; attempt <= retryPolicy.maxAttempts(); attempt++) {
+            String name = retryPolicy.queueFor(attempt);
+            Queue retryQueue = QueueBuilder.durable(name)
+                .ttl((int) retryPolicy.delayMs(attempt))
+                .deadLetterExchange(EXCHANGE)
+                .deadLetterRoutingKey(ROUTING_KEY)
+                .build();
+            declarables.add(retryQueue);
+            declarables.add(BindingBuilder.bind(retryQueue).to(retryExchange).with(name));
+        }
+        return new Declarables(declarables);
+    }
+
     /**
      * Mesajları JSON formatında iletmek için converter bean'i.
      */
@@ -68,6 +130,8 @@ public class RabbitMQConfig {
         template.setMessageConverter(messageConverter);
         template.setExchange(EXCHANGE);
         template.setRoutingKey(ROUTING_KEY);
+        // Kendi RabbitTemplate'imiz spring.rabbitmq.template.observation-enabled ayarını okumaz
+        template.setObservationEnabled(true);
         return template;
     }
 }
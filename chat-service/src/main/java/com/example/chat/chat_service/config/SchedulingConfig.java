@@ -0,0 +1,18 @@
+package com.example.chat.chat_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * SchedulingConfig, zamanlanmış (periyodik) arka plan işlerini etkinleştirir.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>@EnableScheduling: @Scheduled ile işaretlenmiş metotların belirlenen aralıklarla çalışmasını sağlar.</li>
+ *   <li>Örnek: ChatMessagePartitionMaintenance her gün yeni mesaj partition'larını oluşturur.</li>
+ * </ul>
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
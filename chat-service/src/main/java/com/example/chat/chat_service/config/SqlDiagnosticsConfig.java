@@ -0,0 +1,106 @@
+package com.example.chat.chat_service.config;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.example.chat.chat_service.diagnostics.SqlDiagnostics;
+import com.example.chat.chat_service.diagnostics.SqlDiagnosticsEndpoint;
+import com.example.chat.chat_service.diagnostics.SqlDiagnosticsFilter;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * SqlDiagnosticsConfig, SQL tanılama modunu (chat.diagnostics.sql.enabled=true) kurar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>@ConditionalOnProperty: Ayar kapalıyken (varsayılan) bu sınıftaki hiçbir bean oluşturulmaz; normal çalışmada ek maliyet yoktur.</li>
+ *   <li>BeanPostProcessor: Spring Boot'un oluşturduğu DataSource bean'i, datasource-proxy ile sarılır.
+ *       Her SQL ifadesinin süresi SqlDiagnostics'e bildirilir.</li>
+ *   <li>SqlDiagnosticsFilter her HTTP isteğini, SqlDiagnosticsEndpoint ise /actuator/sqldiagnostics adresini ekler.</li>
+ *   <li>spring.jpa.show-sql'in aksine ifadeler stdout'a yazılmaz; yalnızca sayılır ve süreleri toplanır.</li>
+ * </ul>
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.diagnostics.sql.enabled", havingValue = "true")
+public class SqlDiagnosticsConfig {
+    private static final String START_NANOS = "diagnostics.startNanos";
+
+    @Bean
+    public SqlDiagnostics sqlDiagnostics(@Value("${chat.diagnostics.sql.slow-query-ms:100}") long slowQueryMs,
+                                         @Value("${chat.diagnostics.sql.n-plus-one-threshold:10}") int nPlusOneThreshold,
+                                         @Value("${chat.diagnostics.sql.top:20}") int top) {
+        return new SqlDiagnostics(slowQueryMs, nPlusOneThreshold, top);
+    }
+
+    /**
+     * Uygulamanın kullandığı DataSource'u ("dataSource" bean'i) proxy ile saran BeanPostProcessor.
+     * static olmalıdır; diğer bean'lerden önce oluşturulur. Okuma kopyası tanımlıyken "dataSource" yönlendirici
+     * proxy'dir (DataSourceConfig); altındaki havuzlar HikariDataSource tipinde kalmalıdır, bu yüzden sarılmaz.
+     */
+    @Bean
+    public static BeanPostProcessor sqlDiagnosticsDataSourceWrapper(ObjectProvider<SqlDiagnostics> sqlDiagnostics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)
+                        || bean instanceof ProxyDataSource) return bean;
+                return ProxyDataSourceBuilder.create(dataSource)
+                    .name(beanName)
+                    .listener(new TimingListener(sqlDiagnostics.getObject()))
+                    .build();
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlDiagnosticsFilter> sqlDiagnosticsFilter(SqlDiagnostics sqlDiagnostics) {
+        FilterRegistrationBean<SqlDiagnosticsFilter> registration = new FilterRegistrationBean<>(new SqlDiagnosticsFilter(sqlDiagnostics));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public SqlDiagnosticsEndpoint sqlDiagnosticsEndpoint(SqlDiagnostics sqlDiagnostics) {
+        return new SqlDiagnosticsEndpoint(sqlDiagnostics);
+    }
+
+    /**
+     * Her ifadenin süresini nanosaniye hassasiyetle ölçer (ExecutionInfo.getElapsedTime milisaniyedir).
+     */
+    private static final class TimingListener implements QueryExecutionListener {
+        private final SqlDiagnostics sqlDiagnostics;
+
+        TimingListener(SqlDiagnostics sqlDiagnostics) {
+            this.sqlDiagnostics = sqlDiagnostics;
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            execInfo.addCustomValue(START_NANOS, System.nanoTime());
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            Long start = execInfo.getCustomValue(START_NANOS, Long.class);
+            if (start == null || queryInfoList.isEmpty()) return;
+            // Batch'te birden fazla ifade tek seferde çalışır; süre eşit paylaştırılır
+            long elapsed = (System.nanoTime() - start) / queryInfoList.size();
+            for (QueryInfo queryInfo : queryInfoList) sqlDiagnostics.onStatement(queryInfo.getQuery(), elapsed);
+        }
+    }
+}
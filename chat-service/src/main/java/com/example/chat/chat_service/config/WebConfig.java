@@ -1,10 +1,18 @@
 package com.example.chat.chat_service.config;
 
+import java.util.List;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.web.filter.CorsFilter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.example.chat.chat_service.security.JwtAuthenticationFilter;
+
 /**
  * WebConfig, uygulamanın CORS (Cross-Origin Resource Sharing) ayarlarını yapılandırır.
  * <p>
@@ -13,10 +21,15 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  *   <li>@Configuration: Bu sınıfın bir konfigürasyon sınıfı olduğunu belirtir.</li>
  *   <li>corsConfigurer: Frontend (React) ile backend (Spring Boot) arasında güvenli iletişim için CORS ayarlarını yapar.</li>
  *   <li>addCorsMappings: Hangi adreslerden, hangi metotlarla ve hangi izinlerle erişim olacağını belirler.</li>
+ *   <li>apiCorsFilter: Aynı ayarları /api/** için JwtAuthenticationFilter'dan önce uygular; böylece 401 (token yok/geçersiz)
+ *       ve 429 gibi controller'a ulaşmayan yanıtlar da CORS başlıklarını taşır ve tarayıcı gerçek hata kodunu görür.</li>
  * </ul>
  */
 @Configuration
 public class WebConfig {
+    private static final String ALLOWED_ORIGIN = "http://localhost:3000";
+    private static final String[] ALLOWED_METHODS = { "GET", "POST", "PUT", "DELETE", "OPTIONS" };
+
     /**
      * CORS ayarlarını yapılandıran bean.
      * <p>
@@ -30,11 +43,33 @@ public class WebConfig {
             @Override
             public void addCorsMappings(CorsRegistry registry) {
                 registry.addMapping("/**")
-                        .allowedOrigins("http://localhost:3000")
-                        .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                        .allowedOrigins(ALLOWED_ORIGIN)
+                        .allowedMethods(ALLOWED_METHODS)
                         .allowedHeaders("*")
                         .allowCredentials(true);
             }
         };
     }
+
+    /**
+     * /api/** istekleri için CORS filtresi.
+     * <p>
+     * <b>Nasıl çalışır?</b> Filtre, kimlik doğrulama filtresinden hemen önce çalışır ve yanıta CORS başlıklarını ekler.
+     * Controller'daki @CrossOrigin ayarları başlıklar zaten eklendiği için tekrar eklemez.
+     * </p>
+     * @return Filtre kaydı
+     */
+    @Bean
+    public FilterRegistrationBean<CorsFilter> apiCorsFilter() {
+        CorsConfiguration config = new CorsConfiguration();
+        config.setAllowedOrigins(List.of(ALLOWED_ORIGIN));
+        config.setAllowedMethods(List.of(ALLOWED_METHODS));
+        config.addAllowedHeader("*");
+        config.setAllowCredentials(true);
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/api/**", config);
+        FilterRegistrationBean<CorsFilter> registration = new FilterRegistrationBean<>(new CorsFilter(source));
+        registration.setOrder(JwtAuthenticationFilter.ORDER - 1);
+        return registration;
+    }
 }
@@ -1,11 +1,16 @@
 package com.example.chat.chat_service.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import com.example.chat.chat_service.ratelimit.SendRateLimitInterceptor;
+import com.example.chat.chat_service.security.StompAuthChannelInterceptor;
+
 /**
  * WebSocketConfig, uygulamanın WebSocket mesajlaşma altyapısını yapılandırır.
  * <p>
@@ -15,11 +20,26 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  *   <li>@EnableWebSocketMessageBroker: WebSocket mesajlaşma desteğini etkinleştirir.</li>
  *   <li>configureMessageBroker: Mesajların hangi prefix ile yönlendirileceğini ve broker'ın nasıl çalışacağını ayarlar.</li>
  *   <li>registerStompEndpoints: WebSocket bağlantı noktalarını (endpoint) tanımlar.</li>
+ *   <li>configureClientInboundChannel: İstemciden gelen mesajlara StompAuthChannelInterceptor eklenir (CONNECT sırasında token doğrulaması,
+ *       SUBSCRIBE sırasında kişiye özel kanalların sahiplik kontrolü),
+ *       ardından SendRateLimitInterceptor (/app/chat.send gönderimlerinin kullanıcı başına sınırlanması).</li>
  * </ul>
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    /**
+     * STOMP CONNECT sırasında JWT doğrulayan interceptor.
+     */
+    @Autowired
+    private StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+    /**
+     * Mesaj gönderimini kullanıcı başına sınırlayan interceptor.
+     */
+    @Autowired
+    private SendRateLimitInterceptor sendRateLimitInterceptor;
+
     /**
      * Mesaj broker'ı yapılandırılır. /topic ile başlayan mesajlar frontend'e iletilir.
      */
@@ -27,6 +47,8 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");
         config.setApplicationDestinationPrefixes("/app");
+        // Bir oturuma giden mesajlar gönderildiği sırayla iletilir (ör: typing true → false)
+        config.setPreservePublishOrder(true);
     }
 
     /**
@@ -35,5 +57,16 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        // Bir oturumdan gelen mesajlar geldiği sırayla işlenir
+        registry.setPreserveReceiveOrder(true);
+    }
+
+    /**
+     * İstemciden gelen mesaj kanalına token doğrulama ve gönderim sınırı interceptor'ları eklenir.
+     * Sıra önemlidir: sınır, CONNECT'te atanan oturum kullanıcısına göre uygulanır.
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthChannelInterceptor, sendRateLimitInterceptor);
     }
 }
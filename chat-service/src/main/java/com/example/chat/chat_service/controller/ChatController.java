@@ -3,24 +3,32 @@ package com.example.chat.chat_service.controller;
 import java.time.LocalDateTime;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.example.chat.chat_service.model.ChatMessage;
 import com.example.chat.chat_service.repository.ChatMessageRepository;
-import com.example.chat.chat_service.service.ChatMessageProducer;
+import com.example.chat.chat_service.repository.ChatMessageRepository.MessageOwnership;
+import com.example.chat.chat_service.security.JwtAuthenticationFilter;
+import com.example.chat.chat_service.service.MessageIngestPipeline;
 
 /**
  * ChatController, chat mesajlarının REST API üzerinden yönetilmesini sağlar.
@@ -37,6 +45,11 @@ import com.example.chat.chat_service.service.ChatMessageProducer;
 @RestController
 @RequestMapping("/api/chat")
 public class ChatController {
+    /**
+     * Arama sonuçlarında bir sayfada döndürülecek en fazla mesaj sayısı.
+     */
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     /**
      * Mesaj veritabanı işlemleri için repository.
      */
@@ -44,16 +57,22 @@ public class ChatController {
     private ChatMessageRepository chatMessageRepository;
 
     /**
-     * Mesajları RabbitMQ'ya göndermek için kullanılan servis.
+     * WebSocket ile mesaj yayınlamak için kullanılan controller.
      */
     @Autowired
-    private ChatMessageProducer chatMessageProducer;
+    private ChatWebSocketController chatWebSocketController;
 
     /**
-     * WebSocket ile mesaj yayınlamak için kullanılan controller.
+     * Yeni mesajları doğrulayan, kaydeden ve yayınlayan servis.
      */
     @Autowired
-    private ChatWebSocketController chatWebSocketController;
+    private MessageIngestPipeline messageIngestPipeline;
+
+    /**
+     * from verilmeden yapılan kanal okumalarında geriye doğru okunacak gün sayısı.
+     */
+    @Value("${chat.messages.default-window-days:31}")
+    private long defaultWindowDays;
 
     /**
      * Tüm mesajları sayfalı olarak döndürür.
@@ -72,26 +91,33 @@ public class ChatController {
     /**
      * Yeni bir chat mesajı gönderir.
      * <p>
-     * <b>Nasıl çalışır?</b> Mesajın zamanını ayarlar, RabbitMQ'ya gönderir ve WebSocket ile yayınlar.
+     * <b>Nasıl çalışır?</b> Mesaj MessageIngestPipeline'a verilir: gönderen token'dan, zaman sunucudan atanır;
+     * chat.ingest.mode'a göre kaydedilir (sync) veya RabbitMQ'ya gönderilir (async) ve WebSocket ile yayınlanır.
+     * Aynı clientMessageId ile tekrar gelen mesaj ikinci kez kaydedilmez ve yayınlanmaz.
      * </p>
      * @param message Gönderilecek chat mesajı
+     * @param currentUser Token ile doğrulanan kullanıcı
      */
     @PostMapping("/send")
     @CacheEvict(value = "messages", allEntries = true)
-    public void sendMessage(@RequestBody ChatMessage message) {
-        message.setTimestamp(LocalDateTime.now());
-        chatMessageProducer.sendMessage(message);
-        chatWebSocketController.publishMessage(message);
+    public void sendMessage(@RequestBody ChatMessage message,
+                            @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        messageIngestPipeline.ingest(message, currentUser, null);
     }
 
     /**
      * Belirli bir mesajı siler ve silindiğini WebSocket ile bildirir.
      * @param id Silinecek mesajın id'si
+     * @param currentUser Token ile doğrulanan kullanıcı (mesajın göndereni olmalı)
      */
     @DeleteMapping("/delete/{id}")
     @CacheEvict(value = "messages", allEntries = true)
-    public void deleteMessage(@PathVariable Long id) {
-        chatMessageRepository.deleteById(id);
+    public void deleteMessage(@PathVariable Long id,
+                              @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        MessageOwnership owner = chatMessageRepository.findOwnershipById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Mesaj bulunamadı."));
+        requireSender(owner.getSender(), currentUser, "Yalnızca kendi mesajlarınızı silebilirsiniz.");
+        chatMessageRepository.deleteByIdAndTimestamp(id, owner.getTimestamp());
         // Kanal mesajı ise anlık silme bildirimi gönder
         chatWebSocketController.publishMessage(new ChatMessage() {{
             setId(id);
@@ -104,42 +130,63 @@ public class ChatController {
 
     /**
      * Belirli bir mesajı günceller ve güncellendiğini WebSocket ile bildirir.
+     * <p>
+     * <b>Nasıl çalışır?</b> Yalnızca mesajın göndereni düzenleyebilir; mesaj bir private kanala taşınıyorsa kullanıcı o kanalın
+     * iki kişisinden biri olmalıdır (mesaj gönderirken uygulanan kuralın aynısı). Silmede olduğu gibi önce sahiplik bilgisi okunur,
+     * ardından UPDATE ve yanıt için okuma (id, timestamp) anahtarıyla yapılır; böylece yalnızca mesajın aylık partition'ı taranır.
+     * </p>
      * @param id Güncellenecek mesajın id'si
      * @param updatedMessage Yeni mesaj içeriği
+     * @param currentUser Token ile doğrulanan kullanıcı (mesajın göndereni olmalı)
      * @return Güncellenmiş mesaj
      */
     @PutMapping("/update/{id}")
     @CacheEvict(value = "messages", allEntries = true)
-    public ChatMessage updateMessage(@PathVariable Long id, @RequestBody ChatMessage updatedMessage) {
-        return chatMessageRepository.findById(id)
-                .map(message -> {
-                    message.setContent(updatedMessage.getContent());
-                    message.setChannel(updatedMessage.getChannel());
-                    ChatMessage saved = chatMessageRepository.save(message);
-                    // Kanal mesajı ise anlık güncelleme bildirimi gönder
-                    chatWebSocketController.publishMessage(saved);
-                    return saved;
-                })
-                .orElseThrow(() -> new RuntimeException("Message not found"));
+    public ChatMessage updateMessage(@PathVariable Long id, @RequestBody ChatMessage updatedMessage,
+                                     @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        MessageOwnership owner = chatMessageRepository.findOwnershipById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Mesaj bulunamadı."));
+        requireSender(owner.getSender(), currentUser, "Yalnızca kendi mesajlarınızı düzenleyebilirsiniz.");
+        requireChannelAccess(updatedMessage.getChannel(), currentUser);
+        if (chatMessageRepository.updateContentAndChannel(id, owner.getTimestamp(), updatedMessage.getContent(),
+                updatedMessage.getChannel()) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Mesaj bulunamadı.");
+        }
+        ChatMessage saved = chatMessageRepository.findByIdAndTimestamp(id, owner.getTimestamp())
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Mesaj bulunamadı."));
+        // Kanal mesajı ise anlık güncelleme bildirimi gönder
+        chatWebSocketController.publishMessage(saved);
+        return saved;
     }
 
     /**
      * Belirli bir kanala ait mesajları sayfalı olarak döndürür.
+     * <p>
+     * <b>Nasıl çalışır?</b> private_ kanallarını yalnızca kanal adındaki iki kullanıcı okuyabilir; diğerleri için 403 döner.
+     * Sorgu her zaman [from, to] aralığıyla sınırlanır, böylece yalnızca ilgili aylık partition'lar okunur. from verilmezse
+     * to'dan geriye chat.messages.default-window-days gün okunur; daha eski mesajlar için from açıkça verilmelidir.
+     * </p>
      * @param channel Kanal adı
      * @param page Sayfa numarası
      * @param size Sayfa başına mesaj sayısı
+     * @param from Opsiyonel başlangıç zamanı (ISO-8601), verilmezse to'dan chat.messages.default-window-days gün öncesi
+     * @param to Opsiyonel bitiş zamanı (ISO-8601), verilmezse şu an
+     * @param currentUser Token ile doğrulanan kullanıcı
      * @return Sayfalı mesaj listesi
      */
     @GetMapping("/messages/channel/{channel}")
     // @Cacheable("messages") // CACHE KALDIRILDI
     public Page<ChatMessage> getMessagesByChannel(@PathVariable String channel,
                                                   @RequestParam(value = "page", defaultValue = "0") int page,
-                                                  @RequestParam(value = "size", defaultValue = "10") int size) {
+                                                  @RequestParam(value = "size", defaultValue = "10") int size,
+                                                  @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                  @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                  @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        requireChannelAccess(channel, currentUser);
         Pageable pageable = PageRequest.of(page, size);
-        System.out.println("Kanal adı (gelen): '" + channel + "'");
-        Page<ChatMessage> result = chatMessageRepository.findByChannelIgnoreCaseTrimmed(channel, pageable);
-        System.out.println("Dönen mesaj sayısı: " + result.getContent().size());
-        return result;
+        LocalDateTime until = to != null ? to : LocalDateTime.now();
+        LocalDateTime since = from != null ? from : until.minusDays(defaultWindowDays);
+        return chatMessageRepository.findByChannelIgnoreCaseTrimmedBetween(channel, since, until, pageable);
     }
 
     /**
@@ -157,4 +204,55 @@ public class ChatController {
         Pageable pageable = PageRequest.of(page, size);
         return chatMessageRepository.findBySender(sender, pageable);
     }
+
+    /**
+     * Kullanıcının erişebildiği mesajlarda tam metin araması yapar.
+     * <p>
+     * <b>Nasıl çalışır?</b> Arama PostgreSQL tam metin index'i üzerinden yapılır; sonuçlar kullanıcının sohbetleri,
+     * herkese açık kanallar ve kullanıcının dahil olduğu private kanallarla sınırlıdır. En yeni mesajlar önce gelir.
+     * </p>
+     * @param q Arama ifadesi (ör: <code>toplantı "yarın sabah"</code>)
+     * @param conversationId Opsiyonel: yalnızca bu sohbette ara
+     * @param channel Opsiyonel: yalnızca bu kanalda ara
+     * @param page Sayfa numarası
+     * @param size Sayfa başına mesaj sayısı (en fazla 100)
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @return Eşleşen mesajlar (toplam sayı hesaplanmaz; hasNext ile sonraki sayfa kontrol edilir)
+     */
+    @GetMapping("/search")
+    public Slice<ChatMessage> searchMessages(@RequestParam("q") String q,
+                                             @RequestParam(value = "conversationId", required = false) Long conversationId,
+                                             @RequestParam(value = "channel", required = false) String channel,
+                                             @RequestParam(value = "page", defaultValue = "0") int page,
+                                             @RequestParam(value = "size", defaultValue = "20") int size,
+                                             @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        if (q.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arama ifadesi boş olamaz.");
+        }
+        Pageable pageable = PageRequest.of(page, Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE));
+        return chatMessageRepository.search(currentUser, q, conversationId, channel, pageable);
+    }
+
+    /**
+     * Mesajın, token ile doğrulanan kullanıcı tarafından gönderildiğini kontrol eder.
+     * @param sender Mesajın göndereni
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @param forbiddenMessage Mesaj başka kullanıcıya aitse döndürülecek hata mesajı
+     */
+    private void requireSender(String sender, String currentUser, String forbiddenMessage) {
+        if (sender == null || !sender.equalsIgnoreCase(currentUser)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, forbiddenMessage);
+        }
+    }
+
+    /**
+     * Kanal bir private kanalsa kullanıcının o kanalın iki kişisinden biri olduğunu kontrol eder; diğer kanallar herkese açıktır.
+     * @param channel Kanal adı
+     * @param currentUser Token ile doğrulanan kullanıcı
+     */
+    private void requireChannelAccess(String channel, String currentUser) {
+        if (ChatMessage.isPrivateChannel(channel) && !ChatMessage.canAccessPrivateChannel(currentUser, channel)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bu kanala erişim yetkiniz yok.");
+        }
+    }
 }
@@ -1,8 +1,11 @@
 package com.example.chat.chat_service.controller;
 
-import java.time.LocalDateTime;
+import java.security.Principal;
 import java.util.List;
+import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -15,9 +18,13 @@ import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.chat.chat_service.model.ChatMessage;
-import com.example.chat.chat_service.model.FriendRequest;
-import com.example.chat.chat_service.repository.ChatMessageRepository;
+import com.example.chat.chat_service.ratelimit.RateLimitExceededException;
+import com.example.chat.chat_service.ratelimit.SendRateLimiter;
 import com.example.chat.chat_service.repository.FriendRequestRepository;
+import com.example.chat.chat_service.repository.FriendRequestRepository.FriendRequestView;
+import com.example.chat.chat_service.service.ConversationParticipantCache;
+import com.example.chat.chat_service.service.MessageIngestPipeline;
+import com.example.chat.chat_service.service.PresenceRegistry;
 
 /**
  * ChatWebSocketController, WebSocket üzerinden gerçek zamanlı mesajlaşmayı yönetir.
@@ -31,6 +38,8 @@ import com.example.chat.chat_service.repository.FriendRequestRepository;
  */
 @RestController
 public class ChatWebSocketController {
+    private static final Logger log = LoggerFactory.getLogger(ChatWebSocketController.class);
+
     /**
      * WebSocket ile mesaj göndermek için kullanılan Spring bileşeni.
      */
@@ -38,35 +47,81 @@ public class ChatWebSocketController {
     private SimpMessagingTemplate messagingTemplate;
 
     /**
-     * Mesajları veritabanına kaydetmek için kullanılan repository.
+     * Kullanıcı arkadaşlık isteklerini yönetmek için kullanılan repository.
      */
     @Autowired
-    private ChatMessageRepository chatMessageRepository;
+    private FriendRequestRepository friendRequestRepository;
 
     /**
-     * Kullanıcı arkadaşlık isteklerini yönetmek için kullanılan repository.
+     * Sohbet katılımcılarının önbelleği (typing olaylarında alıcıyı bulmak için).
      */
     @Autowired
-    private FriendRequestRepository friendRequestRepository;
+    private ConversationParticipantCache participantCache;
+
+    /**
+     * Çevrimiçi kullanıcılar ve typing olaylarının kaydı.
+     */
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    /**
+     * Yeni mesajları doğrulayan, kaydeden ve yayınlayan servis.
+     */
+    @Autowired
+    private MessageIngestPipeline messageIngestPipeline;
+
+    /**
+     * Sohbet/kanal sınırına takılan gönderene bildirim göndermek için kullanılır.
+     */
+    @Autowired
+    private SendRateLimiter sendRateLimiter;
 
     /**
      * WebSocket ile gelen mesajı ilgili kanala publish eder.
      * <p>
-     * <b>Nasıl çalışır?</b> Mesajın zamanını backend'de ayarlar, kaydeder ve ilgili kanala gönderir.
+     * <b>Nasıl çalışır?</b> Mesaj MessageIngestPipeline'a verilir; REST ile gönderilen mesajlarla aynı doğrulamadan geçer
+     * (conversation alanı doluysa katılımcı ve arkadaşlık kontrolü dahil), zamanı backend'de atanır, kaydedilir ve yayınlanır.
+     * Gönderen her zaman token ile doğrulanan oturum kullanıcısıdır; mesajdaki sender alanı dikkate alınmaz.
+     * Anonim bağlantılardan (token'sız CONNECT) gelen mesajlar kaydedilmez ve yayınlanmaz.
+     * Sohbet/kanal gönderim sınırı aşılırsa mesaj yayınlanmaz, gönderene "/topic/throttle/{kullanıcı}" kanalından bildirilir.
      * </p>
      * @param message Gönderilecek chat mesajı
+     * @param principal Oturum kullanıcısı (token ile bağlanılmadıysa null)
      */
     @MessageMapping("/chat.send")
-    public void send(ChatMessage message) {
-        // Timestamp backend tarafından atanmalı
-        message.setTimestamp(LocalDateTime.now());
-        ChatMessage saved = chatMessageRepository.save(message);
-        // Sadece ilgili kanala publish et
-        if (saved.getChannel() != null && !saved.getChannel().isEmpty()) {
-            messagingTemplate.convertAndSend("/topic/messages/" + saved.getChannel(), saved);
+    public void send(ChatMessage message, Principal principal) {
+        if (principal == null) {
+            log.warn("Anonim WebSocket oturumundan gelen mesaj reddedildi");
+            return;
+        }
+        try {
+            messageIngestPipeline.ingest(message, principal.getName(), null);
+        } catch (RateLimitExceededException e) {
+            sendRateLimiter.notifyThrottled(principal.getName(), e);
         }
     }
 
+    /**
+     * "Yazıyor" (typing) olayını sohbetin diğer katılımcısına iletir; veritabanına yazılmaz.
+     * <p>
+     * <b>Nasıl çalışır?</b> Gönderen, bağlantı sırasında token ile doğrulanan oturum kullanıcısıdır.
+     * Katılımcılar ConversationParticipantCache'ten okunur; olaylar PresenceRegistry'de birleştirilir ve
+     * yalnızca çevrimiçi arkadaşa "/topic/typing/{alıcı}" kanalından gönderilir (kanala yalnızca alıcının oturumu abone olabilir).
+     * Frontend: stompClient.publish({ destination: "/app/typing", body: JSON.stringify({ conversationId, typing: true }) })
+     * </p>
+     * @param payload conversationId ve typing alanları
+     * @param principal Oturum kullanıcısı (token ile bağlanılmadıysa null)
+     */
+    @MessageMapping("/typing")
+    public void typing(Map<String, Object> payload, Principal principal) {
+        if (principal == null || !(payload.get("conversationId") instanceof Number id)) return;
+        Long conversationId = id.longValue();
+        boolean typing = !Boolean.FALSE.equals(payload.get("typing"));
+        participantCache.resolve(conversationId)
+            .filter(p -> p.friends() && p.includes(principal.getName()))
+            .ifPresent(p -> presenceRegistry.typing(principal.getName(), p.otherThan(principal.getName()), conversationId, typing));
+    }
+
     /**
      * Belirli bir kanala mesaj göndermek için yardımcı metot.
      * @param channel Kanal adı
@@ -99,9 +154,9 @@ public class ChatWebSocketController {
             // Kısa bir gecikme ekle (frontend handler'ın hazır olması için)
             try { Thread.sleep(200); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
             // Bekleyen (pending) istekler
-            List<FriendRequest> pending = friendRequestRepository.findByToUsernameAndStatus(username, com.example.chat.chat_service.model.FriendRequest.Status.PENDING);
+            List<FriendRequestView> pending = friendRequestRepository.findPendingTo(username);
             // Kullanıcının gönderdiği (sent) istekler
-            List<FriendRequest> sent = friendRequestRepository.findByFromUsernameAndStatus(username, com.example.chat.chat_service.model.FriendRequest.Status.PENDING);
+            List<FriendRequestView> sent = friendRequestRepository.findPendingFrom(username);
             // Tümünü tek bir nesneyle gönder (ör: Map veya özel bir DTO ile)
             java.util.Map<String, Object> payload = new java.util.HashMap<>();
             payload.put("pending", pending);
@@ -116,8 +171,8 @@ public class ChatWebSocketController {
      */
     @MessageMapping("/friend-request.fetch")
     public void fetchFriendRequests(String username) {
-        List<FriendRequest> pending = friendRequestRepository.findByToUsernameAndStatus(username, com.example.chat.chat_service.model.FriendRequest.Status.PENDING);
-        List<FriendRequest> sent = friendRequestRepository.findByFromUsernameAndStatus(username, com.example.chat.chat_service.model.FriendRequest.Status.PENDING);
+        List<FriendRequestView> pending = friendRequestRepository.findPendingTo(username);
+        List<FriendRequestView> sent = friendRequestRepository.findPendingFrom(username);
         java.util.Map<String, Object> payload = new java.util.HashMap<>();
         payload.put("pending", pending);
         payload.put("sent", sent);
@@ -1,13 +1,18 @@
 package com.example.chat.chat_service.controller;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -16,6 +21,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -25,8 +31,17 @@ import org.springframework.web.server.ResponseStatusException;
 import com.example.chat.chat_service.model.ChatMessage;
 import com.example.chat.chat_service.model.Conversation;
 import com.example.chat.chat_service.repository.ChatMessageRepository;
+import com.example.chat.chat_service.repository.ChatMessageRepository.MessageOwnership;
 import com.example.chat.chat_service.repository.ConversationRepository;
 import com.example.chat.chat_service.repository.UserRepository;
+import com.example.chat.chat_service.security.JwtAuthenticationFilter;
+import com.example.chat.chat_service.service.ConversationParticipantCache;
+import com.example.chat.chat_service.service.ConversationParticipantCache.Participants;
+import com.example.chat.chat_service.service.InboxService;
+import com.example.chat.chat_service.service.InboxService.InboxEntry;
+import com.example.chat.chat_service.service.MessageIngestPipeline;
+import com.example.chat.chat_service.service.UnreadCounterService;
+import com.example.chat.chat_service.service.UnreadCounterService.ReadState;
 
 /**
  * ConversationController, kullanıcılar arasındaki birebir sohbetlerin ve bu sohbetlere ait mesajların yönetimini sağlar.
@@ -36,6 +51,7 @@ import com.example.chat.chat_service.repository.UserRepository;
  *   <li>@RestController: Bu sınıfın bir REST API controller olduğunu belirtir.</li>
  *   <li>@RequestMapping: Tüm endpoint'lerin "/api/conversation" ile başladığını belirtir.</li>
  *   <li>Autowired repository ve servisler, veritabanı ve mesajlaşma işlemleri için kullanılır.</li>
+ *   <li>Mesajı gönderen/değiştiren kullanıcı, JwtAuthenticationFilter'ın doğruladığı token'dan alınır; istek gövdesindeki sender alanına güvenilmez.</li>
  *   <li>Her endpoint ve yardımcı fonksiyon, ilgili işlemin ne yaptığını açıklayan yorumlarla detaylandırılmıştır.</li>
  * </ul>
  */
@@ -43,6 +59,11 @@ import com.example.chat.chat_service.repository.UserRepository;
 @RestController
 @RequestMapping("/api/conversation")
 public class ConversationController {
+    /**
+     * Toplu silme isteğinde kabul edilen en fazla mesaj sayısı.
+     */
+    private static final int MAX_BATCH_DELETE = 500;
+
     /**
      * Conversation veritabanı işlemleri için repository.
      */
@@ -59,105 +80,123 @@ public class ConversationController {
     @Autowired
     private UserRepository userRepository;
     /**
-     * WebSocket ile mesaj yayınlamak için kullanılan controller.
+     * WebSocket ile frontend'e bildirim göndermek için kullanılır.
+     */
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    /**
+     * Sohbet katılımcılarının önbelleği (mesaj gönderme yolunda SELECT'leri önler).
      */
     @Autowired
-    private com.example.chat.chat_service.controller.ChatWebSocketController chatWebSocketController;
+    private ConversationParticipantCache participantCache;
     /**
-     * WebSocket ile frontend'e bildirim göndermek için kullanılır.
+     * Okunmamış mesaj sayaçları ve okunma bilgileri için servis.
      */
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private UnreadCounterService unreadCounterService;
     /**
-     * Arkadaşlık isteği işlemleri için repository.
+     * Yeni mesajları doğrulayan, kaydeden ve yayınlayan servis.
      */
     @Autowired
-    private com.example.chat.chat_service.repository.FriendRequestRepository friendRequestRepository;
+    private MessageIngestPipeline messageIngestPipeline;
+    /**
+     * Kullanıcıların sohbet listesini (inbox) hazırlayan ve önbelleğe alan servis.
+     */
+    @Autowired
+    private InboxService inboxService;
+    /**
+     * from verilmeden yapılan mesaj okumalarında geriye doğru okunacak gün sayısı.
+     */
+    @Value("${chat.messages.default-window-days:31}")
+    private long defaultWindowDays;
 
     /**
      * Belirli iki kullanıcı arasındaki conversation'ı getir (varsa).
      * @param username1 Birinci kullanıcı
      * @param username2 İkinci kullanıcı
+     * @param currentUser Token ile doğrulanan kullanıcı (iki kullanıcıdan biri olmalı)
      * @return Conversation nesnesi veya null
      */
     @GetMapping("/between/{username1}/{username2}")
-    public Conversation getConversation(@PathVariable String username1, @PathVariable String username2) {
+    public Conversation getConversation(@PathVariable String username1, @PathVariable String username2,
+                                        @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
         if (username1 == null || username2 == null) return null;
-        return conversationRepository.findByUser1AndUser2(username1, username2)
-                .or(() -> conversationRepository.findByUser2AndUser1(username1, username2))
-                .orElse(null);
+        if (!username1.equalsIgnoreCase(currentUser) && !username2.equalsIgnoreCase(currentUser)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bu sohbetin katılımcısı değilsiniz.");
+        }
+        return conversationRepository.findBetween(username1, username2).orElse(null);
     }
 
     /**
      * Bir conversation'ın mesajlarını getir (pagination).
+     * <p>
+     * <b>Nasıl çalışır?</b> Yalnızca sohbetin katılımcıları okuyabilir. Sorgu her zaman [from, to] aralığıyla
+     * sınırlanır (to verilmezse şu an, from verilmezse to'dan chat.messages.default-window-days gün öncesi);
+     * böylece yalnızca ilgili aylık partition'lar okunur. Daha eski mesajlar için from açıkça verilmelidir.
+     * </p>
      * @param conversationId Conversation id
      * @param page Sayfa numarası
      * @param size Sayfa başına mesaj sayısı
+     * @param from Opsiyonel başlangıç zamanı (ISO-8601)
+     * @param to Opsiyonel bitiş zamanı (ISO-8601)
+     * @param currentUser Token ile doğrulanan kullanıcı (sohbetin katılımcısı olmalı)
      * @return Sayfalı mesaj listesi
      */
     @GetMapping("/{conversationId}/messages")
     public Page<ChatMessage> getMessages(@PathVariable Long conversationId,
                                          @RequestParam(defaultValue = "0") int page,
-                                         @RequestParam(defaultValue = "20") int size) {
+                                         @RequestParam(defaultValue = "20") int size,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                         @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        requireParticipant(conversationId, currentUser);
         Pageable pageable = PageRequest.of(page, size);
-        return chatMessageRepository.findByConversationId(conversationId, pageable);
+        LocalDateTime until = to != null ? to : LocalDateTime.now();
+        LocalDateTime since = from != null ? from : until.minusDays(defaultWindowDays);
+        return chatMessageRepository.findByConversationIdAndTimestampBetween(conversationId, since, until, pageable);
     }
 
     /**
      * Bir conversation'a mesaj gönder.
+     * <p>
+     * <b>Nasıl çalışır?</b> Doğrulama, kaydetme ve yayın MessageIngestPipeline'da yapılır. Sohbet katılımcıları ve
+     * arkadaşlık durumu ConversationParticipantCache'ten okunur; önbellek doluyken INSERT öncesinde hiçbir SELECT çalışmaz.
+     * Aynı clientMessageId ile gelen retry ilk kaydedilen mesajı döndürür.
+     * </p>
      * @param conversationId Conversation id
      * @param message Gönderilecek mesaj içeriği
+     * @param currentUser Token ile doğrulanan kullanıcı (mesajın göndereni olarak atanır)
      * @return Gönderilen mesaj nesnesi
      */
     @PostMapping("/{conversationId}/send")
-    public ChatMessage sendMessage(@PathVariable Long conversationId, @RequestBody ChatMessage message) {
-        Conversation conv = conversationRepository.findById(conversationId)
-            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sohbet bulunamadı veya silinmiş."));
-        String sender = message.getSender();
-        String receiver = conv.getUser1().equalsIgnoreCase(sender) ? conv.getUser2() : conv.getUser1();
-        // Arkadaşlık kontrolü
-        boolean isFriend = friendRequestRepository.findAll().stream()
-            .anyMatch(r -> r.getStatus() == com.example.chat.chat_service.model.FriendRequest.Status.ACCEPTED &&
-                ((r.getFromUsername().equalsIgnoreCase(sender) && r.getToUsername().equalsIgnoreCase(receiver)) ||
-                 (r.getFromUsername().equalsIgnoreCase(receiver) && r.getToUsername().equalsIgnoreCase(sender))));
-        if (!isFriend) {
-            throw new RuntimeException("Kullanıcılar artık arkadaş değil, mesaj gönderilemez.");
-        }
-        message.setConversation(conv);
-        message.setTimestamp(LocalDateTime.now());
-        // Eğer channel alanı null veya boşsa, birebir sohbetler için varsayılan değer ata
-        if (message.getChannel() == null || message.getChannel().isEmpty()) {
-            message.setChannel(""); // veya "direct" yazabilirsiniz
-        }
-        ChatMessage saved = chatMessageRepository.save(message);
-        // WebSocket ile conversation kanalına publish et
-        messagingTemplate.convertAndSend("/topic/conversation/" + conversationId, saved);
-        // Eğer kanal varsa eski WebSocket publish de çalışsın
-        if (saved.getChannel() != null && !saved.getChannel().isEmpty()) {
-            chatWebSocketController.publishMessage(saved);
-        }
-        return saved;
+    public ChatMessage sendMessage(@PathVariable Long conversationId, @RequestBody ChatMessage message,
+                                   @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        return messageIngestPipeline.ingest(message, currentUser, conversationId);
     }
 
     /**
      * Yeni sohbet başlat (varsa mevcut olanı döndür).
+     * <p>
+     * <b>Nasıl çalışır?</b> Sohbet kanonik kullanıcı çifti anahtarıyla aranır; yoksa INSERT ... ON CONFLICT ile
+     * eklenir, böylece eşzamanlı çağrılar mükerrer sohbet oluşturamaz.
+     * </p>
      * @param body Kullanıcı bilgileri (user1, user2)
+     * @param currentUser Token ile doğrulanan kullanıcı (user1 veya user2 olmalı)
      * @return Oluşturulan veya bulunan Conversation nesnesi
      */
     @PostMapping("/start")
-    public Conversation createConversation(@RequestBody Map<String, String> body) {
+    public Conversation createConversation(@RequestBody Map<String, String> body,
+                                           @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
         String user1 = body.get("user1");
         String user2 = body.get("user2");
         if (user1 == null || user2 == null) throw new IllegalArgumentException("user1 ve user2 zorunlu");
-        // Zaten varsa onu döndür
-        Optional<Conversation> existing = conversationRepository.findByUser1AndUser2(user1, user2)
-            .or(() -> conversationRepository.findByUser2AndUser1(user1, user2));
-        if (existing.isPresent()) return existing.get();
-        // Yoksa yeni oluştur
-        Conversation conv = new Conversation();
-        conv.setUser1(user1);
-        conv.setUser2(user2);
-        return conversationRepository.save(conv);
+        if (!user1.equalsIgnoreCase(currentUser) && !user2.equalsIgnoreCase(currentUser)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Başka kullanıcılar adına sohbet başlatılamaz.");
+        }
+        // Zaten varsa onu döndür, yoksa yeni oluştur
+        Conversation conv = conversationRepository.findOrCreate(user1, user2);
+        inboxService.invalidate(user1, user2);
+        return conv;
     }
 
     /**
@@ -165,21 +204,30 @@ public class ConversationController {
      * @param conversationId Conversation id
      * @param messageId Güncellenecek mesajın id'si
      * @param body Yeni mesaj içeriği
+     * @param currentUser Token ile doğrulanan kullanıcı (mesajın göndereni olmalı)
      * @return Güncellenen mesaj nesnesi
      */
     @PutMapping("/{conversationId}/update/{messageId}")
-    public ChatMessage updateMessage(@PathVariable Long conversationId, @PathVariable Long messageId, @RequestBody Map<String, String> body) {
-        ChatMessage message = chatMessageRepository.findById(messageId)
-            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Mesaj bulunamadı."));
-        if (!message.getConversation().getId().equals(conversationId)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Mesaj bu sohbete ait değil.");
-        }
+    public ChatMessage updateMessage(@PathVariable Long conversationId, @PathVariable Long messageId, @RequestBody Map<String, String> body,
+                                     @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        MessageOwnership owner = requireOwnedMessage(conversationId, messageId, currentUser,
+            "Yalnızca kendi mesajlarınızı düzenleyebilirsiniz.");
         String newContent = body.get("content");
         if (newContent == null || newContent.isBlank()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Yeni mesaj içeriği boş olamaz.");
         }
-        message.setContent(newContent);
-        ChatMessage updated = chatMessageRepository.save(message);
+        if (chatMessageRepository.updateContent(messageId, owner.getTimestamp(), newContent) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Mesaj bulunamadı.");
+        }
+        // Yanıt, entity tekrar yüklenmeden sahiplik sorgusu ve önbellekteki katılımcılarla oluşturulur
+        ChatMessage updated = new ChatMessage();
+        updated.setId(messageId);
+        updated.setSender(owner.getSender());
+        updated.setContent(newContent);
+        updated.setTimestamp(owner.getTimestamp());
+        updated.setChannel(owner.getChannel());
+        updated.setConversation(participantCache.resolve(conversationId).map(Participants::toConversation).orElse(null));
+        invalidateInbox(conversationId);
         // WebSocket ile conversation kanalına publish et (anlık güncelleme için)
         messagingTemplate.convertAndSend("/topic/conversation/" + conversationId, updated);
         return updated;
@@ -189,19 +237,162 @@ public class ConversationController {
      * Belirli bir mesajı sil.
      * @param conversationId Conversation id
      * @param messageId Silinecek mesajın id'si
+     * @param currentUser Token ile doğrulanan kullanıcı (mesajın göndereni olmalı)
      */
     @DeleteMapping("/{conversationId}/delete/{messageId}")
-    public void deleteMessage(@PathVariable Long conversationId, @PathVariable Long messageId) {
-        ChatMessage message = chatMessageRepository.findById(messageId)
-            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Mesaj bulunamadı."));
-        if (!message.getConversation().getId().equals(conversationId)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Mesaj bu sohbete ait değil.");
-        }
-        chatMessageRepository.delete(message);
+    public void deleteMessage(@PathVariable Long conversationId, @PathVariable Long messageId,
+                              @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        MessageOwnership owner = requireOwnedMessage(conversationId, messageId, currentUser,
+            "Yalnızca kendi mesajlarınızı silebilirsiniz.");
+        chatMessageRepository.deleteByIdAndTimestamp(messageId, owner.getTimestamp());
+        invalidateInbox(conversationId);
         // WebSocket ile conversation kanalına silinen mesajı publish et
         messagingTemplate.convertAndSend("/topic/conversation/" + conversationId, Map.of(
             "type", "delete",
             "messageId", messageId
         ));
     }
+
+    /**
+     * Birden fazla mesajı tek istekte sil.
+     * <p>
+     * <b>Nasıl çalışır?</b> Sahiplik tek bir sorguyla kontrol edilir, mesajlar tek bir DELETE ile silinir ve
+     * sohbet kanalına tek bir {"type":"delete","messageIds":[...]} olayı gönderilir.
+     * Mesajlardan biri bile bulunamazsa veya kullanıcıya ait değilse hiçbiri silinmez.
+     * </p>
+     * @param conversationId Conversation id
+     * @param body Silinecek mesaj id'leri (messageIds)
+     * @param currentUser Token ile doğrulanan kullanıcı (tüm mesajların göndereni olmalı)
+     * @return Silinen mesaj id'leri
+     */
+    @PostMapping("/{conversationId}/delete-batch")
+    public Map<String, Object> deleteMessages(@PathVariable Long conversationId, @RequestBody Map<String, List<Long>> body,
+                                              @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        List<Long> requested = body.get("messageIds");
+        if (requested == null || requested.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "messageIds boş olamaz.");
+        }
+        Set<Long> messageIds = new LinkedHashSet<>(requested);
+        if (messageIds.size() > MAX_BATCH_DELETE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tek seferde en fazla " + MAX_BATCH_DELETE + " mesaj silinebilir.");
+        }
+        List<MessageOwnership> owners = chatMessageRepository.findOwnershipByIdIn(messageIds);
+        if (owners.size() != messageIds.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Mesaj bulunamadı.");
+        }
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (MessageOwnership owner : owners) {
+            if (!conversationId.equals(owner.getConversationId())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Mesaj bu sohbete ait değil.");
+            }
+            if (!owner.getSender().equalsIgnoreCase(currentUser)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Yalnızca kendi mesajlarınızı silebilirsiniz.");
+            }
+            if (from == null || owner.getTimestamp().isBefore(from)) from = owner.getTimestamp();
+            if (to == null || owner.getTimestamp().isAfter(to)) to = owner.getTimestamp();
+        }
+        chatMessageRepository.deleteByIdInAndTimestampBetween(messageIds, from, to);
+        invalidateInbox(conversationId);
+        List<Long> deleted = new ArrayList<>(messageIds);
+        // WebSocket ile conversation kanalına tek bir toplu silme olayı publish et
+        messagingTemplate.convertAndSend("/topic/conversation/" + conversationId, Map.of(
+            "type", "delete",
+            "messageIds", deleted
+        ));
+        return Map.of("messageIds", deleted);
+    }
+
+    /**
+     * Kullanıcının sohbeti okuduğunu kaydeder (okunmamış sayısı sıfırlanır).
+     * <p>
+     * <b>Nasıl çalışır?</b> Okunma bilgisi sohbet kanalına {"type":"read"} olayı olarak gönderilir;
+     * karşı taraf bunu okundu bilgisi (read receipt) olarak gösterebilir.
+     * </p>
+     * @param conversationId Conversation id
+     * @param body Opsiyonel: okunan en son mesajın id'si (messageId)
+     * @param currentUser Token ile doğrulanan kullanıcı (sohbetin katılımcısı olmalı)
+     * @return Güncel okunma durumu
+     */
+    @PostMapping("/{conversationId}/read")
+    public ReadState markRead(@PathVariable Long conversationId, @RequestBody(required = false) Map<String, Long> body,
+                              @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        requireParticipant(conversationId, currentUser);
+        return unreadCounterService.markRead(conversationId, currentUser, body != null ? body.get("messageId") : null);
+    }
+
+    /**
+     * Kullanıcının tüm sohbetlerindeki okunmamış mesaj sayılarını tek istekte döndürür.
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @return Toplam okunmamış sayısı (totalUnread) ve sohbet bazında okunma durumları (conversations)
+     */
+    @GetMapping("/unread")
+    public Map<String, Object> getUnreadSummary(@RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        Map<Long, ReadState> states = unreadCounterService.summary(currentUser);
+        long total = states.values().stream().mapToLong(ReadState::unreadCount).sum();
+        return Map.of(
+            "totalUnread", total,
+            "conversations", states.values()
+        );
+    }
+
+    /**
+     * Kullanıcının tüm sohbetlerini son mesajları ve okunmamış sayılarıyla birlikte döndürür.
+     * <p>
+     * <b>Nasıl çalışır?</b> Arkadaş listesi, her arkadaş için sohbet ve her sohbet için son mesaj istekleri yerine
+     * tek bir istek ve tek bir SQL sorgusu yeterlidir. Sonuç önbelleğe alınır; yeni mesaj, silme veya okuma olduğunda yenilenir.
+     * </p>
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @return Sohbetler (son mesajı en yeni olan önce)
+     */
+    @GetMapping("/inbox")
+    public List<InboxEntry> getInbox(@RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        return inboxService.getInbox(currentUser);
+    }
+
+    /**
+     * Mesajın verilen sohbete ve kullanıcıya ait olduğunu kontrol eder.
+     * <p>
+     * <b>Nasıl çalışır?</b> Mesaj entity'si yüklenmez; yalnızca conversation_id ve sender gibi sütunlar okunur.
+     * </p>
+     * @param conversationId Conversation id
+     * @param messageId Mesaj id'si
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @param forbiddenMessage Mesaj başka kullanıcıya aitse döndürülecek hata mesajı
+     * @return Mesajın sahiplik bilgisi
+     */
+    private MessageOwnership requireOwnedMessage(Long conversationId, Long messageId, String currentUser, String forbiddenMessage) {
+        MessageOwnership owner = chatMessageRepository.findOwnershipById(messageId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Mesaj bulunamadı."));
+        if (!conversationId.equals(owner.getConversationId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Mesaj bu sohbete ait değil.");
+        }
+        if (!owner.getSender().equalsIgnoreCase(currentUser)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, forbiddenMessage);
+        }
+        return owner;
+    }
+
+    /**
+     * Sohbetin var olduğunu ve kullanıcının katılımcısı olduğunu kontrol eder.
+     * @param conversationId Conversation id
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @return Sohbet katılımcıları
+     */
+    private Participants requireParticipant(Long conversationId, String currentUser) {
+        Participants participants = participantCache.resolve(conversationId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sohbet bulunamadı veya silinmiş."));
+        if (!participants.includes(currentUser)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bu sohbetin katılımcısı değilsiniz.");
+        }
+        return participants;
+    }
+
+    /**
+     * Sohbetin iki katılımcısının önbellekteki inbox'ını temizler (son mesaj değiştiğinde).
+     * @param conversationId Conversation id
+     */
+    private void invalidateInbox(Long conversationId) {
+        participantCache.resolve(conversationId).ifPresent(p -> inboxService.invalidate(p.user1(), p.user2()));
+    }
 }
@@ -0,0 +1,176 @@
+package com.example.chat.chat_service.controller;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.chat.chat_service.model.ChatMessage;
+import com.example.chat.chat_service.security.JwtAuthenticationFilter;
+import com.example.chat.chat_service.service.ConversationParticipantCache;
+import com.example.chat.chat_service.service.ConversationExportService;
+import com.example.chat.chat_service.service.ConversationExportService.Format;
+import com.example.chat.chat_service.service.ConversationParticipantCache.Participants;
+import com.example.chat.chat_service.service.ReactiveMessageHistory;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * ConversationStreamController, bir sohbetin mesaj geçmişini sayfalara bölmeden tek bir akış (stream) olarak döndürür
+ * veya dosya olarak dışa aktarır.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Metot Flux döndürdüğü için Spring MVC isteği asenkron başlatır: servlet thread'i hemen serbest kalır,
+ *       mesajlar ReactiveMessageHistory'den (R2DBC) geldikçe yanıta yazılır.</li>
+ *   <li>Accept: application/x-ndjson → her satırda bir mesaj JSON'u; Accept: text/event-stream → Server-Sent Events.</li>
+ *   <li>Uzun akışlar için spring.mvc.async.request-timeout yeterince büyük olmalıdır; süre dolarsa akış kesilir.</li>
+ *   <li>Sayfalı geçmiş için GET /api/conversation/{id}/messages (ConversationController) kullanılmaya devam edilebilir.</li>
+ *   <li>Dışa aktarma (export) StreamingResponseBody döndürür: gövde ayrı bir thread'de doğrudan yanıt akışına yazılır.</li>
+ * </ul>
+ */
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+@RestController
+@RequestMapping("/api/conversation")
+public class ConversationStreamController {
+    /**
+     * Sohbet katılımcılarının önbelleği (yetki kontrolü için).
+     */
+    @Autowired
+    private ConversationParticipantCache participantCache;
+
+    /**
+     * Mesaj geçmişini R2DBC ile okuyan servis.
+     */
+    @Autowired
+    private ReactiveMessageHistory reactiveMessageHistory;
+
+    /**
+     * Sohbeti NDJSON veya CSV olarak dışa aktaran servis.
+     */
+    @Autowired
+    private ConversationExportService conversationExportService;
+
+    /**
+     * Bir conversation'ın mesajlarını eskiden yeniye akış olarak getir.
+     * <p>
+     * <b>Nasıl çalışır?</b> Yalnızca sohbetin katılımcıları okuyabilir. to verilmezse istek anına kadar yazılmış mesajlar döner;
+     * from verilirse yalnızca ilgili aylık partition'lar okunur.
+     * Frontend: fetch(url, { headers: { Accept: "application/x-ndjson" } }) ve yanıt gövdesi satır satır okunur.
+     * </p>
+     * @param conversationId Conversation id
+     * @param from Opsiyonel başlangıç zamanı (ISO-8601)
+     * @param to Opsiyonel bitiş zamanı (ISO-8601)
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @return Mesaj akışı
+     */
+    @GetMapping(value = "/{conversationId}/messages/stream",
+                produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    public Flux<ChatMessage> streamMessages(@PathVariable Long conversationId,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                            @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        Participants participants = requireParticipant(conversationId, currentUser);
+        return reactiveMessageHistory.stream(participants, from, to != null ? to : LocalDateTime.now());
+    }
+
+    /**
+     * Bir conversation'ın mesajlarını tek bir dosya olarak indir.
+     * <p>
+     * <b>Nasıl çalışır?</b> İstemci Accept-Encoding ile gzip kabul ediyorsa yanıt Content-Encoding: gzip ile sıkıştırılarak gönderilir;
+     * tarayıcılar ve "curl --compressed" açarak kaydeder. Kabul etmiyorsa dosya sıkıştırılmadan gönderilir.
+     * Mesajlar veritabanından cursor ile okunup yazıldığı için sohbet ne kadar büyük olursa olsun sunucu belleği sabit kalır.
+     * Aynı anda çok fazla dışa aktarma çalışıyorsa 429 döner.
+     * </p>
+     * @param conversationId Conversation id
+     * @param format ndjson (varsayılan) veya csv
+     * @param from Opsiyonel başlangıç zamanı (ISO-8601)
+     * @param to Opsiyonel bitiş zamanı (ISO-8601)
+     * @param acceptEncoding İstemcinin kabul ettiği sıkıştırmalar
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @param request İstek (dışa aktarma hakkının geri verilmesi için)
+     * @return Dosya içeriği
+     */
+    @GetMapping("/{conversationId}/export")
+    public ResponseEntity<StreamingResponseBody> exportMessages(@PathVariable Long conversationId,
+                                                                @RequestParam(defaultValue = "ndjson") String format,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                                @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser,
+                                                                WebRequest request) {
+        Participants participants = requireParticipant(conversationId, currentUser);
+        Format exportFormat = Format.parse(format);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = conversationExportService.open(participants, from, to != null ? to : LocalDateTime.now(),
+            exportFormat, gzip, request);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.contentType() + ";charset=UTF-8"))
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("conversation-" + conversationId + "." + exportFormat.extension()).build().toString());
+        if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(body);
+    }
+
+    /**
+     * Accept-Encoding başlığı gzip'i sıfırdan büyük bir q değeriyle kabul ediyor mu? gzip açıkça yazılmamışsa * geçerlidir.
+     * Örnek: "gzip, deflate, br" → true, "gzip;q=0, *" → false, başlık yoksa → false.
+     * @param acceptEncoding Accept-Encoding başlığı
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase("gzip")) gzip = q;
+            else if (name.equals("*")) any = q;
+        }
+        Double q = gzip != null ? gzip : any;
+        return q != null && q > 0;
+    }
+
+    /**
+     * Sohbetin var olduğunu ve kullanıcının katılımcısı olduğunu kontrol eder.
+     * @param conversationId Conversation id
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @return Sohbet katılımcıları
+     */
+    private Participants requireParticipant(Long conversationId, String currentUser) {
+        Participants participants = participantCache.resolve(conversationId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sohbet bulunamadı veya silinmiş."));
+        if (!participants.includes(currentUser)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bu sohbetin katılımcısı değilsiniz.");
+        }
+        return participants;
+    }
+}
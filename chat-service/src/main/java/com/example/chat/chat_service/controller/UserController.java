@@ -2,24 +2,34 @@ package com.example.chat.chat_service.controller;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
-import com.example.chat.chat_service.model.Conversation;
 import com.example.chat.chat_service.model.FriendRequest;
 import com.example.chat.chat_service.repository.ConversationRepository;
 import com.example.chat.chat_service.repository.FriendRequestRepository;
+import com.example.chat.chat_service.repository.FriendRequestRepository.FriendRequestView;
+import com.example.chat.chat_service.security.JwtAuthenticationFilter;
+import com.example.chat.chat_service.service.ConversationParticipantCache;
+import com.example.chat.chat_service.service.ConversationPurgeService;
+import com.example.chat.chat_service.service.InboxService;
+import com.example.chat.chat_service.service.PresenceRegistry;
 
 /**
  * UserController, kullanıcıların arkadaşlık ve sohbet işlemlerini yöneten REST API controller'ıdır.
@@ -30,6 +40,7 @@ import com.example.chat.chat_service.repository.FriendRequestRepository;
  *   <li>@RequestMapping: Tüm endpoint'lerin "/api/user" ile başladığını belirtir.</li>
  *   <li>@CrossOrigin: Frontend'in (React) bu API'ye erişebilmesi için CORS ayarı yapılır.</li>
  *   <li>Autowired repository ve servisler, veritabanı işlemleri ve WebSocket bildirimleri için kullanılır.</li>
+ *   <li>İşlemi yapan kullanıcı, JwtAuthenticationFilter'ın doğruladığı token'dan (@RequestAttribute) alınır; istek parametrelerine güvenilmez.</li>
  *   <li>Her endpoint ve yardımcı fonksiyon, ilgili işlemin ne yaptığını açıklayan yorumlarla detaylandırılmıştır.</li>
  * </ul>
  */
@@ -37,6 +48,11 @@ import com.example.chat.chat_service.repository.FriendRequestRepository;
 @RequestMapping("/api/user")
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
 public class UserController {
+    /**
+     * Sayfalı arkadaş listesinde bir sayfada döndürülebilecek en fazla kullanıcı sayısı.
+     */
+    private static final int MAX_FRIENDS_PAGE_SIZE = 500;
+
     /**
      * Arkadaşlık istekleriyle ilgili veritabanı işlemleri için repository.
      */
@@ -53,10 +69,25 @@ public class UserController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     /**
-     * Mesaj işlemleri için repository.
+     * Sohbet katılımcılarının önbelleği (arkadaşlık silinince temizlenir).
+     */
+    @Autowired
+    private ConversationParticipantCache participantCache;
+    /**
+     * Silinen sohbetlerin mesajlarını arka planda silen servis.
+     */
+    @Autowired
+    private ConversationPurgeService conversationPurgeService;
+    /**
+     * Kullanıcıların sohbet listesi (inbox) önbelleği; sohbet eklenip silindiğinde temizlenir.
+     */
+    @Autowired
+    private InboxService inboxService;
+    /**
+     * Çevrimiçi kullanıcıların (WebSocket oturumları) bellekteki kaydı.
      */
     @Autowired
-    private com.example.chat.chat_service.repository.ChatMessageRepository chatMessageRepository;
+    private PresenceRegistry presenceRegistry;
 
     /**
      * Diğer servislerle REST API üzerinden iletişim kurmak için kullanılır.
@@ -64,9 +95,11 @@ public class UserController {
     private final RestTemplate restTemplate = new RestTemplate();
     /**
      * Kimlik doğrulama servisi URL'i.
-     * Docker Compose ortamında servis adı kullanılmalıdır.
+     * Docker Compose ortamında servis adı kullanılmalıdır (varsayılan); yük testi gibi ortamlarda
+     * auth-service.url ile değiştirilebilir.
      */
-    private final String AUTH_SERVICE_URL = "http://auth-service:8080/api/auth";
+    @Value("${auth-service.url:http://auth-service:8080/api/auth}")
+    private String AUTH_SERVICE_URL;
 
     /**
      * Kullanıcının var olup olmadığını kontrol eder (auth-service'e REST çağrısı yapar).
@@ -83,23 +116,35 @@ public class UserController {
         }
     }
 
+    /**
+     * İstekte belirtilen kullanıcı adının, token ile doğrulanan kullanıcıyla aynı olduğunu kontrol eder.
+     * @param claimedUsername İstek parametresinde gelen kullanıcı adı
+     * @param currentUser Token'dan gelen kullanıcı adı
+     */
+    private void requireCurrentUser(String claimedUsername, String currentUser) {
+        if (claimedUsername != null && !claimedUsername.equalsIgnoreCase(currentUser)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bu işlem yalnızca kendi hesabınız için yapılabilir.");
+        }
+    }
+
     /**
      * Bir kullanıcıdan diğerine arkadaşlık isteği gönderir.
      * Aynı kullanıcıya tekrar istek gönderilmesini ve bekleyen isteği engeller.
      * WebSocket ile bildirim gönderir.
      *
-     * @param fromUsername İsteği gönderen kullanıcı
+     * @param fromUsername İsteği gönderen kullanıcı (opsiyonel, verilirse token sahibiyle aynı olmalı)
      * @param toUsername İsteği alan kullanıcı
+     * @param currentUser Token ile doğrulanan kullanıcı
      * @return Sonuç mesajı
      */
     @PostMapping("/friend-request/{toUsername}")
-    public String sendFriendRequest(@RequestParam String fromUsername, @PathVariable String toUsername) {
+    public String sendFriendRequest(@RequestParam(required = false) String fromUsername, @PathVariable String toUsername,
+                                    @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        requireCurrentUser(fromUsername, currentUser);
+        fromUsername = currentUser;
         if (!userExists(fromUsername) || !userExists(toUsername)) return "Kullanıcı bulunamadı";
         // Aynı isteği tekrar gönderme
-        if (friendRequestRepository.findAll().stream().anyMatch(r ->
-                ((r.getFromUsername().equalsIgnoreCase(fromUsername) && r.getToUsername().equalsIgnoreCase(toUsername)) ||
-                 (r.getFromUsername().equalsIgnoreCase(toUsername) && r.getToUsername().equalsIgnoreCase(fromUsername))) &&
-                r.getStatus() == FriendRequest.Status.PENDING)) {
+        if (friendRequestRepository.existsPendingBetween(fromUsername, toUsername)) {
             return "Zaten bekleyen bir istek var";
         }
         FriendRequest req = new FriendRequest();
@@ -117,24 +162,22 @@ public class UserController {
      * WebSocket ile her iki kullanıcıya bildirim gönderir.
      *
      * @param requestId Kabul edilecek istek ID'si
+     * @param currentUser Token ile doğrulanan kullanıcı (isteği alan kişi olmalı)
      * @return Sonuç mesajı
      */
     @PostMapping("/friend-request/{requestId}/accept")
-    public String acceptFriendRequest(@PathVariable Long requestId) {
+    public String acceptFriendRequest(@PathVariable Long requestId,
+                                      @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
         Optional<FriendRequest> reqOpt = friendRequestRepository.findById(requestId);
         if (reqOpt.isEmpty()) return "İstek bulunamadı";
         FriendRequest req = reqOpt.get();
+        requireCurrentUser(req.getToUsername(), currentUser);
         req.setStatus(FriendRequest.Status.ACCEPTED);
         friendRequestRepository.save(req);
-        // Otomatik conversation oluştur
-        if (conversationRepository.findAll().stream().noneMatch(c ->
-                (c.getUser1().equalsIgnoreCase(req.getFromUsername()) && c.getUser2().equalsIgnoreCase(req.getToUsername())) ||
-                (c.getUser1().equalsIgnoreCase(req.getToUsername()) && c.getUser2().equalsIgnoreCase(req.getFromUsername())))) {
-            Conversation conv = new Conversation();
-            conv.setUser1(req.getFromUsername());
-            conv.setUser2(req.getToUsername());
-            conversationRepository.save(conv);
-        }
+        // Otomatik conversation oluştur (zaten varsa dokunulmaz)
+        conversationRepository.findOrCreate(req.getFromUsername(), req.getToUsername());
+        inboxService.invalidate(req.getFromUsername(), req.getToUsername());
+        presenceRegistry.onFriendshipChanged(req.getFromUsername(), req.getToUsername(), true);
         // WebSocket ile bildirim gönder
         messagingTemplate.convertAndSend("/topic/friend-request-status/" + req.getFromUsername(), req);
         messagingTemplate.convertAndSend("/topic/friend-request-status/" + req.getToUsername(), req);
@@ -145,13 +188,18 @@ public class UserController {
      * Bir arkadaşlık isteğini reddeder ve WebSocket ile bildirim gönderir.
      *
      * @param requestId Reddedilecek istek ID'si
+     * @param currentUser Token ile doğrulanan kullanıcı (isteğin taraflarından biri olmalı)
      * @return Sonuç mesajı
      */
     @PostMapping("/friend-request/{requestId}/reject")
-    public String rejectFriendRequest(@PathVariable Long requestId) {
+    public String rejectFriendRequest(@PathVariable Long requestId,
+                                      @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
         Optional<FriendRequest> reqOpt = friendRequestRepository.findById(requestId);
         if (reqOpt.isEmpty()) return "İstek bulunamadı";
         FriendRequest req = reqOpt.get();
+        if (!req.getFromUsername().equalsIgnoreCase(currentUser)) {
+            requireCurrentUser(req.getToUsername(), currentUser);
+        }
         req.setStatus(FriendRequest.Status.REJECTED);
         friendRequestRepository.save(req);
         // WebSocket ile bildirim gönder
@@ -164,57 +212,94 @@ public class UserController {
      * Kullanıcının arkadaş listesini (accepted friend requests) döndürür.
      *
      * @param username Arkadaşları listelenecek kullanıcı
+     * @param currentUser Token ile doğrulanan kullanıcı
      * @return Kullanıcının arkadaşlarının isimleri
      */
     @GetMapping("/{username}/friends")
-    public List<String> getFriends(@PathVariable String username) {
-        return friendRequestRepository.findAll().stream()
-                .filter(r -> r.getStatus() == FriendRequest.Status.ACCEPTED &&
-                        (r.getFromUsername().equalsIgnoreCase(username) || r.getToUsername().equalsIgnoreCase(username)))
-                .map(r -> r.getFromUsername().equalsIgnoreCase(username) ? r.getToUsername() : r.getFromUsername())
-                .distinct()
-                .collect(Collectors.toList());
+    public List<String> getFriends(@PathVariable String username,
+                                   @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        requireCurrentUser(username, currentUser);
+        return friendRequestRepository.findFriendUsernames(username);
+    }
+
+    /**
+     * Kullanıcının arkadaş listesini sayfa sayfa döndürür (çok sayıda arkadaşı olan kullanıcılar için).
+     *
+     * @param username Arkadaşları listelenecek kullanıcı
+     * @param page Sayfa numarası
+     * @param size Sayfa başına kullanıcı sayısı (en fazla 500)
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @return Arkadaşların isimleri (alfabetik; hasNext ile sonraki sayfa kontrol edilir)
+     */
+    @GetMapping("/{username}/friends/page")
+    public Slice<String> getFriendsPage(@PathVariable String username,
+                                        @RequestParam(value = "page", defaultValue = "0") int page,
+                                        @RequestParam(value = "size", defaultValue = "100") int size,
+                                        @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        requireCurrentUser(username, currentUser);
+        return friendRequestRepository.findFriendUsernames(username,
+            PageRequest.of(page, Math.min(Math.max(size, 1), MAX_FRIENDS_PAGE_SIZE)));
+    }
+
+    /**
+     * Kullanıcının şu anda WebSocket ile bağlı (çevrimiçi) arkadaşlarını döndürür.
+     * Sonraki değişiklikler "/topic/presence/{username}" kanalından anlık gönderilir; bu endpoint'i periyodik çağırmaya gerek yoktur.
+     *
+     * @param username Kullanıcı adı
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @return Çevrimiçi arkadaşların isimleri
+     */
+    @GetMapping("/{username}/online-friends")
+    public List<String> getOnlineFriends(@PathVariable String username,
+                                         @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        requireCurrentUser(username, currentUser);
+        return presenceRegistry.onlineFriends(username);
     }
 
     /**
      * Kullanıcının bekleyen (pending) arkadaşlık isteklerini döndürür.
      *
      * @param username İstekleri listelenecek kullanıcı
-     * @return Kullanıcıya gelen bekleyen FriendRequest nesneleri
+     * @param currentUser Token ile doğrulanan kullanıcı
+     * @return Kullanıcıya gelen bekleyen istekler (en yeni önce)
      */
     @GetMapping("/{username}/friend-requests")
-    public List<FriendRequest> getPendingRequests(@PathVariable String username) {
-        return friendRequestRepository.findAll().stream()
-                .filter(r -> r.getToUsername().equalsIgnoreCase(username) && r.getStatus() == FriendRequest.Status.PENDING)
-                .collect(Collectors.toList());
+    public List<FriendRequestView> getPendingRequests(@PathVariable String username,
+                                                      @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        requireCurrentUser(username, currentUser);
+        return friendRequestRepository.findPendingTo(username);
     }
 
     /**
      * İki kullanıcı arasındaki arkadaşlığı ve ilgili sohbeti (conversation) siler.
      * Tüm mesajlar da silinir.
+     * <p>
+     * <b>Nasıl çalışır?</b> Sohbet hemen işaretlenir ve istek beklemeden döner; mesajlar ConversationPurgeService
+     * tarafından parça parça silinir ve bitince "/topic/conversation/{id}" kanalına conversation-deleted olayı gönderilir.
+     * </p>
      *
      * @param username1 Birinci kullanıcı
      * @param username2 İkinci kullanıcı
+     * @param currentUser Token ile doğrulanan kullanıcı (iki kullanıcıdan biri olmalı)
      * @return Sonuç mesajı
      */
     @PostMapping("/remove-friend")
-    public String removeFriend(@RequestParam String username1, @RequestParam String username2) {
-        // İki kullanıcı arasındaki accepted friend request'i bul
-        Optional<FriendRequest> reqOpt = friendRequestRepository.findAll().stream()
-            .filter(r -> r.getStatus() == FriendRequest.Status.ACCEPTED &&
-                ((r.getFromUsername().equalsIgnoreCase(username1) && r.getToUsername().equalsIgnoreCase(username2)) ||
-                 (r.getFromUsername().equalsIgnoreCase(username2) && r.getToUsername().equalsIgnoreCase(username1))))
-            .findFirst();
-        if (reqOpt.isEmpty()) return "Arkadaşlık kaydı bulunamadı";
-        friendRequestRepository.delete(reqOpt.get());
-        // İlgili conversation'ı ve mesajlarını sil
-        conversationRepository.findAll().stream()
-            .filter(c -> (c.getUser1().equalsIgnoreCase(username1) && c.getUser2().equalsIgnoreCase(username2)) ||
-                         (c.getUser1().equalsIgnoreCase(username2) && c.getUser2().equalsIgnoreCase(username1)))
-            .findFirst().ifPresent(conv -> {
-                chatMessageRepository.deleteAll(chatMessageRepository.findByConversationId(conv.getId()));
-                conversationRepository.delete(conv);
-            });
+    public String removeFriend(@RequestParam String username1, @RequestParam String username2,
+                               @RequestAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER) String currentUser) {
+        if (!username2.equalsIgnoreCase(currentUser)) {
+            requireCurrentUser(username1, currentUser);
+        }
+        // İki kullanıcı arasındaki accepted friend request'i tek sorguyla sil
+        if (friendRequestRepository.deleteAcceptedBetween(username1, username2) == 0) return "Arkadaşlık kaydı bulunamadı";
+        presenceRegistry.onFriendshipChanged(username1, username2, false);
+        // İlgili conversation'ı işaretle; mesajları ve sohbetin kendisi arka planda silinir
+        conversationRepository.findBetween(username1, username2).ifPresent(conv -> {
+            // Mesaj gönderme yolundaki katılımcı önbelleği artık bu sohbeti kullanmamalı
+            participantCache.evict(conv.getId());
+            inboxService.invalidate(conv.getUser1(), conv.getUser2());
+            conversationRepository.markForPurge(conv.getId());
+            conversationPurgeService.purge(conv.getId());
+        });
         return "Arkadaş silindi";
     }
 }
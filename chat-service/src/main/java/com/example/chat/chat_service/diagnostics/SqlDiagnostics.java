@@ -0,0 +1,290 @@
+package com.example.chat.chat_service.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SqlDiagnostics, tanılama modunda (chat.diagnostics.sql.enabled=true) çalışan SQL ifadelerini endpoint bazında toplar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>DataSource bir proxy ile sarılır (SqlDiagnosticsConfig); her ifade çalıştıktan sonra onStatement çağrılır.</li>
+ *   <li>Bir HTTP isteği boyunca çalışan ifadeler thread'e bağlı (ThreadLocal) bir kayıtta toplanır;
+ *       istek bitince endpoint'in ("GET /api/conversation/{conversationId}/messages") istatistiğine eklenir.</li>
+ *   <li>N+1: Aynı ifade tek istekte chat.diagnostics.sql.n-plus-one-threshold kez veya daha fazla çalıştıysa işaretlenir
+ *       (ör: bir listenin her elemanı için ayrı SELECT).</li>
+ *   <li>Tam tablo tarama şüphesi: WHERE koşulu olmayan, bir tablodan okuyan SELECT (ör: findAll()) işaretlenir.</li>
+ *   <li>chat.diagnostics.sql.slow-query-ms'i aşan ifadeler WARN olarak loglanır.</li>
+ *   <li>Sonuçlar /actuator/sqldiagnostics adresinden okunur, DELETE ile sıfırlanır.</li>
+ * </ul>
+ * Prepared statement'larda parametreler "?" olarak kaldığı için aynı sorgu tek bir anahtar altında toplanır.
+ */
+public class SqlDiagnostics {
+    private static final Logger log = LoggerFactory.getLogger(SqlDiagnostics.class);
+
+    /**
+     * HTTP isteği dışında (ör: RabbitMQ consumer, zamanlanmış görevler, STOMP mesajları) çalışan ifadelerin anahtarı.
+     */
+    static final String NO_REQUEST = "(istek dışı)";
+
+    /**
+     * Takip edilecek en fazla farklı ifade ve endpoint sayısı (IN listesi gibi değişken SQL'ler belleği doldurmasın).
+     */
+    private static final int MAX_KEYS = 2000;
+
+    /**
+     * WHERE içermeyen ve FROM'dan sonra bir tablo adı (fonksiyon değil) gelen SELECT.
+     */
+    private static final Pattern TABLE_SOURCE = Pattern.compile("\\bfrom\\s+[a-z_][a-z0-9_.\"]*(\\s|$)");
+
+    /**
+     * Bir endpoint'in istatistikleri.
+     */
+    private static final class EndpointStats {
+        long requests;
+        long statements;
+        long nanos;
+        int maxStatements;
+
+        synchronized void add(int count, long elapsedNanos) {
+            requests++;
+            statements += count;
+            nanos += elapsedNanos;
+            maxStatements = Math.max(maxStatements, count);
+        }
+    }
+
+    /**
+     * Bir SQL ifadesinin istatistikleri.
+     */
+    private static final class StatementStats {
+        long count;
+        long nanos;
+        long maxNanos;
+        long slow;
+
+        synchronized void add(long elapsedNanos, boolean isSlow) {
+            count++;
+            nanos += elapsedNanos;
+            maxNanos = Math.max(maxNanos, elapsedNanos);
+            if (isSlow) slow++;
+        }
+    }
+
+    /**
+     * Bir (endpoint, ifade) çifti için bulgu: kaç istekte görüldü, tek istekte en fazla kaç kez çalıştı.
+     */
+    private static final class Finding {
+        long requests;
+        int maxRepeats;
+
+        synchronized void add(int repeats) {
+            requests++;
+            maxRepeats = Math.max(maxRepeats, repeats);
+        }
+    }
+
+    private record FindingKey(String endpoint, String sql) {
+    }
+
+    /**
+     * Süren bir HTTP isteğinde çalışan ifadeler.
+     */
+    private static final class RequestTrace {
+        final Map<String, Integer> counts = new HashMap<>();
+        int statements;
+        long nanos;
+    }
+
+    private final ThreadLocal<RequestTrace> current = new ThreadLocal<>();
+    private final ConcurrentHashMap<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<FindingKey, Finding> nPlusOne = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<FindingKey, Finding> fullScans = new ConcurrentHashMap<>();
+
+    private final long slowQueryNanos;
+    private final int nPlusOneThreshold;
+    private final int top;
+
+    /**
+     * @param slowQueryMs Yavaş sayılacak ifade süresi (milisaniye)
+     * @param nPlusOneThreshold Tek istekte aynı ifadenin N+1 sayılacağı tekrar sayısı
+     * @param top Raporda gösterilecek en fazla kayıt sayısı
+     */
+    public SqlDiagnostics(long slowQueryMs, int nPlusOneThreshold, int top) {
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMs);
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.top = top;
+    }
+
+    /**
+     * HTTP isteği başlarken çağrılır (SqlDiagnosticsFilter).
+     */
+    public void beginRequest() {
+        current.set(new RequestTrace());
+    }
+
+    /**
+     * HTTP isteği bittiğinde çağrılır; isteğin ifadeleri endpoint istatistiğine eklenir.
+     * @param endpoint "METOT /yol/{desen}" biçiminde endpoint adı
+     */
+    public void endRequest(String endpoint) {
+        RequestTrace trace = current.get();
+        current.remove();
+        if (trace == null || trace.statements == 0) return;
+        EndpointStats stats = bounded(endpoints, endpoint, EndpointStats::new);
+        if (stats != null) stats.add(trace.statements, trace.nanos);
+        for (Map.Entry<String, Integer> e : trace.counts.entrySet()) {
+            String sql = e.getKey();
+            int repeats = e.getValue();
+            if (repeats >= nPlusOneThreshold) {
+                Finding finding = bounded(nPlusOne, new FindingKey(endpoint, sql), Finding::new);
+                if (finding != null) finding.add(repeats);
+            }
+            if (isFullScan(sql)) {
+                Finding finding = bounded(fullScans, new FindingKey(endpoint, sql), Finding::new);
+                if (finding != null) finding.add(repeats);
+            }
+        }
+    }
+
+    /**
+     * Bir SQL ifadesi çalıştıktan sonra çağrılır (DataSource proxy'si).
+     * @param sql Parametreleri "?" olan ifade
+     * @param elapsedNanos Süre
+     */
+    public void onStatement(String sql, long elapsedNanos) {
+        boolean slow = elapsedNanos >= slowQueryNanos;
+        StatementStats stats = bounded(statements, sql, StatementStats::new);
+        if (stats != null) stats.add(elapsedNanos, slow);
+        RequestTrace trace = current.get();
+        if (slow) {
+            log.warn("Yavaş SQL ({} ms, {}): {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                trace != null ? "HTTP isteği" : NO_REQUEST, sql);
+        }
+        if (trace == null) {
+            EndpointStats background = bounded(endpoints, NO_REQUEST, EndpointStats::new);
+            if (background != null) background.add(1, elapsedNanos);
+            if (isFullScan(sql)) {
+                Finding finding = bounded(fullScans, new FindingKey(NO_REQUEST, sql), Finding::new);
+                if (finding != null) finding.add(1);
+            }
+            return;
+        }
+        trace.counts.merge(sql, 1, Integer::sum);
+        trace.statements++;
+        trace.nanos += elapsedNanos;
+    }
+
+    /**
+     * En çok SQL süresi harcayan endpoint'ler, ifadeler ve bulgular.
+     */
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("slowQueryMs", TimeUnit.NANOSECONDS.toMillis(slowQueryNanos));
+        report.put("nPlusOneThreshold", nPlusOneThreshold);
+
+        List<Map<String, Object>> endpointRows = new ArrayList<>();
+        endpoints.forEach((name, s) -> {
+            synchronized (s) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("endpoint", name);
+                row.put("requests", s.requests);
+                row.put("statements", s.statements);
+                row.put("statementsPerRequest", round((double) s.statements / s.requests));
+                row.put("maxStatementsPerRequest", s.maxStatements);
+                row.put("totalMs", millis(s.nanos));
+                row.put("sqlMsPerRequest", millis(s.nanos / s.requests));
+                endpointRows.add(row);
+            }
+        });
+        report.put("endpoints", top(endpointRows, "totalMs"));
+
+        List<Map<String, Object>> statementRows = new ArrayList<>();
+        statements.forEach((sql, s) -> {
+            synchronized (s) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("sql", sql);
+                row.put("count", s.count);
+                row.put("totalMs", millis(s.nanos));
+                row.put("meanMs", millis(s.nanos / s.count));
+                row.put("maxMs", millis(s.maxNanos));
+                row.put("slow", s.slow);
+                statementRows.add(row);
+            }
+        });
+        report.put("statements", top(statementRows, "totalMs"));
+        report.put("nPlusOne", findings(nPlusOne, "maxRepeatsPerRequest"));
+        report.put("fullTableScans", findings(fullScans, "maxRepeatsPerRequest"));
+        return report;
+    }
+
+    /**
+     * Toplanan tüm istatistikleri siler.
+     */
+    public void reset() {
+        endpoints.clear();
+        statements.clear();
+        nPlusOne.clear();
+        fullScans.clear();
+    }
+
+    /**
+     * WHERE koşulu olmadan bir tablodan okuyan SELECT mi?
+     */
+    static boolean isFullScan(String sql) {
+        String s = sql.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+        if (!s.startsWith("select")) return false;
+        return !s.contains(" where ") && TABLE_SOURCE.matcher(s).find();
+    }
+
+    private List<Map<String, Object>> findings(Map<FindingKey, Finding> source, String repeatsKey) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        source.forEach((key, f) -> {
+            synchronized (f) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("endpoint", key.endpoint());
+                row.put("sql", key.sql());
+                row.put("requests", f.requests);
+                row.put(repeatsKey, f.maxRepeats);
+                rows.add(row);
+            }
+        });
+        return top(rows, "requests");
+    }
+
+    private List<Map<String, Object>> top(List<Map<String, Object>> rows, String key) {
+        rows.sort(Comparator.comparing((Map<String, Object> row) -> ((Number) row.get(key)).doubleValue()).reversed());
+        return rows.size() > top ? new ArrayList<>(rows.subList(0, top)) : rows;
+    }
+
+    /**
+     * Anahtar sayısı sınırdaysa yeni anahtar eklenmez (null döner).
+     */
+    private static <K, V> V bounded(ConcurrentHashMap<K, V> map, K key, Supplier<V> factory) {
+        V value = map.get(key);
+        if (value != null) return value;
+        if (map.size() >= MAX_KEYS) return null;
+        return map.computeIfAbsent(key, k -> factory.get());
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1_000_000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.chat.chat_service.diagnostics;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * SqlDiagnosticsEndpoint, SqlDiagnostics raporunu Actuator üzerinden sunar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>@Endpoint(id = "sqldiagnostics"): GET /actuator/sqldiagnostics raporu döndürür (@ReadOperation).</li>
+ *   <li>DELETE /actuator/sqldiagnostics istatistikleri sıfırlar (@DeleteOperation); ör: bir yük testinden önce.</li>
+ *   <li>Endpoint'in yayınlanması için management.endpoints.web.exposure.include listesinde olmalıdır.</li>
+ * </ul>
+ */
+@Endpoint(id = "sqldiagnostics")
+public class SqlDiagnosticsEndpoint {
+    private final SqlDiagnostics sqlDiagnostics;
+
+    public SqlDiagnosticsEndpoint(SqlDiagnostics sqlDiagnostics) {
+        this.sqlDiagnostics = sqlDiagnostics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> report() {
+        return sqlDiagnostics.report();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        sqlDiagnostics.reset();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.chat.chat_service.diagnostics;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * SqlDiagnosticsFilter, her HTTP isteğinin başını ve sonunu SqlDiagnostics'e bildirir.
+ * <p>
+ * <b>Nasıl çalışır?</b> İstek bittikten sonra Spring MVC'nin eşleştirdiği yol deseni
+ * (ör: /api/conversation/{conversationId}/messages) okunur; böylece farklı id'ler aynı endpoint altında toplanır.
+ * Eşleşme yoksa (ör: 404) istek yolu kullanılır.
+ * </p>
+ */
+public class SqlDiagnosticsFilter extends OncePerRequestFilter {
+    private final SqlDiagnostics sqlDiagnostics;
+
+    public SqlDiagnosticsFilter(SqlDiagnostics sqlDiagnostics) {
+        this.sqlDiagnostics = sqlDiagnostics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        sqlDiagnostics.beginRequest();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String path = pattern != null ? pattern.toString() : request.getRequestURI();
+            sqlDiagnostics.endRequest(request.getMethod() + " " + path);
+        }
+    }
+}
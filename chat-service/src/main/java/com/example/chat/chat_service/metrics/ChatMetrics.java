@@ -0,0 +1,136 @@
+package com.example.chat.chat_service.metrics;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.chat.chat_service.service.MessageIngestPipeline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * ChatMetrics, mesaj hattının (gönder → kaydet → yayınla) aşamalarını ölçen metrik ve trace yardımcısıdır.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Her aşama bir Micrometer Observation'dır: aynı anda hem bir Timer (süre, sayı, hata) hem de bir trace span'i üretir.</li>
+ *   <li>Span'ler o anki trace'in altına eklenir; RabbitMQ mesaj başlıkları (traceparent) ile consumer tarafına taşınır,
+ *       böylece async modda kaydetme de gönderen HTTP isteğinin trace'inde görünür.</li>
+ *   <li>Metrikler /actuator/prometheus adresinden okunur (ör: chat_ingest_seconds_count, chat_persist_seconds_bucket).</li>
+ *   <li>HTTP istekleri (http.server.requests), repository metotları (spring.data.repository.invocations) ve
+ *       bağlantı havuzu (hikaricp.*) Spring Boot tarafından ayrıca ölçülür.</li>
+ * </ul>
+ */
+@Component
+public class ChatMetrics {
+    /** Mesajın doğrulanıp kabul edilmesi (ingest) boyunca geçen süre. */
+    public static final String INGEST = "chat.ingest";
+    /** Sohbet katılımcısı ve arkadaşlık kontrolü. */
+    public static final String FRIENDSHIP_CHECK = "chat.friendship.check";
+    /** Mesajın RabbitMQ'ya gönderilmesi (async mod). */
+    public static final String RABBIT_PUBLISH = "chat.rabbit.publish";
+    /** Mesajın veritabanına yazılması (sync: tek mesaj, async: consumer, write-behind: batch). */
+    public static final String PERSIST = "chat.persist";
+    /** Mesajın WebSocket kanallarına gönderilmesi (fan-out). */
+    public static final String BROADCAST = "chat.broadcast";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    /**
+     * Bir aşama için başlatılmamış Observation oluşturur; çağıran observe(...) ile çalıştırır.
+     * @param name Aşama adı (bu sınıftaki sabitler)
+     * @param mode Mesajın kaydedilme şekli (metrik etiketi)
+     * @return Observation
+     */
+    public Observation stage(String name, MessageIngestPipeline.Mode mode) {
+        return Observation.createNotStarted(name, observationRegistry)
+            .lowCardinalityKeyValue("mode", tag(mode));
+    }
+
+    /**
+     * Mesajın kuyruğa girdiği (ingest zamanı) andan consumer'a ulaştığı ana kadar geçen süreyi kaydeder.
+     * @param acceptedAt Mesajın sunucuda kabul edildiği zaman (ChatMessage.timestamp)
+     */
+    public void recordConsumeLag(LocalDateTime acceptedAt) {
+        if (acceptedAt == null) return;
+        Duration lag = Duration.between(acceptedAt, LocalDateTime.now());
+        Timer.builder("chat.rabbit.consume.lag")
+            .description("Mesajın RabbitMQ'ya gönderilmesinden consumer'a ulaşmasına kadar geçen süre")
+            .register(meterRegistry)
+            .record(lag.isNegative() ? Duration.ZERO : lag);
+    }
+
+    /**
+     * Tekrar gönderildiği için kaydedilmeyen ve yayınlanmayan mesajı sayar.
+     * @param mode Mesajın kaydedilme şekli
+     */
+    public void duplicate(MessageIngestPipeline.Mode mode) {
+        Counter.builder("chat.ingest.duplicates")
+            .description("clientMessageId tekrarı nedeniyle atlanan mesajlar")
+            .tag("mode", tag(mode))
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * write-behind yazıcısının tek transaction'da yazdığı mesaj sayısını kaydeder.
+     * @param size Batch boyutu
+     */
+    public void recordBatch(int size) {
+        DistributionSummary.builder("chat.write-behind.batch.size")
+            .description("Tek transaction'da yazılan mesaj sayısı")
+            .register(meterRegistry)
+            .record(size);
+    }
+
+    /**
+     * Kaydedilemediği için gecikme kuyruğuna gönderilen mesajı sayar.
+     * @param attempt Tekrar denemenin sırası
+     */
+    public void consumerRetry(int attempt) {
+        Counter.builder("chat.rabbit.retries")
+            .description("Kaydedilemediği için tekrar denenmek üzere gecikme kuyruğuna gönderilen mesajlar")
+            .tag("attempt", String.valueOf(attempt))
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * Deneme hakkı bittiği için ölü mesaj kuyruğuna gönderilen mesajı sayar.
+     */
+    public void deadLettered() {
+        Counter.builder("chat.rabbit.dead-lettered")
+            .description("Tekrar denemeleri tükendiği için ölü mesaj kuyruğuna gönderilen mesajlar")
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * Gönderim sınırına (SendRateLimiter) takılan mesajı sayar.
+     * @param scope Aşılan sınır: user veya channel
+     * @param transport Mesajın geldiği yol: http veya stomp
+     */
+    public void rateLimited(String scope, String transport) {
+        Counter.builder("chat.rate-limit.rejections")
+            .description("Gönderim sınırı aşıldığı için reddedilen mesajlar")
+            .tag("scope", scope)
+            .tag("transport", transport)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static String tag(MessageIngestPipeline.Mode mode) {
+        return mode.name().toLowerCase().replace('_', '-');
+    }
+}
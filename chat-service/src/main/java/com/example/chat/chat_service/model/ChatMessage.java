@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 import com.example.chat.chat_service.model.Conversation;
 
@@ -73,6 +74,13 @@ public class ChatMessage implements Serializable {
     @JoinColumn(name = "conversation_id")
     private Conversation conversation;
 
+    /**
+     * İstemcinin mesaja verdiği benzersiz kimlik (ör: UUID). Aynı kimlikle tekrar gönderilen mesaj (retry)
+     * ikinci kez kaydedilmez; MessageDeduplicator'a bakınız.
+     */
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
+
     /**
      * İki kullanıcıdan oluşan bir private kanal adı üretici yardımcı fonksiyon.
      * <p>
@@ -89,10 +97,23 @@ public class ChatMessage implements Serializable {
         return "private_" + users.get(0) + "_" + users.get(1);
     }
 
+    /**
+     * Kanal adının bir private kanal olup olmadığını döndürür.
+     * <p>
+     * <b>Nasıl çalışır?</b> Kanal sorguları adı trimleyip küçük harfe çevirerek eşleştirdiği için kontrol de aynı biçimde yapılır;
+     * böylece " PRIVATE_ali_ayse" gibi bir ad private kanal kontrolünü atlayamaz.
+     * </p>
+     * @param channel Kanal adı
+     * @return private_ ile başlıyorsa true
+     */
+    public static boolean isPrivateChannel(String channel) {
+        return channel != null && channel.trim().toLowerCase(Locale.ROOT).startsWith("private_");
+    }
+
     /**
      * Bir kullanıcının, bir private kanala erişim hakkı olup olmadığını kontrol eder.
      * <p>
-     * <b>Nasıl çalışır?</b> Kanal adı "private_kullanici1_kullanici2" formatında olmalı.
+     * <b>Nasıl çalışır?</b> Kanal adı "private_kullanici1_kullanici2" formatında olmalı (büyük/küçük harf ve baştaki/sondaki boşluklar önemsizdir).
      * Fonksiyon, kanal adını parçalara ayırır ve kullanıcının bu iki isimden biri olup olmadığını kontrol eder.
      * </p>
      * @param username Kullanıcı adı
@@ -100,8 +121,8 @@ public class ChatMessage implements Serializable {
      * @return Kullanıcı erişebiliyorsa true, aksi halde false
      */
     public static boolean canAccessPrivateChannel(String username, String channel) {
-        if (channel == null || !channel.startsWith("private_")) return false;
-        String[] parts = channel.substring(8).split("_");
+        if (!isPrivateChannel(channel)) return false;
+        String[] parts = channel.trim().substring(8).split("_");
         if (parts.length != 2) return false;
         return username.equalsIgnoreCase(parts[0]) || username.equalsIgnoreCase(parts[1]);
     }
@@ -155,4 +176,12 @@ public class ChatMessage implements Serializable {
      * Mesajın ait olduğu Conversation nesnesini ayarlar.
      */
     public void setConversation(Conversation conversation) { this.conversation = conversation; }
+    /**
+     * İstemcinin verdiği mesaj kimliğini döndürür.
+     */
+    public String getClientMessageId() { return clientMessageId; }
+    /**
+     * İstemcinin verdiği mesaj kimliğini ayarlar.
+     */
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
 }
@@ -1,12 +1,14 @@
 package com.example.chat.chat_service.model;
 
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 
 /**
@@ -19,6 +21,7 @@ import jakarta.persistence.Table;
  *   <li>id: Her sohbetin benzersiz kimliği (otomatik artan).</li>
  *   <li>user1, user2: Sohbete katılan iki kullanıcının adları.</li>
  *   <li>createdAt: Sohbetin oluşturulma zamanı.</li>
+ *   <li>pairKey: İki kullanıcı adının küçük harfe çevrilip sıralanmasıyla oluşan tekil anahtar; (ali, Veli) ve (veli, Ali) aynı anahtarı üretir.</li>
  *   <li>get/set metotları: Alanlara erişmek ve değer atamak için kullanılır.</li>
  * </ul>
  */
@@ -50,6 +53,51 @@ public class Conversation {
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    /**
+     * Kullanıcı çiftinin kanonik anahtarı (unique index'li).
+     * <p>
+     * <b>Nasıl çalışır?</b> Sohbet aramaları iki ayrı sorgu yerine bu sütun üzerinde tek bir index erişimiyle yapılır;
+     * unique index aynı çift için ikinci bir sohbet oluşturulmasını da veritabanı seviyesinde engeller.
+     * Sütun yalnızca INSERT'te yazılır (updatable = false); böylece entity güncellense bile
+     * ConversationRepository.markForPurge'ün yazdığı "#purge:&lt;id&gt;" işareti ezilmez.
+     * </p>
+     */
+    @Column(name = "pair_key", nullable = false, unique = true, updatable = false)
+    private String pairKey;
+
+    /**
+     * İki kullanıcı adı için kanonik sohbet anahtarını üretir.
+     * <p>
+     * <b>Nasıl çalışır?</b> Adlar küçük harfe çevrilir, sıralanır ve "|" ile birleştirilir (ör: "ali|veli").
+     * Kullanıcıların hangi sırayla verildiği ve harf büyüklüğü sonucu değiştirmez.
+     * </p>
+     * @param username1 Birinci kullanıcı adı
+     * @param username2 İkinci kullanıcı adı
+     * @return Sohbet anahtarı
+     */
+    public static String pairKeyOf(String username1, String username2) {
+        String a = username1.toLowerCase(Locale.ROOT);
+        String b = username2.toLowerCase(Locale.ROOT);
+        return a.compareTo(b) <= 0 ? a + "|" + b : b + "|" + a;
+    }
+
+    /**
+     * Kayıt ilk kez veritabanına yazılmadan önce pairKey alanını hesaplar.
+     */
+    @PrePersist
+    void updatePairKey() {
+        this.pairKey = pairKeyOf(user1, user2);
+    }
+
+    /**
+     * Kullanıcının bu sohbetin katılımcılarından biri olup olmadığını kontrol eder (büyük/küçük harf duyarsız).
+     * @param username Kullanıcı adı
+     * @return Katılımcıysa true
+     */
+    public boolean hasParticipant(String username) {
+        return user1.equalsIgnoreCase(username) || user2.equalsIgnoreCase(username);
+    }
+
     // Getter ve setter metotları
     /**
      * Sohbetin kimliğini döndürür.
@@ -91,4 +139,13 @@ public class Conversation {
      * @param createdAt Oluşturulma zamanı
      */
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    /**
+     * Sohbetin kanonik kullanıcı çifti anahtarını döndürür.
+     * Henüz kaydedilmemiş (ör: önbellekten üretilmiş) nesnelerde anahtar kullanıcı adlarından hesaplanır.
+     * @return pairKey
+     */
+    public String getPairKey() {
+        if (pairKey == null && user1 != null && user2 != null) return pairKeyOf(user1, user2);
+        return pairKey;
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.chat.chat_service.model;
 
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 
 import jakarta.persistence.Column;
@@ -12,6 +13,8 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 
 /**
@@ -22,6 +25,7 @@ import jakarta.persistence.Table;
  *   <li>@Entity ve @Table: Bu sınıfın bir veritabanı tablosu olduğunu ve tablo adının "users" olduğunu belirtir.</li>
  *   <li>Her alan, bir kullanıcının hangi bilgileri içerdiğini gösterir (id, kullanıcı adı, arkadaşlar).</li>
  *   <li>@ManyToMany: Kullanıcılar arasında çoklu arkadaşlık ilişkisini belirtir.</li>
+ *   <li>@PrePersist/@PreUpdate: Kayıt yazılmadan hemen önce çalışır; usernameKey alanını otomatik doldurur.</li>
  *   <li>get/set metotları, nesne alanlarına erişmek ve değer atamak için kullanılır.</li>
  * </ul>
  */
@@ -41,6 +45,16 @@ public class User {
     @Column(unique = true, nullable = false)
     private String username;
 
+    /**
+     * Kullanıcı adının küçük harfe çevrilmiş hali.
+     * <p>
+     * <b>Nasıl çalışır?</b> Büyük/küçük harf duyarsız aramalar bu sütun üzerinden yapılır;
+     * unique index sayesinde arama tek bir index erişimiyle tamamlanır.
+     * </p>
+     */
+    @Column(name = "username_key", unique = true, nullable = false)
+    private String usernameKey;
+
     /**
      * Kullanıcının arkadaşları (accepted ilişkiler).
      * <p>
@@ -56,11 +70,30 @@ public class User {
     )
     private Set<User> friends = new HashSet<>();
 
+    /**
+     * Kullanıcı adını arama anahtarına çevirir (küçük harf).
+     * @param username Kullanıcı adı
+     * @return Arama anahtarı
+     */
+    public static String normalize(String username) {
+        return username == null ? null : username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Kayıt veritabanına yazılmadan önce arama anahtarını günceller.
+     */
+    @PrePersist
+    @PreUpdate
+    void updateUsernameKey() {
+        this.usernameKey = normalize(username);
+    }
+
     // ...getters/setters...
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public String getUsername() { return username; }
     public void setUsername(String username) { this.username = username; }
+    public String getUsernameKey() { return usernameKey; }
     public Set<User> getFriends() { return friends; }
     public void setFriends(Set<User> friends) { this.friends = friends; }
 }
@@ -0,0 +1,51 @@
+package com.example.chat.chat_service.ratelimit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * RateLimitExceededException, gönderim sınırı aşıldığında fırlatılan 429 (Too Many Requests) hatasıdır.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>ResponseStatusException'dan türediği için REST isteklerinde Spring tarafından 429 yanıtına çevrilir.</li>
+ *   <li>getHeaders ile yanıta Retry-After başlığı (saniye) eklenir; istemci bu süre kadar bekleyip tekrar deneyebilir.</li>
+ * </ul>
+ */
+public class RateLimitExceededException extends ResponseStatusException {
+    private final SendRateLimiter.Scope scope;
+    private final long retryAfterMs;
+
+    /**
+     * @param scope Aşılan sınır (kullanıcı veya kanal)
+     * @param retryAfterMs Tekrar denemeden önce beklenmesi gereken süre (milisaniye)
+     */
+    public RateLimitExceededException(SendRateLimiter.Scope scope, long retryAfterMs) {
+        super(HttpStatus.TOO_MANY_REQUESTS, scope.message(retryAfterMs));
+        this.scope = scope;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public SendRateLimiter.Scope getScope() {
+        return scope;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    /**
+     * Retry-After başlığının değeri (en az 1 saniye).
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMs + 999) / 1000);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(getRetryAfterSeconds()));
+        return headers;
+    }
+}
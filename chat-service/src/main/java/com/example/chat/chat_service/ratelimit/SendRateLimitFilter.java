@@ -0,0 +1,66 @@
+package com.example.chat.chat_service.ratelimit;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.chat.chat_service.security.JwtAuthenticationFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * SendRateLimitFilter, REST ile mesaj gönderen istekleri (/api/chat/send, /api/conversation/{id}/send) kullanıcı başına sınırlar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>JwtAuthenticationFilter'dan sonra çalışır (@Order); kullanıcı adı onun eklediği request attribute'undan okunur.</li>
+ *   <li>Sınır aşıldıysa istek controller'a ulaşmadan 429 (Too Many Requests) ile sonlandırılır;
+ *       Retry-After başlığı kaç saniye sonra tekrar denenebileceğini söyler.</li>
+ *   <li>Diğer istekler (mesaj okuma, sohbet listesi vb.) sınırlanmaz.</li>
+ * </ul>
+ */
+@Component
+@Order(JwtAuthenticationFilter.ORDER + 1)
+public class SendRateLimitFilter extends OncePerRequestFilter {
+    /**
+     * Sınırlanan gönderim yolları.
+     */
+    private static final Pattern SEND_PATH = Pattern.compile("/api/(chat|conversation/[^/]+)/send");
+
+    @Autowired
+    private SendRateLimiter sendRateLimiter;
+
+    /**
+     * Yalnızca POST ile yapılan gönderim isteklerini filtreler.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equalsIgnoreCase(request.getMethod())) return true;
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !SEND_PATH.matcher(path).matches();
+    }
+
+    /**
+     * Kullanıcının kovasından bir token harcar; kova boşsa 429 döndürür.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            sendRateLimiter.acquireUser((String) request.getAttribute(JwtAuthenticationFilter.AUTHENTICATED_USER), "http");
+        } catch (RateLimitExceededException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(e.getStatusCode().value(), e.getReason());
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
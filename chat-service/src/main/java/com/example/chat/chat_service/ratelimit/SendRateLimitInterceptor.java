@@ -0,0 +1,54 @@
+package com.example.chat.chat_service.ratelimit;
+
+import java.security.Principal;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * SendRateLimitInterceptor, WebSocket (STOMP) ile gönderilen mesajları (/app/chat.send) kullanıcı başına sınırlar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>İstemciden gelen her STOMP çerçevesi controller'a ulaşmadan önce preSend'den geçer; null döndürmek çerçeveyi düşürür.</li>
+ *   <li>Token ile bağlanan oturumlar kullanıcı adıyla, anonim oturumlar oturum kimliğiyle sınırlanır.</li>
+ *   <li>Sınır aşılınca exception fırlatılmaz (istemciye ulaşmaz, bkz. StompAuthChannelInterceptor); mesaj düşürülür ve kullanıcıya
+ *       "/topic/throttle/{kullanıcı}" kanalından ne kadar beklemesi gerektiği bildirilir.</li>
+ * </ul>
+ */
+@Component
+public class SendRateLimitInterceptor implements ChannelInterceptor {
+    /**
+     * Sınırlanan STOMP hedefi (ChatWebSocketController.send).
+     */
+    private static final String SEND_DESTINATION = "/app/chat.send";
+
+    @Autowired
+    private SendRateLimiter sendRateLimiter;
+
+    /**
+     * SEND çerçevesi mesaj gönderimiyse kullanıcının kovasından bir token harcar; kova boşsa çerçeveyi düşürür.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SEND
+                || !SEND_DESTINATION.equals(accessor.getDestination())) {
+            return message;
+        }
+        Principal user = accessor.getUser();
+        try {
+            sendRateLimiter.acquireUser(user != null ? user.getName() : "session:" + accessor.getSessionId(), "stomp");
+            return message;
+        } catch (RateLimitExceededException e) {
+            if (user != null) sendRateLimiter.notifyThrottled(user.getName(), e);
+            return null;
+        }
+    }
+}
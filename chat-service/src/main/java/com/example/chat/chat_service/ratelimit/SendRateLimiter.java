@@ -0,0 +1,231 @@
+package com.example.chat.chat_service.ratelimit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.chat.chat_service.metrics.ChatMetrics;
+import com.example.chat.chat_service.model.User;
+
+/**
+ * SendRateLimiter, mesaj gönderimini kullanıcı ve kanal başına token kovalarıyla (TokenBucket) sınırlar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Kullanıcı sınırı (chat.rate-limit.user.*) gönderim noktalarında uygulanır: REST için SendRateLimitFilter,
+ *       WebSocket için SendRateLimitInterceptor. Böylece sınırı aşan istek JSON çözümlemesine ve veritabanına hiç ulaşmaz.</li>
+ *   <li>Kanal sınırı (chat.rate-limit.channel.*) MessageIngestPipeline'da uygulanır; sohbet veya kanal ancak orada kesinleşir.
+ *       Tek bir sohbete/kanala birçok kullanıcının aynı anda yazarak yayını boğmasını engeller.</li>
+ *   <li>chat.rate-limit.store=memory: Kovalar bu uygulama örneğinin belleğindedir (ConcurrentHashMap, kilitsiz).
+ *       Birden fazla örnek çalışıyorsa her örnek kendi sınırını uygular.</li>
+ *   <li>chat.rate-limit.store=redis: Kovalar Redis'te tutulur, tüm örnekler aynı sınırı paylaşır. Aynı algoritma (GCRA) tek bir
+ *       Lua script'iyle atomik çalışır; saat olarak Redis'in TIME komutu kullanılır.
+ *       Redis'e ulaşılamazsa chat.rate-limit.redis-retry-ms boyunca bellekteki kovalara düşülür (her gönderim Redis zaman aşımını beklemesin diye).</li>
+ *   <li>Reddedilen istekler chat.rate-limit.rejections metriğinde scope (user/channel) ve transport (http/stomp) etiketleriyle sayılır.</li>
+ * </ul>
+ */
+@Service
+public class SendRateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(SendRateLimiter.class);
+
+    /**
+     * Sınırın uygulandığı kapsam.
+     */
+    public enum Scope {
+        /** Tek bir kullanıcının tüm gönderimleri. */
+        USER,
+        /** Tek bir sohbete veya kanala yapılan tüm gönderimler. */
+        CHANNEL;
+
+        /**
+         * İstemciye gösterilecek açıklama.
+         * @param retryAfterMs Tekrar denemeden önce beklenmesi gereken süre
+         */
+        public String message(long retryAfterMs) {
+            long seconds = Math.max(1, (retryAfterMs + 999) / 1000);
+            return switch (this) {
+                case USER -> "Çok hızlı mesaj gönderiyorsunuz, " + seconds + " saniye sonra tekrar deneyin.";
+                case CHANNEL -> "Bu sohbete çok fazla mesaj gönderiliyor, " + seconds + " saniye sonra tekrar deneyin.";
+            };
+        }
+
+        /**
+         * Metrik etiketi ve Redis anahtarı için küçük harfli ad.
+         */
+        public String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * GCRA'nın Redis karşılığı. KEYS[1]: kova anahtarı; ARGV[1]: token dolma süresi, ARGV[2]: kapasite toleransı (mikrosaniye).
+     * 0 döndürürse izin verilmiştir, aksi halde beklenmesi gereken süredir (mikrosaniye).
+     */
+    private static final RedisScript<Long> GCRA_SCRIPT = new DefaultRedisScript<>("""
+        local t = redis.call('TIME')
+        local now = tonumber(t[1]) * 1000000 + tonumber(t[2])
+        local interval = tonumber(ARGV[1])
+        local tolerance = tonumber(ARGV[2])
+        local tat = tonumber(redis.call('GET', KEYS[1]) or now)
+        if tat < now then tat = now end
+        local nxt = tat + interval
+        local ahead = nxt - now
+        if ahead > tolerance then return ahead - tolerance end
+        redis.call('SET', KEYS[1], string.format('%d', nxt), 'PX', math.ceil(ahead / 1000) + 1)
+        return 0
+        """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    /**
+     * Sınırlanan kullanıcıya bildirim göndermek için kullanılır.
+     * WebSocket yapılandırması SendRateLimitInterceptor üzerinden bu servise bağlı olduğu için döngüsel bağımlılığı önlemek amacıyla @Lazy ile enjekte edilir.
+     */
+    @Lazy
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chat.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Kovaların tutulduğu yer: memory veya redis.
+     */
+    @Value("${chat.rate-limit.store:memory}")
+    private String store;
+
+    /**
+     * Redis hatasından sonra tekrar denemeden önce bellekteki kovaların kullanılacağı süre (milisaniye).
+     */
+    @Value("${chat.rate-limit.redis-retry-ms:10000}")
+    private long redisRetryMs;
+
+    @Value("${chat.rate-limit.user.rate-per-second:5}")
+    private double userRatePerSecond;
+
+    @Value("${chat.rate-limit.user.burst:20}")
+    private int userBurst;
+
+    @Value("${chat.rate-limit.channel.rate-per-second:50}")
+    private double channelRatePerSecond;
+
+    @Value("${chat.rate-limit.channel.burst:100}")
+    private int channelBurst;
+
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> channelBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * Redis'in tekrar deneneceği an (System.nanoTime); 0 ise Redis kullanılabilir durumdadır.
+     */
+    private final AtomicLong redisRetryAt = new AtomicLong();
+
+    /**
+     * Kullanıcı için bir gönderim hakkı harcar.
+     * @param username Gönderen (veya anonim WebSocket oturumunda oturum kimliği)
+     * @param transport Metrik etiketi: http veya stomp
+     * @throws RateLimitExceededException Sınır aşıldıysa
+     */
+    public void acquireUser(String username, String transport) {
+        if (!enabled || username == null) return;
+        acquire(Scope.USER, User.normalize(username), transport);
+    }
+
+    /**
+     * Sohbet veya kanal için bir gönderim hakkı harcar.
+     * @param channelKey "conversation:{id}" veya "channel:{ad}"
+     * @param transport Metrik etiketi
+     * @throws RateLimitExceededException Sınır aşıldıysa
+     */
+    public void acquireChannel(String channelKey, String transport) {
+        if (!enabled || channelKey == null) return;
+        acquire(Scope.CHANNEL, channelKey.toLowerCase(), transport);
+    }
+
+    /**
+     * Sınırlanan WebSocket kullanıcısına "/topic/throttle/{kullanıcı}" kanalından bildirim gönderir.
+     * Bu kanala yalnızca kanalın sahibi abone olabilir (StompAuthChannelInterceptor).
+     * <p>
+     * STOMP'ta istemciye hata çerçevesi gönderilemediği için (bkz. StompAuthChannelInterceptor) istemci bu kanala abone olarak
+     * mesajının neden yayınlanmadığını ve ne kadar beklemesi gerektiğini öğrenir.
+     * </p>
+     * @param username Oturum kullanıcısı
+     * @param e Sınır hatası
+     */
+    public void notifyThrottled(String username, RateLimitExceededException e) {
+        messagingTemplate.convertAndSend("/topic/throttle/" + username, Map.of(
+            "scope", e.getScope().tag(),
+            "retryAfterMs", e.getRetryAfterMs(),
+            "message", e.getReason()));
+    }
+
+    /**
+     * Tamamen dolmuş (bir süredir kullanılmayan) kovaları bellekten siler; silinen kova ilk kullanımda dolu olarak yeniden oluşur.
+     */
+    @Scheduled(fixedDelayString = "${chat.rate-limit.cleanup-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        userBuckets.values().removeIf(TokenBucket::isFull);
+        channelBuckets.values().removeIf(TokenBucket::isFull);
+    }
+
+    private void acquire(Scope scope, String key, String transport) {
+        long waitNanos = "redis".equalsIgnoreCase(store) ? acquireRedis(scope, key) : acquireLocal(scope, key);
+        if (waitNanos > 0) {
+            chatMetrics.rateLimited(scope.tag(), transport);
+            throw new RateLimitExceededException(scope, TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1);
+        }
+    }
+
+    private long acquireLocal(Scope scope, String key) {
+        Map<String, TokenBucket> buckets = scope == Scope.USER ? userBuckets : channelBuckets;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> scope == Scope.USER
+                ? new TokenBucket(userRatePerSecond, userBurst)
+                : new TokenBucket(channelRatePerSecond, channelBurst));
+        }
+        return bucket.tryAcquire();
+    }
+
+    private long acquireRedis(Scope scope, String key) {
+        double rate = scope == Scope.USER ? userRatePerSecond : channelRatePerSecond;
+        int burst = scope == Scope.USER ? userBurst : channelBurst;
+        long intervalMicros = Math.max(1, (long) (1_000_000 / rate));
+        long retryAt = redisRetryAt.get();
+        if (retryAt != 0 && retryAt - System.nanoTime() > 0) {
+            return acquireLocal(scope, key);
+        }
+        try {
+            Long waitMicros = redisTemplate.execute(GCRA_SCRIPT, List.of("rate:" + scope.tag() + ":" + key),
+                String.valueOf(intervalMicros), String.valueOf(intervalMicros * burst));
+            if (retryAt != 0 && redisRetryAt.compareAndSet(retryAt, 0)) {
+                log.info("Redis'e tekrar ulaşıldı, gönderim sınırları Redis'ten uygulanıyor");
+            }
+            return waitMicros == null ? 0 : TimeUnit.MICROSECONDS.toNanos(waitMicros);
+        } catch (RuntimeException e) {
+            if (redisRetryAt.compareAndSet(retryAt, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(redisRetryMs))) {
+                log.warn("Gönderim sınırı için Redis'e ulaşılamadı, {} ms boyunca bellekteki kovalar kullanılıyor: {}",
+                    redisRetryMs, e.getMessage());
+            }
+            return acquireLocal(scope, key);
+        }
+    }
+}
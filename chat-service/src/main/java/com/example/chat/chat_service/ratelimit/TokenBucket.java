@@ -0,0 +1,73 @@
+package com.example.chat.chat_service.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TokenBucket, kilitsiz (lock-free) çalışan bir token kovasıdır; saniyede belirli sayıda işleme ve kısa süreli patlamalara (burst) izin verir.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Kova her ratePerSecond'da bir token dolar, en fazla burst token tutar; her izin bir token harcar.</li>
+ *   <li>Token sayısı ayrıca tutulmaz: GCRA (Generic Cell Rate Algorithm) ile tek bir sayı, "teorik varış zamanı" (TAT) saklanır.
+ *       TAT şimdiden ne kadar ileride ise kova o kadar boştur.</li>
+ *   <li>Durum tek bir AtomicLong olduğu için güncelleme compareAndSet döngüsüyle yapılır; synchronized veya kilit gerekmez.</li>
+ *   <li>Süreler System.nanoTime() ile ölçülür; sistem saati değişse bile kova etkilenmez.</li>
+ * </ul>
+ */
+public final class TokenBucket {
+    /** Bir token'ın dolma süresi (nanosaniye). */
+    private final long intervalNanos;
+    /** Kova doluyken TAT'ın şimdiden en fazla ne kadar ileride olabileceği (burst * interval). */
+    private final long toleranceNanos;
+    /** Teorik varış zamanı; now'dan küçük veya eşitse kova doludur. */
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param ratePerSecond Saniyede dolan token sayısı (0'dan büyük)
+     * @param burst Kovanın kapasitesi (en az 1)
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("ratePerSecond > 0 ve burst >= 1 olmalı");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.toleranceNanos = intervalNanos * burst;
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Bir token almaya çalışır.
+     * @return 0: izin verildi; pozitifse bir sonraki token için beklenmesi gereken süre (nanosaniye)
+     */
+    public long tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * Verilen ana göre bir token almaya çalışır (testlerde saat elle ilerletilir).
+     * @param now System.nanoTime() cinsinden şimdiki zaman
+     * @return 0: izin verildi; pozitifse bir sonraki token için beklenmesi gereken süre (nanosaniye)
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            // nanoTime negatif olabilir; karşılaştırmalar taşmaya dayanıklı olsun diye farkla yapılır
+            long base = tat - now > 0 ? tat : now;
+            long next = base + intervalNanos;
+            long ahead = next - now;
+            if (ahead > toleranceNanos) {
+                return ahead - toleranceNanos;
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Kova tamamen dolduysa true; bu durumda kova silinip gerektiğinde yeniden oluşturulabilir (aynı sonucu verir).
+     */
+    public boolean isFull() {
+        return theoreticalArrival.get() - System.nanoTime() <= 0;
+    }
+}
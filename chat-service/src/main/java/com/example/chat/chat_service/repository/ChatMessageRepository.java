@@ -1,10 +1,18 @@
 package com.example.chat.chat_service.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.chat.chat_service.model.ChatMessage;
 
@@ -17,24 +25,33 @@ import com.example.chat.chat_service.model.ChatMessage;
  *   <li>Pageable parametresi ile sayfalama (paging) desteği sunar.</li>
  *   <li>Özel sorgu metotları, kanal, gönderen veya conversation id'ye göre mesaj aramayı kolaylaştırır.</li>
  *   <li>@Query ile özel SQL sorgusu yazılabilir.</li>
+ *   <li>chat_messages tablosu aylık partition'lara bölünmüştür; timestamp aralığı verilen sorgular
+ *       (ör: findByConversationIdAndTimestampBetween) yalnızca ilgili ayların partition'larını tarar.</li>
+ *   <li>Geçmiş ve arama sorguları @Transactional(readOnly = true) ile işaretlidir; okuma kopyası (replica) tanımlıysa
+ *       bu sorgular replica havuzuna gider (DataSourceConfig). Arayüzde tanımlanan sorgu metotları Spring Data'da
+ *       varsayılan olarak transaction'sız çalıştığı için işaret açıkça konur.</li>
  * </ul>
  */
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     /**
      * Belirli bir kanaldaki mesajları sayfalı olarak döndürür.
      */
+    @Transactional(readOnly = true)
     Page<ChatMessage> findByChannel(String channel, Pageable pageable);
     /**
      * Belirli bir kanaldaki mesajları büyük/küçük harf duyarsız olarak döndürür.
      */
+    @Transactional(readOnly = true)
     Page<ChatMessage> findByChannelIgnoreCase(String channel, Pageable pageable);
     /**
      * Belirli bir kullanıcının gönderdiği mesajları döndürür.
      */
+    @Transactional(readOnly = true)
     Page<ChatMessage> findBySender(String sender, Pageable pageable);
     /**
      * Belirli bir conversation'a ait mesajları döndürür (sayfalı).
      */
+    @Transactional(readOnly = true)
     Page<ChatMessage> findByConversationId(Long conversationId, Pageable pageable);
     /**
      * Belirli bir conversation'a ait tüm mesajları liste olarak döndürür.
@@ -46,6 +63,180 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
      * @param pageable Sayfalama parametresi
      * @return Kanal mesajları
      */
+    @Transactional(readOnly = true)
     @Query("SELECT m FROM ChatMessage m WHERE LOWER(TRIM(m.channel)) = LOWER(TRIM(:channel))")
     Page<ChatMessage> findByChannelIgnoreCaseTrimmed(@Param("channel") String channel, Pageable pageable);
+    /**
+     * Belirli bir conversation'a ait, verilen zaman aralığındaki mesajları döndürür (sayfalı).
+     * <p>
+     * <b>Nasıl çalışır?</b> timestamp sınırları sayesinde PostgreSQL aralık dışındaki aylık partition'ları hiç taramaz.
+     * </p>
+     * @param conversationId Conversation id
+     * @param from Başlangıç zamanı (dahil)
+     * @param to Bitiş zamanı (dahil)
+     * @param pageable Sayfalama parametresi
+     * @return Mesajlar
+     */
+    @Transactional(readOnly = true)
+    Page<ChatMessage> findByConversationIdAndTimestampBetween(Long conversationId, LocalDateTime from, LocalDateTime to, Pageable pageable);
+    /**
+     * Kanal adını trimleyip küçük harfe çevirerek, verilen zaman aralığındaki mesajları döndürür (sayfalı).
+     * @param channel Kanal adı
+     * @param from Başlangıç zamanı (dahil)
+     * @param to Bitiş zamanı (dahil)
+     * @param pageable Sayfalama parametresi
+     * @return Kanal mesajları
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT m FROM ChatMessage m WHERE LOWER(TRIM(m.channel)) = LOWER(TRIM(:channel)) AND m.timestamp BETWEEN :from AND :to")
+    Page<ChatMessage> findByChannelIgnoreCaseTrimmedBetween(@Param("channel") String channel, @Param("from") LocalDateTime from,
+                                                           @Param("to") LocalDateTime to, Pageable pageable);
+
+    /**
+     * Bir mesajın sahiplik kontrolü için gereken sütunlar (entity yüklenmeden okunur).
+     */
+    interface MessageOwnership {
+        Long getId();
+        Long getConversationId();
+        String getSender();
+        LocalDateTime getTimestamp();
+        String getChannel();
+    }
+
+    /**
+     * Mesajın hangi sohbete ve kime ait olduğunu döndürür.
+     * <p>
+     * <b>Nasıl çalışır?</b> Yalnızca chat_messages satırındaki conversation_id, sender, timestamp ve channel okunur;
+     * conversations tablosuna join yapılmaz ve ChatMessage entity'si oluşturulmaz.
+     * </p>
+     * @param id Mesaj id'si
+     * @return Sahiplik bilgisi, mesaj yoksa boş
+     */
+    @Query("SELECT m.id AS id, m.conversation.id AS conversationId, m.sender AS sender, m.timestamp AS timestamp, m.channel AS channel " +
+           "FROM ChatMessage m WHERE m.id = :id")
+    Optional<MessageOwnership> findOwnershipById(@Param("id") Long id);
+
+    /**
+     * Birden fazla mesajın sahiplik bilgisini tek sorguda döndürür (bulunamayan id'ler listede yer almaz).
+     * @param ids Mesaj id'leri
+     * @return Sahiplik bilgileri
+     */
+    @Query("SELECT m.id AS id, m.conversation.id AS conversationId, m.sender AS sender, m.timestamp AS timestamp, m.channel AS channel " +
+           "FROM ChatMessage m WHERE m.id IN :ids")
+    List<MessageOwnership> findOwnershipByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Mesaj içeriğini tek bir UPDATE ile değiştirir.
+     * <p>
+     * <b>Nasıl çalışır?</b> timestamp koşulu sayesinde PostgreSQL yalnızca mesajın bulunduğu aylık partition'a gider.
+     * </p>
+     * @param id Mesaj id'si
+     * @param timestamp Mesajın zamanı (findOwnershipById sonucundan)
+     * @param content Yeni içerik
+     * @return Güncellenen satır sayısı
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatMessage m SET m.content = :content WHERE m.id = :id AND m.timestamp = :timestamp")
+    int updateContent(@Param("id") Long id, @Param("timestamp") LocalDateTime timestamp, @Param("content") String content);
+
+    /**
+     * Mesajın içeriğini ve kanalını tek bir UPDATE ile değiştirir; yalnızca mesajın aylık partition'ı taranır.
+     * @param id Mesaj id'si
+     * @param timestamp Mesajın zamanı (findOwnershipById sonucundan)
+     * @param content Yeni içerik
+     * @param channel Yeni kanal
+     * @return Güncellenen satır sayısı
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatMessage m SET m.content = :content, m.channel = :channel WHERE m.id = :id AND m.timestamp = :timestamp")
+    int updateContentAndChannel(@Param("id") Long id, @Param("timestamp") LocalDateTime timestamp, @Param("content") String content,
+                                @Param("channel") String channel);
+
+    /**
+     * Mesajı birincil anahtarıyla (id, timestamp) bulur; yalnızca ilgili ayın partition'ı taranır.
+     * @param id Mesaj id'si
+     * @param timestamp Mesajın zamanı
+     * @return Mesaj (yoksa boş)
+     */
+    Optional<ChatMessage> findByIdAndTimestamp(Long id, LocalDateTime timestamp);
+
+    /**
+     * Mesajı tek bir DELETE ile siler (önce entity yüklenmez).
+     * @param id Mesaj id'si
+     * @param timestamp Mesajın zamanı (findOwnershipById sonucundan)
+     * @return Silinen satır sayısı
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.id = :id AND m.timestamp = :timestamp")
+    int deleteByIdAndTimestamp(@Param("id") Long id, @Param("timestamp") LocalDateTime timestamp);
+
+    /**
+     * Bir sohbetin mesajlarından en fazla limit kadarını tek bir DELETE ile siler.
+     * <p>
+     * <b>Nasıl çalışır?</b> Mesajlar belleğe yüklenmez; her çağrı kendi kısa transaction'ında çalışır,
+     * böylece çok büyük sohbetler bile uzun kilitler oluşturmadan parça parça silinir.
+     * </p>
+     * @param conversationId Sohbet id'si
+     * @param limit Bir seferde silinecek en fazla mesaj sayısı
+     * @return Silinen mesaj sayısı
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM chat_messages WHERE (id, timestamp) IN " +
+                   "(SELECT id, timestamp FROM chat_messages WHERE conversation_id = :conversationId LIMIT :limit)", nativeQuery = true)
+    int deleteBatchByConversationId(@Param("conversationId") Long conversationId, @Param("limit") int limit);
+
+    /**
+     * Verilen id'lere sahip mesajları tek bir DELETE ile siler.
+     * <p>
+     * <b>Nasıl çalışır?</b> from/to sınırları (mesajların en eski ve en yeni zamanı) sayesinde
+     * yalnızca ilgili aylık partition'lar taranır.
+     * </p>
+     * @param ids Mesaj id'leri
+     * @param from Mesajların en eski zamanı
+     * @param to Mesajların en yeni zamanı
+     * @return Silinen satır sayısı
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.id IN :ids AND m.timestamp BETWEEN :from AND :to")
+    int deleteByIdInAndTimestampBetween(@Param("ids") Collection<Long> ids, @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+
+    /**
+     * Kullanıcının erişebildiği mesajlarda tam metin araması yapar (en yeni mesajlar önce).
+     * <p>
+     * <b>Nasıl çalışır?</b> Arama ifadesi websearch_to_tsquery ile çözülür (ör: <code>"tam ifade" -hariç</code>)
+     * ve V6 migrasyonundaki GIN index ile eşleşen satırlar bulunur. Sonuçlar şu mesajlarla sınırlanır:
+     * kullanıcının katılımcısı olduğu sohbetler, herkese açık kanallar ve kullanıcının dahil olduğu private_ kanallar.
+     * private_ kanal adı ChatMessage.canAccessPrivateChannel ile aynı şekilde iki kullanıcıya ayrılıp tam eşitlikle karşılaştırılır;
+     * kullanıcı adındaki _ veya % karakterleri LIKE joker karakteri gibi davranıp başkalarının kanallarını eşleştiremez.
+     * Toplam sayı (COUNT) hesaplanmadığı için Slice döner; büyük tablolarda sayfalama ucuz kalır.
+     * </p>
+     * @param username Arama yapan kullanıcı
+     * @param query Arama ifadesi
+     * @param conversationId Opsiyonel: yalnızca bu sohbette ara
+     * @param channel Opsiyonel: yalnızca bu kanalda ara
+     * @param pageable Sayfalama parametresi (sıralama sorguda sabittir)
+     * @return Eşleşen mesajlar
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT m.* FROM chat_messages m " +
+                   "WHERE to_tsvector('simple', m.content) @@ websearch_to_tsquery('simple', :query) " +
+                   "AND (CAST(:conversationId AS BIGINT) IS NULL OR m.conversation_id = :conversationId) " +
+                   "AND (CAST(:channel AS TEXT) IS NULL OR lower(trim(m.channel)) = lower(trim(CAST(:channel AS TEXT)))) " +
+                   "AND (m.conversation_id IN (SELECT c.id FROM conversations c " +
+                   "                           WHERE lower(c.user1) = lower(:username) OR lower(c.user2) = lower(:username)) " +
+                   "     OR (m.conversation_id IS NULL AND m.channel <> '' " +
+                   "         AND (m.channel NOT LIKE 'private\\_%' " +
+                   "              OR (substr(m.channel, 9) ~ '^[^_]*_[^_]*$' " +
+                   "                  AND lower(:username) IN (lower(split_part(substr(m.channel, 9), '_', 1)), " +
+                   "                                           lower(split_part(substr(m.channel, 9), '_', 2))))))) " +
+                   "ORDER BY m.timestamp DESC, m.id DESC", nativeQuery = true)
+    Slice<ChatMessage> search(@Param("username") String username, @Param("query") String query,
+                              @Param("conversationId") Long conversationId, @Param("channel") String channel,
+                              Pageable pageable);
 }
@@ -1,8 +1,14 @@
 package com.example.chat.chat_service.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.chat.chat_service.model.Conversation;
 
@@ -14,28 +20,123 @@ import com.example.chat.chat_service.model.Conversation;
  * <p>Yeni başlayanlar için açıklama:</p>
  * <ul>
  *   <li>JpaRepository, temel CRUD (oluşturma, okuma, güncelleme, silme) işlemlerini otomatik olarak sağlar.</li>
- *   <li>Buradaki metotlar, kullanıcılar arasındaki birebir sohbeti bulmak için kullanılır.</li>
- *   <li>findByUser1AndUser2: user1 ve user2 isimli kullanıcılar arasındaki sohbeti bulur.</li>
- *   <li>findByUser2AndUser1: user2 ve user1 isimli kullanıcılar arasındaki sohbeti bulur (ters kombinasyon için).</li>
- *   <li>Bu iki metot, kullanıcıların sırası farklı olduğunda da sohbetin bulunmasını sağlar.</li>
+ *   <li>Sohbetler, kullanıcı çiftinin kanonik anahtarı (pair_key) ile bulunur; kullanıcı sırası ve harf büyüklüğü önemli değildir.</li>
+ *   <li>findBetween: İki kullanıcı arasındaki sohbeti tek bir index erişimiyle bulur.</li>
+ *   <li>findOrCreate: Sohbet yoksa oluşturur; eşzamanlı çağrılarda bile tek bir sohbet oluşur (INSERT ... ON CONFLICT).</li>
  * </ul>
  */
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
     /**
-     * Belirtilen iki kullanıcı arasındaki sohbeti bulur.
+     * Kanonik anahtarı verilen sohbeti bulur.
      *
+     * @param pairKey Conversation.pairKeyOf ile üretilmiş anahtar
+     * @return Conversation nesnesi (varsa)
+     */
+    Optional<Conversation> findByPairKey(String pairKey);
+
+    /**
+     * Sohbeti yoksa ekler, varsa mevcut olanı döndürür (tek SQL komutu).
+     * <p>
+     * <b>Nasıl çalışır?</b> Unique pair_key index'ine çarpan INSERT, ON CONFLICT ile mevcut satırı
+     * RETURNING üzerinden döndürür; iki istek aynı anda gelse de ikinci bir sohbet oluşmaz.
+     * </p>
      * @param user1 Birinci kullanıcının adı
      * @param user2 İkinci kullanıcının adı
-     * @return İki kullanıcı arasındaki Conversation nesnesi (varsa)
+     * @param pairKey Conversation.pairKeyOf(user1, user2)
+     * @param createdAt Oluşturulma zamanı
+     * @return Eklenen veya mevcut Conversation nesnesi
      */
-    Optional<Conversation> findByUser1AndUser2(String user1, String user2);
+    @Transactional
+    @Query(value = "INSERT INTO conversations (user1, user2, pair_key, created_at) " +
+                   "VALUES (:user1, :user2, :pairKey, :createdAt) " +
+                   "ON CONFLICT (pair_key) DO UPDATE SET pair_key = EXCLUDED.pair_key " +
+                   "RETURNING *", nativeQuery = true)
+    Conversation upsert(@Param("user1") String user1, @Param("user2") String user2,
+                        @Param("pairKey") String pairKey, @Param("createdAt") LocalDateTime createdAt);
 
     /**
-     * Belirtilen iki kullanıcı arasındaki sohbeti (kullanıcı sırası ters) bulur.
+     * Belirtilen iki kullanıcı arasındaki sohbeti bulur (kullanıcı sırası ve harf büyüklüğü önemsiz).
      *
-     * @param user2 İkinci kullanıcının adı
      * @param user1 Birinci kullanıcının adı
+     * @param user2 İkinci kullanıcının adı
      * @return İki kullanıcı arasındaki Conversation nesnesi (varsa)
      */
-    Optional<Conversation> findByUser2AndUser1(String user2, String user1);
+    default Optional<Conversation> findBetween(String user1, String user2) {
+        return findByPairKey(Conversation.pairKeyOf(user1, user2));
+    }
+
+    /**
+     * İki kullanıcı arasındaki sohbeti döndürür, yoksa oluşturur.
+     * <p>
+     * <b>Nasıl çalışır?</b> Çoğu durumda sohbet zaten vardır ve tek bir index okumasıyla bulunur;
+     * yoksa upsert ile yarış durumuna karşı güvenli şekilde eklenir.
+     * </p>
+     * @param user1 Birinci kullanıcının adı
+     * @param user2 İkinci kullanıcının adı
+     * @return Mevcut veya yeni Conversation nesnesi
+     */
+    default Conversation findOrCreate(String user1, String user2) {
+        String pairKey = Conversation.pairKeyOf(user1, user2);
+        return findByPairKey(pairKey)
+            .orElseGet(() -> upsert(user1, user2, pairKey, LocalDateTime.now()));
+    }
+
+    /**
+     * Sohbeti silinmek üzere işaretler: pair_key "#purge:&lt;id&gt;" yapılır.
+     * <p>
+     * <b>Nasıl çalışır?</b> Gerçek anahtarlar her zaman "|" içerdiği için işaretli sohbet artık findBetween ile bulunmaz;
+     * kullanıcılar tekrar arkadaş olursa mesajları silinmekte olan sohbet yerine yeni bir sohbet oluşturulur.
+     * </p>
+     * @param id Sohbet id'si
+     * @return Güncellenen satır sayısı
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE conversations SET pair_key = '#purge:' || id WHERE id = :id", nativeQuery = true)
+    int markForPurge(@Param("id") Long id);
+
+    /**
+     * Silinmek üzere işaretlenmiş ama henüz silinmemiş sohbetlerin id'lerini döndürür
+     * (ör: uygulama silme sırasında kapandıysa).
+     */
+    @Query(value = "SELECT id FROM conversations WHERE pair_key LIKE '#purge:%' AND pair_key NOT LIKE '%|%'", nativeQuery = true)
+    List<Long> findIdsMarkedForPurge();
+
+    /**
+     * Inbox sorgusunun döndürdüğü satır: sohbet, son mesajı ve kullanıcının okunmamış sayısı.
+     */
+    interface InboxRow {
+        Long getConversationId();
+        String getUser1();
+        String getUser2();
+        LocalDateTime getCreatedAt();
+        Long getLastMessageId();
+        String getLastMessageSender();
+        String getLastMessageContent();
+        LocalDateTime getLastMessageTimestamp();
+        String getLastMessageChannel();
+        Integer getUnreadCount();
+    }
+
+    /**
+     * Kullanıcının tüm sohbetlerini son mesajlarıyla birlikte tek sorguda döndürür (son mesajı en yeni olan önce).
+     * <p>
+     * <b>Nasıl çalışır?</b> LEFT JOIN LATERAL, her sohbet için (conversation_id, timestamp) index'inden yalnızca
+     * en son mesajı okur. Silinmek üzere işaretlenmiş sohbetler (pair_key "|" içermez) listelenmez.
+     * </p>
+     * @param username Kullanıcı adı
+     * @param usernameKey User.normalize(username); conversation_read_state satırını bulmak için
+     * @return Inbox satırları
+     */
+    @Query(value = "SELECT c.id AS conversationId, c.user1 AS user1, c.user2 AS user2, c.created_at AS createdAt, " +
+                   "lm.id AS lastMessageId, lm.sender AS lastMessageSender, lm.content AS lastMessageContent, " +
+                   "lm.timestamp AS lastMessageTimestamp, lm.channel AS lastMessageChannel, " +
+                   "COALESCE(rs.unread_count, 0) AS unreadCount " +
+                   "FROM conversations c " +
+                   "LEFT JOIN LATERAL (SELECT m.id, m.sender, m.content, m.timestamp, m.channel FROM chat_messages m " +
+                   "                   WHERE m.conversation_id = c.id ORDER BY m.timestamp DESC, m.id DESC LIMIT 1) lm ON true " +
+                   "LEFT JOIN conversation_read_state rs ON rs.conversation_id = c.id AND rs.username_key = :usernameKey " +
+                   "WHERE (lower(c.user1) = lower(:username) OR lower(c.user2) = lower(:username)) AND c.pair_key LIKE '%|%' " +
+                   "ORDER BY lm.timestamp DESC NULLS LAST, c.id DESC", nativeQuery = true)
+    List<InboxRow> findInbox(@Param("username") String username, @Param("usernameKey") String usernameKey);
 }
@@ -1,7 +1,14 @@
 package com.example.chat.chat_service.repository;
 
 import com.example.chat.chat_service.model.FriendRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -14,6 +21,20 @@ import java.util.List;
  * </ul>
  */
 public interface FriendRequestRepository extends JpaRepository<FriendRequest, Long> {
+    /**
+     * Bir arkadaşlık isteğinin yalnızca listelemede kullanılan alanları (projection).
+     * <p>
+     * JSON çıktısı FriendRequest entity'si ile aynıdır; fakat Hibernate entity oluşturmaz ve persistence context'e eklemez.
+     * </p>
+     */
+    interface FriendRequestView {
+        Long getId();
+        String getFromUsername();
+        String getToUsername();
+        FriendRequest.Status getStatus();
+        LocalDateTime getCreatedAt();
+    }
+
     /**
      * Belirli bir kullanıcının belirli durumdaki gönderdiği istekleri bulur.
      */
@@ -26,4 +47,114 @@ public interface FriendRequestRepository extends JpaRepository<FriendRequest, Lo
      * Belirli bir kullanıcıya ait tüm istekleri bulur.
      */
     List<FriendRequest> findByFromUsernameOrToUsername(String fromUsername, String toUsername);
+    /**
+     * İki kullanıcı arasında kabul edilmiş bir arkadaşlık isteği olup olmadığını kontrol eder (yön ve harf büyüklüğü önemsiz).
+     * <p>
+     * <b>Nasıl çalışır?</b> Tüm istekleri belleğe çekmek yerine veritabanında tek bir EXISTS sorgusu çalışır;
+     * V5 migrasyonundaki kısmi (partial) index bu sorguyu index erişimine çevirir.
+     * </p>
+     * @param username1 Birinci kullanıcı
+     * @param username2 İkinci kullanıcı
+     * @return Arkadaşlarsa true
+     */
+    default boolean existsAcceptedBetween(String username1, String username2) {
+        return existsWithStatusBetween(username1, username2, FriendRequest.Status.ACCEPTED);
+    }
+    /**
+     * İki kullanıcı arasında verilen durumda bir istek olup olmadığını kontrol eder (yön ve harf büyüklüğü önemsiz).
+     */
+    @Query("SELECT COUNT(r) > 0 FROM FriendRequest r WHERE r.status = :status AND " +
+           "((LOWER(r.fromUsername) = LOWER(:username1) AND LOWER(r.toUsername) = LOWER(:username2)) OR " +
+           "(LOWER(r.fromUsername) = LOWER(:username2) AND LOWER(r.toUsername) = LOWER(:username1)))")
+    boolean existsWithStatusBetween(@Param("username1") String username1, @Param("username2") String username2,
+                                    @Param("status") FriendRequest.Status status);
+    /**
+     * Kullanıcının arkadaşlarının kullanıcı adlarını döndürür (harf büyüklüğü önemsiz).
+     * <p>
+     * <b>Nasıl çalışır?</b> FriendRequest entity'leri oluşturulmaz; veritabanı yalnızca karşı tarafın adını döndürür.
+     * </p>
+     * @param username Kullanıcı adı
+     * @return Arkadaşların kullanıcı adları
+     */
+    default List<String> findFriendUsernames(String username) {
+        return findCounterpartUsernames(username, FriendRequest.Status.ACCEPTED);
+    }
+    /**
+     * Kullanıcının verilen durumdaki isteklerinde karşı tarafın kullanıcı adlarını döndürür (tekrarsız).
+     */
+    @Query("SELECT DISTINCT CASE WHEN LOWER(r.fromUsername) = LOWER(:username) THEN r.toUsername ELSE r.fromUsername END " +
+           "FROM FriendRequest r WHERE r.status = :status AND " +
+           "(LOWER(r.fromUsername) = LOWER(:username) OR LOWER(r.toUsername) = LOWER(:username))")
+    List<String> findCounterpartUsernames(@Param("username") String username, @Param("status") FriendRequest.Status status);
+    /**
+     * Kullanıcının arkadaşlarını sayfa sayfa döndürür (binlerce arkadaşı olan kullanıcılar için).
+     * @param username Kullanıcı adı
+     * @param pageable Sayfa bilgisi
+     * @return Arkadaşların kullanıcı adları (alfabetik)
+     */
+    default Slice<String> findFriendUsernames(String username, Pageable pageable) {
+        return findCounterpartUsernames(username, FriendRequest.Status.ACCEPTED, pageable);
+    }
+    /**
+     * findCounterpartUsernames'in sayfalı hali; toplam sayı (COUNT) sorgusu çalıştırılmaz.
+     */
+    @Query("SELECT DISTINCT CASE WHEN LOWER(r.fromUsername) = LOWER(:username) THEN r.toUsername ELSE r.fromUsername END AS counterpart " +
+           "FROM FriendRequest r WHERE r.status = :status AND " +
+           "(LOWER(r.fromUsername) = LOWER(:username) OR LOWER(r.toUsername) = LOWER(:username)) " +
+           "ORDER BY counterpart")
+    Slice<String> findCounterpartUsernames(@Param("username") String username, @Param("status") FriendRequest.Status status,
+                                           Pageable pageable);
+    /**
+     * Kullanıcıya gelen bekleyen istekleri döndürür (harf büyüklüğü önemsiz, en yeni önce).
+     * @param username İsteği alan kullanıcı
+     * @return Bekleyen istekler
+     */
+    default List<FriendRequestView> findPendingTo(String username) {
+        return findViewsByToUsername(username, FriendRequest.Status.PENDING);
+    }
+    /**
+     * Kullanıcının gönderdiği bekleyen istekleri döndürür (harf büyüklüğü önemsiz, en yeni önce).
+     * @param username İsteği gönderen kullanıcı
+     * @return Bekleyen istekler
+     */
+    default List<FriendRequestView> findPendingFrom(String username) {
+        return findViewsByFromUsername(username, FriendRequest.Status.PENDING);
+    }
+    /**
+     * Kullanıcıya gelen verilen durumdaki istekleri projection olarak döndürür.
+     */
+    @Query("SELECT r.id AS id, r.fromUsername AS fromUsername, r.toUsername AS toUsername, r.status AS status, r.createdAt AS createdAt " +
+           "FROM FriendRequest r WHERE LOWER(r.toUsername) = LOWER(:username) AND r.status = :status ORDER BY r.createdAt DESC")
+    List<FriendRequestView> findViewsByToUsername(@Param("username") String username, @Param("status") FriendRequest.Status status);
+    /**
+     * Kullanıcının gönderdiği verilen durumdaki istekleri projection olarak döndürür.
+     */
+    @Query("SELECT r.id AS id, r.fromUsername AS fromUsername, r.toUsername AS toUsername, r.status AS status, r.createdAt AS createdAt " +
+           "FROM FriendRequest r WHERE LOWER(r.fromUsername) = LOWER(:username) AND r.status = :status ORDER BY r.createdAt DESC")
+    List<FriendRequestView> findViewsByFromUsername(@Param("username") String username, @Param("status") FriendRequest.Status status);
+    /**
+     * İki kullanıcı arasında bekleyen bir istek olup olmadığını kontrol eder (yön ve harf büyüklüğü önemsiz).
+     */
+    default boolean existsPendingBetween(String username1, String username2) {
+        return existsWithStatusBetween(username1, username2, FriendRequest.Status.PENDING);
+    }
+    /**
+     * İki kullanıcı arasındaki kabul edilmiş arkadaşlık kaydını tek bir DELETE ile siler (yön ve harf büyüklüğü önemsiz).
+     * @param username1 Birinci kullanıcı
+     * @param username2 İkinci kullanıcı
+     * @return Silinen kayıt sayısı (arkadaş değillerse 0)
+     */
+    default int deleteAcceptedBetween(String username1, String username2) {
+        return deleteWithStatusBetween(username1, username2, FriendRequest.Status.ACCEPTED);
+    }
+    /**
+     * İki kullanıcı arasındaki verilen durumdaki istekleri siler.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FriendRequest r WHERE r.status = :status AND " +
+           "((LOWER(r.fromUsername) = LOWER(:username1) AND LOWER(r.toUsername) = LOWER(:username2)) OR " +
+           "(LOWER(r.fromUsername) = LOWER(:username2) AND LOWER(r.toUsername) = LOWER(:username1)))")
+    int deleteWithStatusBetween(@Param("username1") String username1, @Param("username2") String username2,
+                                @Param("status") FriendRequest.Status status);
 }
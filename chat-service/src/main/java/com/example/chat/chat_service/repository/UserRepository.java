@@ -13,7 +13,7 @@ import com.example.chat.chat_service.model.User;
  * <ul>
  *   <li>JpaRepository, temel CRUD işlemlerini otomatik olarak sağlar.</li>
  *   <li>findByUsername: Kullanıcı adını tam eşleşmeyle arar.</li>
- *   <li>findByUsernameIgnoreCase: Kullanıcı adını büyük/küçük harf duyarsız arar.</li>
+ *   <li>findByUsernameIgnoreCase: Kullanıcı adını büyük/küçük harf duyarsız arar (username_key index'i üzerinden).</li>
  * </ul>
  */
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -23,10 +23,22 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return User nesnesi (varsa)
      */
     Optional<User> findByUsername(String username);
+    /**
+     * Kullanıcıyı küçük harfe çevrilmiş arama anahtarıyla bulur.
+     * @param usernameKey User.normalize ile üretilmiş anahtar
+     * @return User nesnesi (varsa)
+     */
+    Optional<User> findByUsernameKey(String usernameKey);
     /**
      * Kullanıcıyı büyük/küçük harf duyarsız şekilde bulur.
+     * <p>
+     * <b>Nasıl çalışır?</b> upper(username) karşılaştırması yerine, parametreyi normalize edip
+     * unique index'li username_key sütununda arar.
+     * </p>
      * @param username Kullanıcı adı
      * @return User nesnesi (varsa)
      */
-    Optional<User> findByUsernameIgnoreCase(String username);
+    default Optional<User> findByUsernameIgnoreCase(String username) {
+        return findByUsernameKey(User.normalize(username));
+    }
 }
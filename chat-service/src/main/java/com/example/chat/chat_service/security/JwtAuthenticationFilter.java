@@ -0,0 +1,78 @@
+package com.example.chat.chat_service.security;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * JwtAuthenticationFilter, chat-service REST endpoint'lerine (/api/**) gelen isteklerde JWT token'ını doğrular.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>OncePerRequestFilter: Her HTTP isteği için filtrenin yalnızca bir kez çalışmasını garanti eder.</li>
+ *   <li>Authorization başlığındaki "Bearer &lt;token&gt;" değeri JwtVerifier ile yerel olarak doğrulanır; auth-service'e ağ çağrısı yapılmaz.</li>
+ *   <li>Doğrulanan kullanıcı adı, request attribute olarak saklanır; controller'lar bunu @RequestAttribute ile okur.</li>
+ *   <li>Token yoksa veya geçersizse istek 401 (Unauthorized) ile sonlandırılır.</li>
+ *   <li>CORS ön kontrol (OPTIONS) istekleri ve /api dışındaki yollar (ör: /ws) filtrelenmez.</li>
+ *   <li>CORS başlıkları bu filtreden önce WebConfig.apiCorsFilter tarafından eklenir; 401 yanıtını tarayıcı CORS hatası olarak değil 401 olarak görür.</li>
+ *   <li>@Order: Kullanıcı adına ihtiyaç duyan filtreler (ör: SendRateLimitFilter) bu filtreden sonra sıralanır.</li>
+ * </ul>
+ */
+@Component
+@Order(JwtAuthenticationFilter.ORDER)
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    /**
+     * Doğrulanmış kullanıcı adının saklandığı request attribute adı.
+     */
+    public static final String AUTHENTICATED_USER = "chat.authenticatedUser";
+
+    /**
+     * Filtrenin sırası; Spring Boot'un kendi filtrelerinden (karakter kodlaması, gözlem vb.) sonra çalışır.
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 1000;
+
+    /**
+     * Token doğrulaması için kullanılan bileşen.
+     */
+    @Autowired
+    private JwtVerifier jwtVerifier;
+
+    /**
+     * Filtrenin uygulanmayacağı istekleri belirler.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) return true;
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/api/");
+    }
+
+    /**
+     * Authorization başlığını doğrular ve kullanıcı adını request'e ekler.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        final String authorizationHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        String username = null;
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+            username = jwtVerifier.verify(authorizationHeader.substring(7));
+        }
+        if (username == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Geçerli bir token gerekli.");
+            return;
+        }
+        request.setAttribute(AUTHENTICATED_USER, username);
+        chain.doFilter(request, response);
+    }
+}
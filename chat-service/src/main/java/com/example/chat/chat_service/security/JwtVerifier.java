@@ -0,0 +1,121 @@
+package com.example.chat.chat_service.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+
+import javax.crypto.SecretKey;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.chat.chat_service.cache.LruCache;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * JwtVerifier, auth-service'in ürettiği JWT token'larını chat-service içinde (ağ çağrısı yapmadan) doğrular.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>İmza anahtarı ve JwtParser uygulama açılışında bir kez oluşturulur ve tekrar kullanılır.</li>
+ *   <li>Anahtar, auth-service'teki JwtUtil ile aynı şekilde (32 karaktere tamamlanarak) türetilir; iki servis aynı jwt.secret değerini kullanmalıdır.</li>
+ *   <li>Doğrulanan token'ların SHA-256 özeti (digest) bir LRU önbellekte tutulur; aynı token tekrar geldiğinde imza ve JSON çözümleme yapılmaz.</li>
+ *   <li>Önbellekte token'ın kendisi değil özeti saklanır; böylece bellek dökümünde kullanılabilir token bulunmaz.</li>
+ * </ul>
+ */
+@Component
+public class JwtVerifier {
+    /**
+     * Token'ı imzalamak için kullanılan gizli anahtar kullanılarak oluşturulmuş parser.
+     */
+    private final JwtParser parser;
+
+    /**
+     * Daha önce doğrulanmış token özetleri ve token sahibinin bilgisi.
+     */
+    private final LruCache<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * Doğrulanmış bir token'dan elde edilen bilgiler.
+     * @param username Token sahibi (subject)
+     * @param expiresAtMillis Token'ın geçerlilik bitiş zamanı (epoch milisaniye)
+     */
+    public record VerifiedToken(String username, long expiresAtMillis) {
+        boolean isExpired(long nowMillis) {
+            return expiresAtMillis <= nowMillis;
+        }
+    }
+
+    /**
+     * JwtVerifier oluşturur.
+     * @param secret auth-service ile paylaşılan JWT gizli anahtarı
+     * @param cacheSize Önbellekte tutulacak en fazla token sayısı
+     */
+    public JwtVerifier(@Value("${jwt.secret:secret}") String secret,
+                       @Value("${jwt.verified-cache-size:10000}") int cacheSize) {
+        SecretKey key = Keys.hmacShaKeyFor(secretKey(secret).getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedTokens = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * auth-service JwtUtil.secretKey() ile aynı kuralı uygular: 32 karakterden kısa anahtarlar '0' ile tamamlanır.
+     */
+    private static String secretKey(String secret) {
+        String key = secret;
+        if (key.length() < 32) {
+            key = String.format("%-32s", key).replace(' ', '0');
+        }
+        return key;
+    }
+
+    /**
+     * Token'ı doğrular ve token sahibinin kullanıcı adını döndürür.
+     * <p>
+     * <b>Nasıl çalışır?</b> Önce token özeti önbellekte aranır; varsa ve süresi dolmamışsa doğrudan döndürülür.
+     * Yoksa imza ve süre kontrolü yapılır, sonuç önbelleğe yazılır.
+     * </p>
+     * @param token "Bearer " öneki olmadan JWT
+     * @return Kullanıcı adı, token geçersizse null
+     */
+    public String verify(String token) {
+        if (token == null || token.isBlank()) return null;
+        long now = System.currentTimeMillis();
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (!cached.isExpired(now)) return cached.username();
+            verifiedTokens.remove(digest);
+            return null;
+        }
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            String username = claims.getSubject();
+            Date expiration = claims.getExpiration();
+            if (username == null || expiration == null) return null;
+            verifiedTokens.put(digest, new VerifiedToken(username, expiration.getTime()));
+            return username;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Token'ın SHA-256 özetini Base64 olarak döndürür (önbellek anahtarı).
+     */
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 desteklenmiyor", e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.chat.chat_service.security;
+
+import java.security.Principal;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import com.example.chat.chat_service.model.User;
+
+/**
+ * StompAuthChannelInterceptor, WebSocket (STOMP) bağlantısı kurulurken JWT token'ını doğrular.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>ChannelInterceptor: İstemciden gelen her STOMP mesajı işlenmeden önce çağrılır.</li>
+ *   <li>CONNECT çerçevesindeki "Authorization: Bearer &lt;token&gt;" başlığı JwtVerifier ile doğrulanır.</li>
+ *   <li>Token geçerliyse kullanıcı, oturumun Principal'ı olarak atanır; presence (çevrimiçi) ve typing (yazıyor) olayları bu kullanıcıyla ilişkilendirilir.</li>
+ *   <li>SUBSCRIBE çerçevelerinde kişiye özel kanallar ("/topic/presence/{kullanıcı}", "/topic/typing/{kullanıcı}",
+ *       "/topic/unread/{kullanıcı}", "/topic/throttle/{kullanıcı}") yalnızca o kullanıcının oturumuna açıktır; başka kullanıcının veya anonim oturumun aboneliği yok sayılır.
+ *       Simple broker joker karakterli (ör: "/topic/**") abonelikleri desen olarak eşleştirdiği için bu tür abonelikler de yok sayılır.</li>
+ *   <li>Token gönderilmezse veya geçersizse bağlantı anonim olarak kabul edilir (eski istemciler için); anonim oturumlar mesaj gönderemez ve presence/typing olaylarına katılamaz.</li>
+ * </ul>
+ * <p>
+ * <b>Neden geçersiz token'da exception fırlatılmıyor?</b> WebSocketConfig'te istemci mesajlarının sırası korunduğu için
+ * (setPreserveReceiveOrder) CONNECT sırasında fırlatılan hata istemciye ERROR çerçevesi olarak ulaşmıyor ve bağlantı cevapsız kalıyor.
+ * </p>
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+
+    /**
+     * Oturum kullanıcısını temsil eden basit Principal.
+     * @param name Kullanıcı adı
+     */
+    public record StompUser(String name) implements Principal {
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Yalnızca sonundaki kullanıcının abone olabileceği kanal önekleri.
+     */
+    private static final List<String> PERSONAL_TOPICS = List.of("/topic/presence/", "/topic/typing/", "/topic/unread/", "/topic/throttle/");
+
+    /**
+     * Token doğrulaması için kullanılan bileşen.
+     */
+    @Autowired
+    private JwtVerifier jwtVerifier;
+
+    /**
+     * CONNECT çerçevesinde token'ı doğrular ve kullanıcıyı oturuma bağlar; SUBSCRIBE çerçevesinde aboneliğe izin verilip verilmediğini kontrol eder.
+     * @return İşlenecek mesaj; izin verilmeyen abonelikte null (çerçeve yok sayılır)
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) return message;
+        if (accessor.getCommand() == StompCommand.SUBSCRIBE) {
+            if (canSubscribe(accessor.getDestination(), accessor.getUser())) return message;
+            log.warn("İzin verilmeyen abonelik yok sayıldı: {} (oturum {})", accessor.getDestination(), accessor.getSessionId());
+            return null;
+        }
+        if (accessor.getCommand() != StompCommand.CONNECT) return message;
+        String authorization = accessor.getFirstNativeHeader("Authorization");
+        if (authorization == null) return message;
+        String username = authorization.startsWith("Bearer ") ? jwtVerifier.verify(authorization.substring(7)) : null;
+        if (username == null) {
+            log.warn("Geçersiz token ile WebSocket bağlantısı, oturum anonim devam ediyor: {}", accessor.getSessionId());
+            return message;
+        }
+        accessor.setUser(new StompUser(username));
+        return message;
+    }
+
+    /**
+     * Oturumun verilen kanala abone olup olamayacağını döndürür.
+     * @param destination Abonelik kanalı
+     * @param user Oturum kullanıcısı (anonimse null)
+     * @return Joker karakter içermeyen ve kişiye özel değilse ya da oturum kullanıcısına aitse true
+     */
+    static boolean canSubscribe(String destination, Principal user) {
+        if (destination == null) return false;
+        if (destination.indexOf('*') >= 0 || destination.indexOf('?') >= 0 || destination.indexOf('{') >= 0) return false;
+        for (String prefix : PERSONAL_TOPICS) {
+            if (destination.startsWith(prefix)) {
+                return user != null && User.normalize(destination.substring(prefix.length())).equals(User.normalize(user.getName()));
+            }
+        }
+        return true;
+    }
+}
@@ -1,9 +1,13 @@
 package com.example.chat.chat_service.service;
 
+import com.example.chat.chat_service.config.RabbitMQConfig;
+import com.example.chat.chat_service.metrics.ChatMetrics;
 import com.example.chat.chat_service.model.ChatMessage;
-import com.example.chat.chat_service.repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
 /**
@@ -13,26 +17,75 @@ import org.springframework.stereotype.Service;
  * <ul>
  *   <li>@Service: Bu sınıfın bir servis (iş katmanı) olduğunu belirtir.</li>
  *   <li>@RabbitListener: Belirtilen RabbitMQ kuyruğunu dinler ve mesaj geldiğinde ilgili metodu çalıştırır.</li>
- *   <li>ChatMessageRepository: Mesajları veritabanına kaydetmek için kullanılır.</li>
+ *   <li>Mesajlar chat.ingest.mode=async iken MessageIngestPipeline tarafından kuyruğa gönderilir; kayıt yine pipeline üzerinden yapılır.</li>
+ *   <li>Aynı mesaj kuyruktan tekrar teslim edilirse (redelivery) ikinci satır eklenmez (MessageDeduplicator).</li>
+ *   <li>Kaydedilemeyen mesaj kuyruğa hemen geri bırakılmaz (aksi halde aynı mesaj durmadan tekrar teslim edilir);
+ *       ChatMessageRetryPolicy'ye göre gecikme kuyruğuna, deneme hakkı bittiyse ölü mesaj kuyruğuna gönderilir.</li>
+ *   <li>Veritabanı erişilemiyorsa ConsumerCircuitBreaker consumer'ı durdurur; mesajlar veritabanı düzelene kadar kuyrukta bekler.</li>
  * </ul>
  */
 @Service
 public class ChatMessageConsumer {
+    private static final Logger log = LoggerFactory.getLogger(ChatMessageConsumer.class);
+
+    /**
+     * Listener container'ının kimliği (ConsumerCircuitBreaker container'ı bu kimlikle bulur).
+     */
+    public static final String LISTENER_ID = "chatMessageConsumer";
+
     /**
-     * Chat mesajlarını veritabanına kaydetmek için kullanılan repository.
+     * Kuyruktaki mesajları mükerrer olmadan veritabanına kaydeden servis.
      */
     @Autowired
-    private ChatMessageRepository chatMessageRepository;
+    private MessageIngestPipeline messageIngestPipeline;
+
+    @Autowired
+    private ChatMessageProducer chatMessageProducer;
+
+    @Autowired
+    private ChatMessageRetryPolicy retryPolicy;
+
+    @Autowired
+    private ConsumerCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
 
     /**
      * RabbitMQ kuyruğundan gelen mesajı alır ve veritabanına kaydeder.
      * <p>
      * <b>Nasıl çalışır?</b> Kuyruğa yeni bir mesaj geldiğinde bu metot otomatik olarak çağrılır.
+     * Mesaj (gönderen, clientMessageId) ile daha önce kaydedildiyse tekrar kaydedilmez.
+     * Kayıt başarısız olursa ve veritabanı erişilemiyorsa mesaj kuyruğa geri bırakılır, consumer durdurulur.
+     * Veritabanı erişilebilir durumdaysa (hata mesaja özgüyse) mesaj bir sonraki denemenin gecikme kuyruğuna veya
+     * ölü mesaj kuyruğuna gönderilir ve bu teslim onaylanır. Gönderme de başarısız olursa (broker hatası) exception fırlatılır
+     * ve mesaj kuyruğa geri döner; mesaj kaybolmaz.
      * </p>
      * @param message Kuyruktan alınan chat mesajı
+     * @param attempt Kaçıncı tekrar deneme olduğu (ilk teslimde null)
      */
-    @RabbitListener(queues = "chat.queue")
-    public void receiveMessage(ChatMessage message) {
-        chatMessageRepository.save(message);
+    @RabbitListener(id = LISTENER_ID, queues = RabbitMQConfig.QUEUE)
+    public void receiveMessage(ChatMessage message,
+                               @Header(name = ChatMessageProducer.RETRY_ATTEMPT_HEADER, required = false) Integer attempt) {
+        try {
+            messageIngestPipeline.persistQueued(message);
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(e);
+            if (circuitBreaker.isOpen()) {
+                // Veritabanı kapalı: deneme hakkı harcanmadan kuyruğa geri döner, consumer durdurulurken bekler
+                throw e;
+            }
+            int next = (attempt != null ? attempt : 0) + 1;
+            if (next <= retryPolicy.maxAttempts()) {
+                log.warn("Mesaj kaydedilemedi, {} ms sonra tekrar denenecek ({}/{}): {}",
+                    retryPolicy.delayMs(next), next, retryPolicy.maxAttempts(), e.getMessage());
+                chatMessageProducer.sendToRetry(message, next, retryPolicy.queueFor(next));
+                chatMetrics.consumerRetry(next);
+            } else {
+                log.error("Mesaj {} denemeden sonra kaydedilemedi, ölü mesaj kuyruğuna gönderiliyor", next - 1, e);
+                chatMessageProducer.sendToDeadLetter(message, next - 1, e);
+                chatMetrics.deadLettered();
+            }
+        }
     }
 }
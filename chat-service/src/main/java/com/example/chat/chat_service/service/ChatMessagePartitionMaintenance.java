@@ -0,0 +1,163 @@
+package com.example.chat.chat_service.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * ChatMessagePartitionMaintenance, aylık chat_messages partition'larını yönetir.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>chat_messages tablosu timestamp sütununa göre aylık partition'lara bölünmüştür (V3 migrasyonu).</li>
+ *   <li>Yeni partition'lar önceden oluşturulmazsa mesajlar default partition'a düşer; bu iş her gün önümüzdeki ayların partition'larını hazırlar.</li>
+ *   <li>Retention (saklama) süresini aşan partition'lar ana tablodan ayrılır (DETACH) ve arşiv şemasına taşınır; veri silinmez.</li>
+ *   <li>Arşivlenen tablonun conversations'a foreign key'i kaldırılır; aksi halde arşivde mesajı olan bir sohbet
+ *       (ör: arkadaşlık silinince ConversationPurgeService tarafından) hiçbir zaman silinemezdi.</li>
+ *   <li>@Scheduled: Metodun cron ifadesine göre periyodik çalışmasını sağlar.</li>
+ *   <li>@EventListener(ApplicationReadyEvent): Uygulama açıldığında bakımın bir kez hemen çalışmasını sağlar.</li>
+ * </ul>
+ */
+@Service
+public class ChatMessagePartitionMaintenance {
+    private static final Logger log = LoggerFactory.getLogger(ChatMessagePartitionMaintenance.class);
+
+    /**
+     * Aylık partition isimlerinin biçimi (ör: chat_messages_p202501).
+     */
+    private static final Pattern PARTITION_NAME = Pattern.compile("chat_messages_p(\\d{6})");
+
+    /**
+     * Arşiv şeması adı için izin verilen karakterler (SQL'e doğrudan yazıldığı için doğrulanır).
+     */
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    /**
+     * SQL komutlarını çalıştırmak için kullanılır.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Her partition'ın ayrılıp taşınmasını tek bir transaction içinde yapmak için kullanılır.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Kaç ay ilerisi için partition hazırlanacağı.
+     */
+    @Value("${chat.messages.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    /**
+     * Mesajların ana tabloda tutulacağı ay sayısı. 0 veya negatif ise retention kapalıdır.
+     */
+    @Value("${chat.messages.retention-months:0}")
+    private int retentionMonths;
+
+    /**
+     * Süresi dolan partition'ların taşınacağı şema.
+     */
+    @Value("${chat.messages.archive-schema:chat_archive}")
+    private String archiveSchema;
+
+    /**
+     * Uygulama açıldığında bakımı bir kez çalıştırır.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        runMaintenance();
+    }
+
+    /**
+     * Her gün (varsayılan 03:15) partition oluşturma ve retention işlerini çalıştırır.
+     */
+    @Scheduled(cron = "${chat.messages.partition-maintenance-cron:0 15 3 * * *}")
+    public void runMaintenance() {
+        try {
+            createUpcomingPartitions();
+            archiveExpiredPartitions();
+        } catch (RuntimeException e) {
+            // Bakım hatası uygulamayı durdurmamalı; default partition mesajları güvenle tutar.
+            log.error("chat_messages partition bakımı başarısız", e);
+        }
+    }
+
+    /**
+     * İçinde bulunulan ay ve sonraki partitionsAhead ay için partition oluşturur.
+     */
+    public void createUpcomingPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            LocalDate monthStart = current.plusMonths(i).atDay(1);
+            jdbcTemplate.queryForObject("SELECT create_chat_messages_partition(?)", String.class, monthStart);
+        }
+    }
+
+    /**
+     * Retention süresini aşan aylık partition'ları ana tablodan ayırır ve arşiv şemasına taşır.
+     * <p>
+     * <b>Nasıl çalışır?</b> Ayrılan partition'a artık chat_messages sorguları ulaşmaz; tablo arşiv şemasında
+     * durduğu için gerektiğinde dışa aktarılabilir veya tekrar eklenebilir (ATTACH PARTITION).
+     * Ayrılan partition, ana tablonun foreign key'lerinin kendi kopyalarını taşır; bunlar aynı transaction'da kaldırılır.
+     * Arşivdeki conversation_id değerleri silinmiş sohbetleri gösterebilir.
+     * </p>
+     */
+    public void archiveExpiredPartitions() {
+        if (retentionMonths <= 0) return;
+        if (!IDENTIFIER.matcher(archiveSchema).matches()) {
+            throw new IllegalStateException("Geçersiz arşiv şeması adı: " + archiveSchema);
+        }
+        // Önceki sürümlerin foreign key'leriyle arşivlediği tablolar
+        transactionTemplate.executeWithoutResult(status -> dropArchivedForeignKeys());
+        YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+        List<String> partitions = jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'chat_messages'", String.class);
+        for (String partition : partitions) {
+            Matcher m = PARTITION_NAME.matcher(partition);
+            if (!m.matches()) continue;
+            YearMonth month = YearMonth.parse(m.group(1), DateTimeFormatter.ofPattern("yyyyMM"));
+            if (!month.isBefore(oldestKept)) continue;
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+                jdbcTemplate.execute("ALTER TABLE chat_messages DETACH PARTITION " + partition);
+                jdbcTemplate.execute("ALTER TABLE " + partition + " SET SCHEMA " + archiveSchema);
+                dropArchivedForeignKeys();
+            });
+            log.info("chat_messages partition'ı arşivlendi: {} -> {}", partition, archiveSchema);
+        }
+    }
+
+    /**
+     * Arşiv şemasındaki tabloların foreign key kısıtlarını kaldırır.
+     */
+    private void dropArchivedForeignKeys() {
+        List<String> statements = jdbcTemplate.queryForList(
+            "SELECT format('ALTER TABLE %I.%I DROP CONSTRAINT %I', n.nspname, t.relname, c.conname) " +
+            "FROM pg_constraint c " +
+            "JOIN pg_class t ON t.oid = c.conrelid " +
+            "JOIN pg_namespace n ON n.oid = t.relnamespace " +
+            "WHERE c.contype = 'f' AND n.nspname = ?", String.class, archiveSchema);
+        for (String statement : statements) {
+            jdbcTemplate.execute(statement);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.chat.chat_service.service;
 
+import com.example.chat.chat_service.config.RabbitMQConfig;
 import com.example.chat.chat_service.model.ChatMessage;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +14,8 @@ import org.springframework.stereotype.Service;
  *   <li>@Service: Bu sınıfın bir servis (iş katmanı) olduğunu belirtir.</li>
  *   <li>RabbitTemplate: Spring'in RabbitMQ ile mesaj göndermek için kullandığı yardımcı sınıftır.</li>
  *   <li>EXCHANGE ve ROUTING_KEY: Mesajların hangi exchange ve routing key ile gönderileceğini belirler.</li>
+ *   <li>Kaydedilemeyen mesajlar gecikme kuyruğuna (sendToRetry) veya ölü mesaj kuyruğuna (sendToDeadLetter) bu sınıf üzerinden gönderilir;
+ *       kaçıncı deneme olduğu RETRY_ATTEMPT_HEADER başlığında taşınır.</li>
  * </ul>
  */
 @Service
@@ -25,6 +28,19 @@ public class ChatMessageProducer {
      * Mesajların yönlendirileceği routing key.
      */
     private static final String ROUTING_KEY = "chat.message";
+    /**
+     * Mesajın kaçıncı kez tekrar denendiğini taşıyan başlık (ilk teslimde yoktur).
+     */
+    public static final String RETRY_ATTEMPT_HEADER = "x-chat-retry-attempt";
+    /**
+     * Ölü mesaj kuyruğundaki mesajın son hatasını taşıyan başlık.
+     */
+    public static final String ERROR_HEADER = "x-chat-error";
+
+    /**
+     * Ölü mesaj başlığına yazılacak hata açıklamasının en fazla uzunluğu.
+     */
+    private static final int MAX_ERROR_LENGTH = 500;
 
     /**
      * Mesajları RabbitMQ'ya göndermek için kullanılan Spring bileşeni.
@@ -42,4 +58,33 @@ public class ChatMessageProducer {
     public void sendMessage(ChatMessage message) {
         rabbitTemplate.convertAndSend(EXCHANGE, ROUTING_KEY, message);
     }
+
+    /**
+     * Kaydedilemeyen mesajı, attempt'inci denemenin gecikme kuyruğuna gönderir; süre dolunca ana kuyruğa geri döner.
+     * @param message Kuyruktan alınan chat mesajı
+     * @param attempt Tekrar denemenin sırası (1'den başlar)
+     * @param queue Gecikme kuyruğunun adı (ChatMessageRetryPolicy.queueFor)
+     */
+    public void sendToRetry(ChatMessage message, int attempt, String queue) {
+        rabbitTemplate.convertAndSend(RabbitMQConfig.RETRY_EXCHANGE, queue, message, m -> {
+            m.getMessageProperties().setHeader(RETRY_ATTEMPT_HEADER, attempt);
+            return m;
+        });
+    }
+
+    /**
+     * Tekrar deneme hakkı biten mesajı ölü mesaj kuyruğuna gönderir; mesaj orada elle incelenene kadar bekler.
+     * @param message Kuyruktan alınan chat mesajı
+     * @param attempts Yapılan tekrar deneme sayısı
+     * @param error Son hata
+     */
+    public void sendToDeadLetter(ChatMessage message, int attempts, Throwable error) {
+        String description = error.getClass().getName() + ": " + error.getMessage();
+        String truncated = description.length() > MAX_ERROR_LENGTH ? description.substring(0, MAX_ERROR_LENGTH) : description;
+        rabbitTemplate.convertAndSend(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.ROUTING_KEY, message, m -> {
+            m.getMessageProperties().setHeader(RETRY_ATTEMPT_HEADER, attempts);
+            m.getMessageProperties().setHeader(ERROR_HEADER, truncated);
+            return m;
+        });
+    }
 }
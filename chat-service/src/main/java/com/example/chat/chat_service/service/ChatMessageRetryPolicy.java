@@ -0,0 +1,51 @@
+package com.example.chat.chat_service.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * ChatMessageRetryPolicy, kuyruktan alınıp kaydedilemeyen mesajların kaç kez ve ne kadar arayla tekrar deneneceğini belirler.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>n'inci deneme chat.consumer.retry.initial-interval-ms * multiplier^(n-1) sonra yapılır (üstel geri çekilme, exponential backoff).
+ *       Varsayılanlarla 1 sn, 5 sn, 25 sn.</li>
+ *   <li>Her bekleme süresi için ayrı bir gecikme kuyruğu vardır (RabbitMQConfig): mesaj TTL dolunca ana kuyruğa geri döner.
+ *       Kuyruk adı süreyi içerdiği için (ör: chat.queue.retry.5000) süreler değiştirildiğinde mevcut kuyruklarla çakışma olmaz.</li>
+ *   <li>max-attempts deneme de başarısız olursa mesaj ölü mesaj kuyruğuna (chat.queue.dlq) gönderilir.</li>
+ * </ul>
+ */
+@Component
+public class ChatMessageRetryPolicy {
+    @Value("${chat.consumer.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${chat.consumer.retry.initial-interval-ms:1000}")
+    private long initialIntervalMs;
+
+    @Value("${chat.consumer.retry.multiplier:5}")
+    private double multiplier;
+
+    /**
+     * Ölü mesaj kuyruğuna göndermeden önce yapılacak en fazla tekrar deneme sayısı.
+     */
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param attempt Tekrar denemenin sırası (1'den başlar)
+     * @return Denemeden önce beklenecek süre (milisaniye)
+     */
+    public long delayMs(int attempt) {
+        return (long) (initialIntervalMs * Math.pow(multiplier, attempt - 1));
+    }
+
+    /**
+     * @param attempt Tekrar denemenin sırası (1'den başlar)
+     * @return Mesajın bekletileceği gecikme kuyruğunun adı (aynı zamanda routing key)
+     */
+    public String queueFor(int attempt) {
+        return "chat.queue.retry." + delayMs(attempt);
+    }
+}
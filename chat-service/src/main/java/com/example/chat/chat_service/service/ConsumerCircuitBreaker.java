@@ -0,0 +1,137 @@
+package com.example.chat.chat_service.service;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.chat.chat_service.config.RabbitMQConfig;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * ConsumerCircuitBreaker, veritabanı erişilemezken RabbitMQ consumer'ını (ChatMessageConsumer) durdurur ve düzelince yeniden başlatır.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Kapalı (normal): Mesajlar tüketilir. Bir mesaj kaydedilemezse veritabanı "SELECT 1" ile yoklanır;
+ *       veritabanı da cevap vermiyorsa devre açılır.</li>
+ *   <li>Açık: Listener container durdurulur; onaylanmamış mesajlar kuyruğa geri döner ve orada bekler.
+ *       Böylece her mesaj gecikme kuyruklarında dolaşıp deneme hakkını boşuna tüketmez, CPU ve broker trafiği harcanmaz.</li>
+ *   <li>Yarı açık: chat.consumer.circuit.probe-interval-ms aralığıyla veritabanı yoklanır; cevap verirse container tekrar başlatılır.</li>
+ *   <li>Container, listener thread'i içinden durdurulamaz (kendi bitmesini bekler); bu yüzden durdurma TaskScheduler'a verilir.</li>
+ *   <li>MeterBinder: Devrenin durumu (chat.rabbit.consumer.circuit.open) ve ölü mesaj kuyruğundaki mesaj sayısı
+ *       (chat.rabbit.dlq.depth) metrik olarak kaydedilir. Kuyruk derinliği her Prometheus okumasında değil, yoklama sırasında güncellenir.</li>
+ * </ul>
+ */
+@Service
+public class ConsumerCircuitBreaker implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(ConsumerCircuitBreaker.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    private final AtomicBoolean open = new AtomicBoolean();
+
+    /**
+     * Ölü mesaj kuyruğundaki son okunan mesaj sayısı; broker'a ulaşılamadıysa NaN.
+     */
+    private volatile double deadLetterDepth = Double.NaN;
+
+    /**
+     * Consumer bir mesajı kaydedemediğinde çağrılır; veritabanı erişilemiyorsa devreyi açar ve consumer'ı durdurur.
+     * @param error Kaydetme hatası
+     */
+    public void onFailure(RuntimeException error) {
+        if (open.get() || databaseAvailable()) return;
+        if (open.compareAndSet(false, true)) {
+            log.warn("Veritabanına ulaşılamıyor, RabbitMQ consumer'ı durduruluyor: {}", error.getMessage());
+            taskScheduler.schedule(this::pause, Instant.now());
+        }
+    }
+
+    /**
+     * Devre açıksa consumer durdurulmuştur.
+     */
+    public boolean isOpen() {
+        return open.get();
+    }
+
+    /**
+     * Devre açıksa veritabanını yoklar, cevap verirse consumer'ı yeniden başlatır; ölü mesaj kuyruğunun derinliğini günceller.
+     */
+    @Scheduled(fixedDelayString = "${chat.consumer.circuit.probe-interval-ms:5000}")
+    public void probe() {
+        refreshDeadLetterDepth();
+        if (open.get() && databaseAvailable()) {
+            resume();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("chat.rabbit.consumer.circuit.open", this, b -> b.isOpen() ? 1 : 0)
+            .description("Veritabanı erişilemediği için RabbitMQ consumer'ı durdurulduysa 1")
+            .register(registry);
+        Gauge.builder("chat.rabbit.dlq.depth", this, b -> b.deadLetterDepth)
+            .description("Ölü mesaj kuyruğunda (chat.queue.dlq) bekleyen mesajlar")
+            .register(registry);
+    }
+
+    private synchronized void pause() {
+        if (!open.get()) return;
+        MessageListenerContainer container = container();
+        if (container != null && container.isRunning()) container.stop();
+    }
+
+    private synchronized void resume() {
+        if (!open.compareAndSet(true, false)) return;
+        log.info("Veritabanı tekrar erişilebilir, RabbitMQ consumer'ı yeniden başlatılıyor");
+        MessageListenerContainer container = container();
+        if (container != null && !container.isRunning()) container.start();
+    }
+
+    private MessageListenerContainer container() {
+        return listenerRegistry.getListenerContainer(ChatMessageConsumer.LISTENER_ID);
+    }
+
+    private boolean databaseAvailable() {
+        try {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void refreshDeadLetterDepth() {
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(RabbitMQConfig.DEAD_LETTER_QUEUE);
+            deadLetterDepth = info != null ? info.getMessageCount() : Double.NaN;
+        } catch (AmqpException e) {
+            deadLetterDepth = Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.chat.chat_service.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * ConversationExportService, bir sohbetin tüm mesajlarını tek seferde JSON satırları (NDJSON) veya CSV olarak dışa aktarır.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Mesajlar listeye toplanmaz: PostgreSQL sürücüsü fetch size verildiğinde sonucu sunucu tarafı cursor ile
+ *       chat.export.fetch-size'lık parçalar halinde getirir, her satır okunduğu anda çıktıya yazılır.
+ *       Bellek kullanımı sohbetin büyüklüğünden bağımsızdır.</li>
+ *   <li>Cursor yalnızca autocommit kapalıyken çalışır; bu yüzden sorgu readOnly bir transaction içinde çalışır
+ *       (okuma kopyası tanımlıysa bağlantı replica havuzundan alınır).</li>
+ *   <li>Çıktı doğrudan HTTP yanıtına yazılır (istenirse GZIPOutputStream ile sıkıştırılarak); istemci bağlantıyı keserse
+ *       yazma hatası sorguyu durdurur ve transaction geri alınır.</li>
+ *   <li>Dışa aktarma boyunca bir veritabanı bağlantısı tutulur; aynı anda çalışan dışa aktarma sayısı
+ *       chat.export.max-concurrent ile sınırlıdır, böylece yavaş indirmeler mesaj gönderme yolunun bağlantılarını tüketmez.</li>
+ *   <li>Hak, gövde hiç çalışmasa bile (ör: async zaman aşımı veya istemci gövde başlamadan bağlantıyı kesti) isteğin
+ *       async işlemi bittiğinde CallableProcessingInterceptor.afterCompletion ile geri verilir.</li>
+ * </ul>
+ */
+@Service
+public class ConversationExportService {
+    private static final String SQL = "SELECT id, sender, content, timestamp, channel, client_message_id FROM chat_messages "
+        + "WHERE conversation_id = ? AND timestamp >= ? AND timestamp <= ? ORDER BY timestamp, id";
+
+    /**
+     * Veritabanında hiçbir mesajdan eski olmayan alt sınır (from verilmediğinde).
+     */
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /**
+     * Dışa aktarma biçimi.
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        /**
+         * İstek parametresini biçime çevirir (büyük/küçük harf duyarsız).
+         * @param value ndjson veya csv
+         * @return Biçim
+         */
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Desteklenmeyen biçim: " + value + " (ndjson veya csv)");
+            }
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Cursor'dan tek seferde getirilecek satır sayısı.
+     */
+    @Value("${chat.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${chat.export.max-concurrent:4}")
+    private int maxConcurrent;
+
+    private Semaphore permits;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(maxConcurrent);
+        readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Sohbetin [from, to] aralığındaki mesajlarını eskiden yeniye yazacak yanıt gövdesini hazırlar.
+     * <p>
+     * <b>Nasıl çalışır?</b> Dışa aktarma hakkı (permit) bu çağrıda, yanıt başlıkları yazılmadan önce alınır; sınır doluysa 429 döner.
+     * Gövde çalıştığında sorgu readOnly transaction'da fetch size ile çalışır, her satır okunduğu anda yazılır ve sonunda hak geri verilir.
+     * Gövde hiç çalışmazsa hak, isteğin async işlemi bittiğinde geri verilir; iki yol da aynı hakkı yalnızca bir kez bırakır.
+     * </p>
+     * @param participants Sohbet (katılımcı kontrolü çağıran tarafından yapılmıştır)
+     * @param from Başlangıç zamanı (null ise sohbetin başı)
+     * @param to Bitiş zamanı
+     * @param format Çıktı biçimi
+     * @param gzip Çıktı gzip ile sıkıştırılsın mı
+     * @param request Gövdeyi döndürecek istek (async tamamlanma bildirimi için)
+     * @return HTTP yanıtına yazılacak gövde
+     */
+    public StreamingResponseBody open(ConversationParticipantCache.Participants participants, LocalDateTime from, LocalDateTime to,
+                                      Format format, boolean gzip, WebRequest request) {
+        if (!permits.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Şu anda çok fazla dışa aktarma çalışıyor, daha sonra tekrar deneyin.");
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) permits.release();
+        };
+        try {
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ConversationExportService.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        release.run();
+                    }
+                });
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        return out -> {
+            try {
+                write(participants.conversationId(), from != null ? from : BEGINNING, to, format, gzip, out);
+            } finally {
+                release.run();
+            }
+        };
+    }
+
+    /**
+     * Mesajları cursor'dan okuyup out'a yazar. out kapatılmaz; sıkıştırılıyorsa gzip sonu (trailer) yazılıp flush edilir.
+     * @throws IOException Yanıta yazılamazsa (ör: istemci bağlantıyı kesti)
+     */
+    private void write(Long conversationId, LocalDateTime from, LocalDateTime to, Format format, boolean compress,
+                       OutputStream out) throws IOException {
+        GZIPOutputStream gzip = compress ? new GZIPOutputStream(out, 8192) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip != null ? gzip : out, StandardCharsets.UTF_8), 8192);
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new JsonRowWriter(writer);
+        rows.start();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setLong(1, conversationId);
+                ps.setTimestamp(2, Timestamp.valueOf(from));
+                ps.setTimestamp(3, Timestamp.valueOf(to));
+                return ps;
+            }, rs -> {
+                try {
+                    rows.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rows.finish();
+        writer.flush();
+        if (gzip != null) gzip.finish();
+        out.flush();
+    }
+
+    /**
+     * Cursor'daki o anki satırı seçilen biçimde yazar.
+     */
+    private interface RowWriter {
+        default void start() throws IOException {
+        }
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        default void finish() throws IOException {
+        }
+    }
+
+    /**
+     * Her satıra bir JSON nesnesi yazar; alan adları REST API'deki ChatMessage ile aynıdır.
+     */
+    private class JsonRowWriter implements RowWriter {
+        private final Writer writer;
+        private final JsonGenerator json;
+
+        JsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.json = objectMapper.getFactory().createGenerator(writer)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setPrettyPrinter(new MinimalPrettyPrinter(""));
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong("id"));
+            json.writeStringField("sender", rs.getString("sender"));
+            json.writeStringField("content", rs.getString("content"));
+            json.writeStringField("timestamp", rs.getObject("timestamp", LocalDateTime.class).toString());
+            json.writeStringField("channel", rs.getString("channel"));
+            json.writeStringField("clientMessageId", rs.getString("client_message_id"));
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.close();
+        }
+    }
+
+    /**
+     * RFC 4180 CSV: başlık satırı, ardından her mesaj için bir satır. Virgül, tırnak veya satır sonu içeren alanlar tırnak içine alınır.
+     */
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            writer.write("id,sender,timestamp,channel,client_message_id,content\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(Long.toString(rs.getLong("id")));
+            writer.write(',');
+            field(rs.getString("sender"));
+            writer.write(',');
+            writer.write(rs.getObject("timestamp", LocalDateTime.class).toString());
+            writer.write(',');
+            field(rs.getString("channel"));
+            writer.write(',');
+            field(rs.getString("client_message_id"));
+            writer.write(',');
+            field(rs.getString("content"));
+            writer.write("\r\n");
+        }
+
+        private void field(String value) throws IOException {
+            if (value == null) return;
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.chat.chat_service.service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.chat.chat_service.cache.LruCache;
+import com.example.chat.chat_service.model.Conversation;
+import com.example.chat.chat_service.repository.ConversationRepository;
+import com.example.chat.chat_service.repository.FriendRequestRepository;
+
+/**
+ * ConversationParticipantCache, sohbet katılımcılarını (conversation id → iki kullanıcı) bellekte tutar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Mesaj gönderirken her seferinde conversation ve arkadaşlık sorgusu yapmak yerine sonuç bir kez yüklenip önbellekte tutulur.</li>
+ *   <li>Yalnızca arkadaşlığı doğrulanmış sohbetler önbelleğe alınır; böylece önbellekteki kayıt "mesaj gönderilebilir" anlamına gelir.</li>
+ *   <li>Arkadaşlık silindiğinde (UserController.removeFriend) kayıt evict ile önbellekten çıkarılır.</li>
+ *   <li>Evict'ten önce başlamış bir yükleme, arkadaşlığı silinmeden önceki durumu okumuş olabilir; bu yüzden her evict
+ *       bir sayacı (generation) artırır ve yükleme sırasında sayaç değiştiyse sonuç önbelleğe yazılmaz.</li>
+ *   <li>LruCache boyutu sınırlıdır; en az kullanılan sohbetler otomatik olarak düşer.</li>
+ * </ul>
+ */
+@Service
+public class ConversationParticipantCache {
+    /**
+     * Bir sohbetin katılımcı bilgisi.
+     * @param conversationId Sohbet id'si
+     * @param user1 Birinci kullanıcı
+     * @param user2 İkinci kullanıcı
+     * @param createdAt Sohbetin oluşturulma zamanı
+     * @param friends İki kullanıcı hâlâ arkadaş mı (önbellekteki kayıtlar için her zaman true)
+     */
+    public record Participants(Long conversationId, String user1, String user2, LocalDateTime createdAt, boolean friends) {
+        /**
+         * Kullanıcının bu sohbetin katılımcısı olup olmadığını kontrol eder (büyük/küçük harf duyarsız).
+         */
+        public boolean includes(String username) {
+            return user1.equalsIgnoreCase(username) || user2.equalsIgnoreCase(username);
+        }
+
+        /**
+         * Verilen kullanıcının karşısındaki katılımcıyı döndürür (ör: mesajın alıcısı).
+         */
+        public String otherThan(String username) {
+            return user1.equalsIgnoreCase(username) ? user2 : user1;
+        }
+
+        /**
+         * Mesaja bağlanmak üzere yeni bir Conversation nesnesi üretir (veritabanına gitmeden).
+         * <p>
+         * <b>Nasıl çalışır?</b> JPA, ChatMessage kaydederken yalnızca conversation id'sini (foreign key) kullanır;
+         * user1/user2 alanları ise mesaj JSON'unda eskisi gibi görünür.
+         * </p>
+         */
+        public Conversation toConversation() {
+            Conversation conv = new Conversation();
+            conv.setId(conversationId);
+            conv.setUser1(user1);
+            conv.setUser2(user2);
+            conv.setCreatedAt(createdAt);
+            return conv;
+        }
+    }
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private FriendRequestRepository friendRequestRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Arkadaşlığı doğrulanmış sohbetlerin önbelleği.
+     */
+    private final LruCache<Long, Participants> cache;
+
+    /**
+     * Evict sayısı; yükleme başladıktan sonra değiştiyse yüklenen sonuç önbelleğe yazılmaz.
+     * Yalnızca cache kilidi altında değiştirilir ve karşılaştırılır.
+     */
+    private volatile long generation;
+
+    /**
+     * @param maxEntries Önbellekte tutulacak en fazla sohbet sayısı
+     */
+    public ConversationParticipantCache(@Value("${chat.conversation-cache.max-entries:10000}") int maxEntries) {
+        this.cache = new LruCache<>(maxEntries);
+    }
+
+    /**
+     * Sohbetin katılımcılarını döndürür.
+     * <p>
+     * <b>Nasıl çalışır?</b> Önbellekte varsa hiçbir SQL çalışmaz. Yoksa conversation ve arkadaşlık durumu yüklenir;
+     * kullanıcılar arkadaşsa sonuç önbelleğe yazılır. Yükleme readOnly olmayan bir transaction'da yapılır; böylece
+     * okuma kopyası (replica) tanımlıyken de az önce oluşturulan sohbet ve arkadaşlık primary'den okunur.
+     * Yükleme sürerken evict çağrıldıysa sonuç döndürülür ama önbelleğe yazılmaz (bir sonraki çağrı yeniden yükler).
+     * </p>
+     * @param conversationId Sohbet id'si
+     * @return Katılımcılar, sohbet yoksa boş
+     */
+    public Optional<Participants> resolve(Long conversationId) {
+        Participants cached = cache.get(conversationId);
+        if (cached != null) return Optional.of(cached);
+        long loadGeneration = generation;
+        Optional<Participants> loaded = transactionTemplate.execute(status -> conversationRepository.findById(conversationId)
+            .map(c -> new Participants(c.getId(), c.getUser1(), c.getUser2(), c.getCreatedAt(),
+                friendRequestRepository.existsAcceptedBetween(c.getUser1(), c.getUser2()))));
+        loaded.filter(Participants::friends).ifPresent(p -> {
+            synchronized (cache) {
+                if (generation == loadGeneration) cache.put(conversationId, p);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Sohbeti önbellekten çıkarır (sohbet silindiğinde veya arkadaşlık bittiğinde çağrılır).
+     * @param conversationId Sohbet id'si
+     */
+    public void evict(Long conversationId) {
+        synchronized (cache) {
+            generation++;
+            cache.remove(conversationId);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.chat.chat_service.service;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import com.example.chat.chat_service.repository.ChatMessageRepository;
+import com.example.chat.chat_service.repository.ConversationRepository;
+
+/**
+ * ConversationPurgeService, silinen sohbetlerin mesajlarını arka planda parça parça siler.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Arkadaşlık silindiğinde sohbet önce işaretlenir (ConversationRepository.markForPurge), HTTP isteği hemen döner.</li>
+ *   <li>@Async: purge metodu çağıran thread'i bekletmeden arka plan thread'inde çalışır (bkz. AsyncConfig).</li>
+ *   <li>Mesajlar belleğe yüklenmeden, her biri en fazla chat.purge.batch-size satır silen DELETE komutlarıyla silinir.</li>
+ *   <li>İş bitince sohbet kanalına {"type":"conversation-deleted"} olayı WebSocket ile gönderilir.</li>
+ *   <li>Uygulama silme sırasında kapanırsa, işaretli sohbetler bir sonraki açılışta silinmeye devam eder.</li>
+ * </ul>
+ */
+@Service
+public class ConversationPurgeService {
+    private static final Logger log = LoggerFactory.getLogger(ConversationPurgeService.class);
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    /**
+     * Tamamlanma olayını WebSocket ile göndermek için kullanılır.
+     */
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Bir DELETE komutunda silinecek en fazla mesaj sayısı.
+     */
+    @Value("${chat.purge.batch-size:5000}")
+    private int batchSize;
+
+    /**
+     * Sohbetin tüm mesajlarını ve sohbetin kendisini arka planda siler.
+     * Çağırmadan önce sohbet markForPurge ile işaretlenmelidir.
+     * @param conversationId Sohbet id'si
+     */
+    @Async
+    public void purge(Long conversationId) {
+        purgeNow(conversationId);
+    }
+
+    /**
+     * Uygulama açıldığında yarım kalmış silme işlerini tamamlar.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingPurges() {
+        for (Long conversationId : conversationRepository.findIdsMarkedForPurge()) {
+            purgeNow(conversationId);
+        }
+    }
+
+    /**
+     * Silme işini çağıran thread'de çalıştırır.
+     * <p>
+     * <b>Nasıl çalışır?</b> deleteBatchByConversationId, batchSize'dan az satır silene kadar tekrar çağrılır;
+     * ardından sohbet satırı silinir ve olay yayınlanır.
+     * </p>
+     */
+    private void purgeNow(Long conversationId) {
+        try {
+            long deleted = 0;
+            int batch;
+            do {
+                batch = chatMessageRepository.deleteBatchByConversationId(conversationId, batchSize);
+                deleted += batch;
+            } while (batch >= batchSize);
+            conversationRepository.deleteById(conversationId);
+            log.info("Sohbet silindi: id={}, silinen mesaj={}", conversationId, deleted);
+            messagingTemplate.convertAndSend("/topic/conversation/" + conversationId, Map.of(
+                "type", "conversation-deleted",
+                "conversationId", conversationId,
+                "deletedMessages", deleted
+            ));
+        } catch (RuntimeException e) {
+            // Sohbet işaretli kaldığı için bir sonraki açılışta tekrar denenir
+            log.error("Sohbet silinemedi: id={}", conversationId, e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.chat.chat_service.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.chat.chat_service.cache.LruCache;
+import com.example.chat.chat_service.model.ChatMessage;
+import com.example.chat.chat_service.model.User;
+import com.example.chat.chat_service.repository.ConversationRepository;
+import com.example.chat.chat_service.repository.ConversationRepository.InboxRow;
+
+/**
+ * InboxService, kullanıcının sohbet listesini (inbox) son mesajları ve okunmamış sayılarıyla birlikte hazırlar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Sohbetler, son mesajlar ve okunmamış sayıları tek bir SQL sorgusuyla okunur (ConversationRepository.findInbox).</li>
+ *   <li>Sonuç kullanıcı başına LruCache'te tutulur; mesaj gönderme, silme, okuma ve arkadaşlık değişikliklerinde invalidate ile temizlenir.</li>
+ *   <li>Henüz veritabanına yazılmamış okunmamış artışları (UnreadCounterService) her istekte bellekten eklenir.</li>
+ * </ul>
+ */
+@Service
+public class InboxService {
+    /**
+     * Inbox'taki bir sohbet.
+     * @param conversationId Sohbet id'si
+     * @param user1 Birinci kullanıcı
+     * @param user2 İkinci kullanıcı
+     * @param createdAt Sohbetin oluşturulma zamanı
+     * @param lastMessage Sohbetteki son mesaj (mesaj yoksa null)
+     * @param unreadCount Kullanıcının bu sohbetteki okunmamış mesaj sayısı
+     */
+    public record InboxEntry(Long conversationId, String user1, String user2, LocalDateTime createdAt,
+                             ChatMessage lastMessage, long unreadCount) {
+        InboxEntry withUnreadCount(long count) {
+            return new InboxEntry(conversationId, user1, user2, createdAt, lastMessage, count);
+        }
+    }
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    /**
+     * Kullanıcı anahtarı → inbox (okunmamış sayıları veritabanındaki değerlerdir).
+     */
+    private final LruCache<String, List<InboxEntry>> cache;
+
+    /**
+     * @param cacheSize Önbellekte inbox'ı tutulacak en fazla kullanıcı sayısı
+     */
+    public InboxService(@Value("${chat.inbox.cache-size:10000}") int cacheSize) {
+        this.cache = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * Kullanıcının inbox'ını döndürür (son mesajı en yeni olan sohbet önce).
+     * @param username Kullanıcı adı
+     * @return Sohbetler
+     */
+    public List<InboxEntry> getInbox(String username) {
+        String key = User.normalize(username);
+        List<InboxEntry> entries = cache.computeIfAbsent(key, k -> load(username, k));
+        Map<Long, Long> pending = unreadCounterService.pendingFor(username);
+        if (pending.isEmpty()) return entries;
+        return entries.stream()
+            .map(e -> e.withUnreadCount(e.unreadCount() + pending.getOrDefault(e.conversationId(), 0L)))
+            .toList();
+    }
+
+    /**
+     * Kullanıcıların önbellekteki inbox'larını temizler.
+     * @param usernames Kullanıcı adları
+     */
+    public void invalidate(String... usernames) {
+        for (String username : usernames) {
+            if (username != null) cache.remove(User.normalize(username));
+        }
+    }
+
+    /**
+     * Inbox'ı veritabanından tek sorguyla yükler.
+     */
+    private List<InboxEntry> load(String username, String usernameKey) {
+        return conversationRepository.findInbox(username, usernameKey).stream()
+            .map(InboxService::toEntry)
+            .toList();
+    }
+
+    private static InboxEntry toEntry(InboxRow row) {
+        ChatMessage last = null;
+        if (row.getLastMessageId() != null) {
+            last = new ChatMessage();
+            last.setId(row.getLastMessageId());
+            last.setSender(row.getLastMessageSender());
+            last.setContent(row.getLastMessageContent());
+            last.setTimestamp(row.getLastMessageTimestamp());
+            last.setChannel(row.getLastMessageChannel());
+        }
+        return new InboxEntry(row.getConversationId(), row.getUser1(), row.getUser2(), row.getCreatedAt(),
+            last, row.getUnreadCount());
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.chat.chat_service.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.chat.chat_service.cache.LruCache;
+import com.example.chat.chat_service.model.ChatMessage;
+import com.example.chat.chat_service.model.User;
+import com.example.chat.chat_service.repository.ChatMessageRepository;
+
+/**
+ * MessageDeduplicator, istemcinin tekrar gönderdiği (retry) mesajların ikinci kez kaydedilip yayınlanmasını engeller.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>İstemci her mesaja bir clientMessageId (ör: UUID) verir; retry'larda aynı kimliği tekrar gönderir.</li>
+ *   <li>Son görülen kimlikler LruCache'te chat.dedup.window-seconds boyunca tutulur; tekrar gelen mesaj veritabanına gitmeden yakalanır.</li>
+ *   <li>Kesin kontrol veritabanındadır: mesaj ve chat_message_dedup satırı aynı transaction'da eklenir;
+ *       (gönderen, clientMessageId) zaten varsa transaction geri alınır ve ilk kaydedilen mesaj döndürülür.</li>
+ *   <li>Bu sayede birden fazla uygulama örneği veya RabbitMQ'nun aynı mesajı tekrar teslim etmesi (redelivery) de mükerrer satır oluşturmaz.</li>
+ * </ul>
+ */
+@Service
+public class MessageDeduplicator {
+    private static final Logger log = LoggerFactory.getLogger(MessageDeduplicator.class);
+
+    /**
+     * clientMessageId için izin verilen en fazla uzunluk (chat_messages.client_message_id sütunu).
+     */
+    public static final int MAX_CLIENT_MESSAGE_ID_LENGTH = 64;
+
+    /**
+     * Kaydetme sonucu.
+     * @param message Kaydedilen mesaj veya (mükerrerse) ilk kaydedilen mesaj
+     * @param duplicate Mesaj daha önce kaydedildiyse true; bu durumda tekrar yayınlanmamalıdır
+     */
+    public record SaveResult(ChatMessage message, boolean duplicate) {
+    }
+
+    /**
+     * Önbellekteki bir kayıt: görülen mesaj ve geçerlilik süresinin bittiği an.
+     */
+    private record Seen(ChatMessage message, long expiresAtNanos) {
+    }
+
+    /**
+     * Aynı kimliğin veritabanında zaten olduğunu transaction'ı geri almak için bildiren iç hata.
+     */
+    private static final class DuplicateMessageException extends RuntimeException {
+        DuplicateMessageException() {
+            super(null, null, false, false);
+        }
+    }
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Mesaj ve dedup satırını tek transaction'da eklemek için kullanılır.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Bir kimliğin bellekte mükerrer sayılacağı süre.
+     */
+    @Value("${chat.dedup.window-seconds:300}")
+    private long windowSeconds;
+
+    /**
+     * Dedup satırlarının veritabanında tutulacağı süre.
+     */
+    @Value("${chat.dedup.retention-hours:24}")
+    private long retentionHours;
+
+    /**
+     * Gönderen anahtarı + clientMessageId → son görülen mesaj.
+     */
+    private final LruCache<String, Seen> recent;
+
+    /**
+     * @param cacheSize Bellekte tutulacak en fazla kimlik sayısı
+     */
+    public MessageDeduplicator(@Value("${chat.dedup.cache-size:100000}") int cacheSize) {
+        this.recent = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * Mesajın aynı kimlikle yakın zamanda görülüp görülmediğini bellekten kontrol eder (SQL çalıştırmaz).
+     * @param message Gelen mesaj (sender atanmış olmalı)
+     * @return Daha önce görülen mesaj (kimlik yoksa veya süresi dolduysa boş)
+     */
+    public Optional<ChatMessage> recent(ChatMessage message) {
+        String key = keyOf(message);
+        if (key == null) return Optional.empty();
+        Seen seen = recent.get(key);
+        if (seen == null || seen.expiresAtNanos() - System.nanoTime() < 0) return Optional.empty();
+        return Optional.of(seen.message());
+    }
+
+    /**
+     * Mesajın kimliğini bellekte "kabul edildi" olarak işaretler (kuyruğa gönderilen, henüz kaydedilmemiş mesajlar için).
+     * @param message Gelen mesaj (sender atanmış olmalı)
+     * @return Kimlik pencere içinde ilk kez görüldüyse true; tekrar gönderimse false
+     */
+    public boolean claim(ChatMessage message) {
+        String key = keyOf(message);
+        if (key == null) return true;
+        Seen fresh = new Seen(message, System.nanoTime() + TimeUnit.SECONDS.toNanos(windowSeconds));
+        Seen existing = recent.putIfAbsent(key, fresh);
+        if (existing == null) return true;
+        if (existing.expiresAtNanos() - System.nanoTime() >= 0) return false;
+        recent.put(key, fresh);
+        return true;
+    }
+
+    /**
+     * claim ile alınan işareti geri bırakır (ör: mesaj kuyruğa gönderilemediyse istemcinin retry'ı kabul edilsin diye).
+     * @param message claim ile işaretlenen mesaj
+     */
+    public void release(ChatMessage message) {
+        String key = keyOf(message);
+        if (key != null) recent.remove(key);
+    }
+
+    /**
+     * Mesajı kaydeder; aynı gönderen ve clientMessageId ile daha önce kaydedilmişse yeni satır eklemez.
+     * <p>
+     * <b>Nasıl çalışır?</b> INSERT chat_messages ve INSERT chat_message_dedup ... ON CONFLICT DO NOTHING aynı
+     * transaction'da çalışır. Eşzamanlı iki retry'dan ikincisi birincil anahtar kilidinde ilkinin commit'ini bekler,
+     * çakışmayı görür ve geri alınır. clientMessageId yoksa mesaj doğrudan kaydedilir.
+     * </p>
+     * @param message Kaydedilecek mesaj (sender ve timestamp atanmış olmalı)
+     * @return Kaydedilen mesaj veya ilk kaydedilen mesaj
+     */
+    public SaveResult saveOnce(ChatMessage message) {
+        String key = keyOf(message);
+        if (key == null) return new SaveResult(chatMessageRepository.save(message), false);
+        try {
+            ChatMessage saved = transactionTemplate.execute(status -> {
+                ChatMessage s = chatMessageRepository.save(message);
+                int inserted = jdbcTemplate.update(
+                    "INSERT INTO chat_message_dedup (sender_key, client_message_id, message_id, message_timestamp, created_at) " +
+                    "VALUES (?, ?, ?, ?, now()) ON CONFLICT (sender_key, client_message_id) DO NOTHING",
+                    User.normalize(message.getSender()), message.getClientMessageId(), s.getId(), Timestamp.valueOf(s.getTimestamp()));
+                if (inserted == 0) throw new DuplicateMessageException();
+                return s;
+            });
+            remember(key, saved);
+            return new SaveResult(saved, false);
+        } catch (DuplicateMessageException e) {
+            message.setId(null);
+            ChatMessage original = findPersisted(message).orElse(message);
+            remember(key, original);
+            return new SaveResult(original, true);
+        }
+    }
+
+    /**
+     * Süresi dolan dedup satırlarını siler.
+     */
+    @Scheduled(fixedDelayString = "${chat.dedup.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM chat_message_dedup WHERE created_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours)));
+            if (deleted > 0) log.debug("{} eski dedup satırı silindi", deleted);
+        } catch (RuntimeException e) {
+            log.error("chat_message_dedup temizliği başarısız", e);
+        }
+    }
+
+    /**
+     * Dedup tablosundaki kayda göre ilk kaydedilen mesajı yükler (mesaj sonradan silindiyse boş).
+     */
+    private Optional<ChatMessage> findPersisted(ChatMessage message) {
+        List<Object[]> rows = jdbcTemplate.query(
+            "SELECT message_id, message_timestamp FROM chat_message_dedup WHERE sender_key = ? AND client_message_id = ?",
+            (rs, i) -> new Object[] { rs.getLong(1), rs.getTimestamp(2).toLocalDateTime() },
+            User.normalize(message.getSender()), message.getClientMessageId());
+        if (rows.isEmpty()) return Optional.empty();
+        return chatMessageRepository.findByIdAndTimestamp((Long) rows.get(0)[0], (LocalDateTime) rows.get(0)[1]);
+    }
+
+    private void remember(String key, ChatMessage message) {
+        recent.put(key, new Seen(message, System.nanoTime() + TimeUnit.SECONDS.toNanos(windowSeconds)));
+    }
+
+    /**
+     * Önbellek anahtarını üretir; clientMessageId yoksa null döner (mesaj tekilleştirilmez).
+     */
+    private static String keyOf(ChatMessage message) {
+        String clientMessageId = message.getClientMessageId();
+        if (clientMessageId == null || clientMessageId.isBlank() || message.getSender() == null) return null;
+        if (clientMessageId.length() > MAX_CLIENT_MESSAGE_ID_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "clientMessageId en fazla " + MAX_CLIENT_MESSAGE_ID_LENGTH + " karakter olabilir.");
+        }
+        return User.normalize(message.getSender()) + "\n" + clientMessageId;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.chat.chat_service.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * MessageIdAllocator, mesaj id'lerini veritabanına her mesajda gitmeden dağıtır.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>chat_messages.id değerleri chat_messages_id_seq sequence'ından gelir; sync modda bu işi INSERT yapar.</li>
+ *   <li>Write-behind modda mesaj veritabanına yazılmadan yayınlandığı için id'nin önceden bilinmesi gerekir.</li>
+ *   <li>Tek sorguda chat.write-behind.id-block-size kadar nextval alınır (generate_series) ve bellekten sırayla verilir;
+ *       blok bitince yeni blok alınır.</li>
+ *   <li>Alınıp kullanılmayan id'ler (ör: uygulama kapanırsa) boşluk olarak kalır; sequence zaten boşluksuz olmayı garanti etmez.</li>
+ * </ul>
+ */
+@Service
+public class MessageIdAllocator {
+    /**
+     * Önceden alınmış id'ler ve sıradaki indeks.
+     */
+    private record Block(long[] ids, AtomicInteger next) {
+        Block(long[] ids) {
+            this(ids, new AtomicInteger());
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Blok sorgusunun isteğin zaten açık olan veritabanı bağlantısında çalışması için kullanılır.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Tek seferde alınacak id sayısı.
+     */
+    @Value("${chat.write-behind.id-block-size:1000}")
+    private int blockSize;
+
+    /**
+     * Id'lerin dağıtıldığı blok.
+     */
+    private final AtomicReference<Block> current = new AtomicReference<>(new Block(new long[0]));
+
+    /**
+     * Bir sonraki mesaj id'sini döndürür.
+     * <p>
+     * <b>Nasıl çalışır?</b> Blok bitince yeni blok kilit tutulmadan alınır ve compareAndSet ile yerleştirilir;
+     * aynı anda iki thread blok alırsa birinin bloğu boşa gider. Sorgu transactionTemplate içinde çalışır: çağıran zaten
+     * bir transaction içindeyse onun bağlantısı kullanılır, değilse bağlantı yalnızca bu sorgu süresince tutulur.
+     * spring.jpa.open-in-view=false olduğu için istek kendiliğinden bir bağlantı tutmaz; mesaj gönderme yolu
+     * transaction açmadığından sorgu kısa ömürlü kendi bağlantısını kullanır.
+     * </p>
+     * @return Kullanılmamış bir chat_messages id'si
+     */
+    public long next() {
+        while (true) {
+            Block block = current.get();
+            int index = block.next().getAndIncrement();
+            if (index < block.ids().length) return block.ids()[index];
+            Block fresh = new Block(transactionTemplate.execute(status -> jdbcTemplate.queryForList(
+                    "SELECT nextval('chat_messages_id_seq') FROM generate_series(1, ?)", Long.class, blockSize))
+                .stream().mapToLong(Long::longValue).toArray());
+            current.compareAndSet(block, fresh);
+        }
+    }
+}
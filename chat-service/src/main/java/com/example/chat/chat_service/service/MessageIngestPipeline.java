@@ -0,0 +1,259 @@
+package com.example.chat.chat_service.service;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.chat.chat_service.metrics.ChatMetrics;
+import com.example.chat.chat_service.model.ChatMessage;
+import com.example.chat.chat_service.model.Conversation;
+import com.example.chat.chat_service.ratelimit.SendRateLimiter;
+import com.example.chat.chat_service.service.ConversationParticipantCache.Participants;
+import com.example.chat.chat_service.service.MessageDeduplicator.SaveResult;
+
+/**
+ * MessageIngestPipeline, yeni bir mesajın uygulamaya girdiği tek yoldur: doğrula → zenginleştir → kaydet → yayınla.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>ChatController (/api/chat/send), ConversationController (/api/conversation/{id}/send) ve
+ *       ChatWebSocketController (/app/chat.send) mesajları bu servise verir; doğrulama ve yayın kuralları her yerde aynıdır.</li>
+ *   <li>Kaydetme şekli chat.ingest.mode ile seçilir:
+ *       <ul>
+ *         <li>sync: Mesaj veritabanına yazılır, sonra yayınlanır. Yanıtta mesajın id'si vardır (varsayılan).</li>
+ *         <li>async: Mesaj RabbitMQ'ya gönderilir ve hemen yayınlanır; ChatMessageConsumer kaydeder. Yanıtta id yoktur.</li>
+ *         <li>write-behind: id MessageIdAllocator'dan alınır, mesaj WAL'a eklenip hemen yayınlanır;
+ *             WriteBehindMessageWriter arka planda toplu yazar. Yanıtta id vardır, veritabanı beklenmez.</li>
+ *       </ul>
+ *   </li>
+ *   <li>Tekrar gönderilen mesajlar (aynı clientMessageId) MessageDeduplicator ile ayıklanır ve tekrar yayınlanmaz.</li>
+ *   <li>Sohbet/kanal başına gönderim sınırı (chat.rate-limit.channel.*) doğrulamadan sonra SendRateLimiter ile uygulanır;
+ *       aşılırsa 429 (RateLimitExceededException) fırlatılır. Kullanıcı başına sınır daha önce, gönderim noktalarında uygulanır.</li>
+ *   <li>Her aşama (ingest, arkadaşlık kontrolü, RabbitMQ'ya gönderme, kaydetme, yayın) ChatMetrics ile ölçülür ve trace'e eklenir.</li>
+ * </ul>
+ */
+@Service
+public class MessageIngestPipeline {
+    /**
+     * Mesajın kaydedilme şekli.
+     */
+    public enum Mode {
+        /** Kaydet, sonra yayınla. */
+        SYNC,
+        /** RabbitMQ'ya gönder ve yayınla; kaydı ChatMessageConsumer yapar. */
+        ASYNC,
+        /** id ata, WAL'a ekle ve yayınla; kaydı WriteBehindMessageWriter toplu yapar. */
+        WRITE_BEHIND
+    }
+
+    /**
+     * Mesaj içeriğinin en fazla uzunluğu (chat_messages.content sütunu).
+     */
+    public static final int MAX_CONTENT_LENGTH = 255;
+
+    @Autowired
+    private MessageDeduplicator messageDeduplicator;
+
+    @Autowired
+    private ChatMessageProducer chatMessageProducer;
+
+    @Autowired
+    private MessageIdAllocator messageIdAllocator;
+
+    @Autowired
+    private WriteBehindMessageWriter writeBehindMessageWriter;
+
+    @Autowired
+    private ConversationParticipantCache participantCache;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private InboxService inboxService;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private SendRateLimiter sendRateLimiter;
+
+    /**
+     * Mesajları WebSocket ile yayınlamak için kullanılır.
+     */
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Mesajın kaydedilme şekli (sync, async veya write-behind).
+     */
+    @Value("${chat.ingest.mode:sync}")
+    private Mode mode;
+
+    /**
+     * Yeni bir mesajı doğrular, kaydeder ve yayınlar.
+     * <p>
+     * <b>Nasıl çalışır?</b> conversationId verilirse (veya mesajın conversation alanı doluysa) gönderen sohbetin
+     * katılımcısı olmalı ve iki kullanıcı hâlâ arkadaş olmalıdır; katılımcılar ConversationParticipantCache'ten okunur.
+     * private_ kanallara yalnızca kanal adındaki kullanıcılar yazabilir.
+     * </p>
+     * @param message Gelen mesaj (sender ve timestamp alanları yok sayılır)
+     * @param sender Doğrulanmış gönderen
+     * @param conversationId Birebir sohbet id'si (kanal mesajıysa null)
+     * @return Yayınlanan mesaj; tekrar gönderimse ilk kabul edilen mesaj
+     */
+    public ChatMessage ingest(ChatMessage message, String sender, Long conversationId) {
+        return chatMetrics.stage(ChatMetrics.INGEST, mode).observe(() -> doIngest(message, sender, conversationId));
+    }
+
+    private ChatMessage doIngest(ChatMessage message, String sender, Long conversationId) {
+        // 1) Doğrula
+        if (sender == null || sender.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Gönderen belirlenemedi.");
+        }
+        if (message.getContent() == null || message.getContent().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Mesaj içeriği boş olamaz.");
+        }
+        if (message.getContent().length() > MAX_CONTENT_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Mesaj en fazla " + MAX_CONTENT_LENGTH + " karakter olabilir.");
+        }
+        if (conversationId == null && message.getConversation() != null) {
+            conversationId = message.getConversation().getId();
+        }
+        Long checkedConversationId = conversationId;
+        Participants participants = conversationId == null ? null
+            : chatMetrics.stage(ChatMetrics.FRIENDSHIP_CHECK, mode).observe(() -> requireParticipants(checkedConversationId, sender));
+        String channel = message.getChannel();
+        if (ChatMessage.isPrivateChannel(channel) && !ChatMessage.canAccessPrivateChannel(sender, channel)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bu kanala mesaj gönderemezsiniz.");
+        }
+        String channelKey = participants != null ? "conversation:" + participants.conversationId()
+            : channel != null && !channel.isEmpty() ? "channel:" + channel : null;
+        sendRateLimiter.acquireChannel(channelKey, RequestContextHolder.getRequestAttributes() != null ? "http" : "stomp");
+
+        // 2) Zenginleştir: gönderen token'dan, zaman sunucudan gelir
+        message.setId(null);
+        message.setSender(sender);
+        message.setTimestamp(LocalDateTime.now());
+        message.setConversation(participants != null ? participants.toConversation() : null);
+        if (participants != null && (channel == null || channel.isEmpty())) {
+            message.setChannel(""); // Birebir sohbetlerde kanal boş bırakılır
+        }
+
+        // 3) Kaydet (tekrar gönderimse ilk mesaj döndürülür, yayınlanmaz)
+        ChatMessage accepted;
+        switch (mode) {
+            case ASYNC -> {
+                // Kuyruktan tekrar teslim edilse bile tek satır eklenmesi için mesajın kimliği olmalı
+                if (message.getClientMessageId() == null || message.getClientMessageId().isBlank()) {
+                    message.setClientMessageId(UUID.randomUUID().toString());
+                }
+                if (!messageDeduplicator.claim(message)) {
+                    chatMetrics.duplicate(mode);
+                    return messageDeduplicator.recent(message).orElse(message);
+                }
+                try {
+                    chatMetrics.stage(ChatMetrics.RABBIT_PUBLISH, mode).observe(() -> chatMessageProducer.sendMessage(message));
+                } catch (RuntimeException e) {
+                    messageDeduplicator.release(message);
+                    throw e;
+                }
+                accepted = message;
+            }
+            case WRITE_BEHIND -> {
+                // id claim'den önce atanır; eşzamanlı retry'a döndürülen mesajın id'si hiç boş olmaz
+                message.setId(messageIdAllocator.next());
+                if (!messageDeduplicator.claim(message)) {
+                    chatMetrics.duplicate(mode);
+                    return messageDeduplicator.recent(message).orElse(message);
+                }
+                try {
+                    writeBehindMessageWriter.submit(message);
+                } catch (UncheckedIOException e) {
+                    messageDeduplicator.release(message);
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Mesaj kaydedilemedi, tekrar deneyin.", e);
+                } catch (RuntimeException e) {
+                    messageDeduplicator.release(message);
+                    throw e;
+                }
+                accepted = message;
+            }
+            default -> {
+                Optional<ChatMessage> seen = messageDeduplicator.recent(message);
+                if (seen.isPresent() && seen.get().getId() != null) {
+                    chatMetrics.duplicate(mode);
+                    return seen.get();
+                }
+                SaveResult result = chatMetrics.stage(ChatMetrics.PERSIST, mode).observe(() -> messageDeduplicator.saveOnce(message));
+                if (result.duplicate()) {
+                    chatMetrics.duplicate(mode);
+                    return result.message();
+                }
+                accepted = result.message();
+            }
+        }
+
+        // 4) Yayınla
+        chatMetrics.stage(ChatMetrics.BROADCAST, mode).observe(() -> publish(accepted, participants));
+        return accepted;
+    }
+
+    /**
+     * RabbitMQ'dan gelen (async modda kabul edilmiş) mesajı kaydeder; ChatMessageConsumer tarafından çağrılır.
+     * <p>
+     * <b>Nasıl çalışır?</b> Mesaj zaten doğrulanmış ve yayınlanmıştır. Tekrar teslim edilen mesaj ikinci kez kaydedilmez.
+     * Kayıttan sonra inbox önbelleği temizlenir; yayın anında mesaj henüz veritabanında olmadığı için önbelleğe eski liste girmiş olabilir.
+     * </p>
+     * @param message Kuyruktan alınan mesaj
+     */
+    public void persistQueued(ChatMessage message) {
+        chatMetrics.recordConsumeLag(message.getTimestamp());
+        SaveResult result = chatMetrics.stage(ChatMetrics.PERSIST, Mode.ASYNC).observe(() -> messageDeduplicator.saveOnce(message));
+        Conversation conversation = result.message().getConversation();
+        if (result.duplicate()) chatMetrics.duplicate(Mode.ASYNC);
+        if (!result.duplicate() && conversation != null) {
+            inboxService.invalidate(conversation.getUser1(), conversation.getUser2());
+        }
+    }
+
+    /**
+     * Kabul edilen mesajı ilgili WebSocket kanallarına gönderir.
+     */
+    private void publish(ChatMessage message, Participants participants) {
+        if (participants != null) {
+            Long conversationId = participants.conversationId();
+            messagingTemplate.convertAndSend("/topic/conversation/" + conversationId, message);
+            // Alıcının okunmamış sayacını artır (veritabanına toplu olarak yazılır)
+            unreadCounterService.onMessageSent(conversationId, participants.otherThan(message.getSender()), message.getId());
+            inboxService.invalidate(participants.user1(), participants.user2());
+        }
+        if (message.getChannel() != null && !message.getChannel().isEmpty()) {
+            messagingTemplate.convertAndSend("/topic/messages/" + message.getChannel(), message);
+        }
+    }
+
+    /**
+     * Sohbetin katılımcılarını döndürür; gönderen katılımcı değilse veya kullanıcılar arkadaş değilse hata fırlatır.
+     */
+    private Participants requireParticipants(Long conversationId, String sender) {
+        Participants participants = participantCache.resolve(conversationId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sohbet bulunamadı veya silinmiş."));
+        if (!participants.includes(sender)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bu sohbetin katılımcısı değilsiniz.");
+        }
+        if (!participants.friends()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Kullanıcılar artık arkadaş değil, mesaj gönderilemez.");
+        }
+        return participants;
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.chat.chat_service.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.chat.chat_service.model.ChatMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * MessageWriteAheadLog, write-behind modda henüz veritabanına yazılmamış mesajları yerel bir dosyaya ekler (WAL).
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Mesaj yayınlanmadan önce dosyanın sonuna tek satır JSON olarak eklenir (append-only); dosya hiç güncellenmez.</li>
+ *   <li>Dosya parçalara (segment) bölünür: wal-{zaman}-{sıra}.log. Parça chat.write-behind.wal-segment-bytes'ı aşınca yenisine geçilir.</li>
+ *   <li>Her parça, içindeki kaç mesajın henüz veritabanına yazılmadığını sayar; sayaç sıfırlanan eski parça silinir.</li>
+ *   <li>Kabul edilmeyen (yazılamayıp gönderene hata dönülen) mesaj için aynı parçaya {"aborted": id} satırı eklenir (abort);
+ *       recover bu id'leri atlar.</li>
+ *   <li>Uygulama çökerse (ör: kill -9) kalan parçalar bir sonraki açılışta okunur ve mesajlar veritabanına yazılır (recover).</li>
+ *   <li>Tek başına da yazılamayan (ör: kısıtı ihlal eden) mesajlar quarantine.log dosyasına taşınır ve WAL'da iptal edilir;
+ *       dosya recover tarafından okunmaz, elle incelenir.</li>
+ *   <li>fsync (force) her mesajda değil, toplu yazıcının her turunda yapılır; işletim sistemi çökmesinde son turun mesajları kaybolabilir.</li>
+ * </ul>
+ */
+@Service
+public class MessageWriteAheadLog {
+    private static final Logger log = LoggerFactory.getLogger(MessageWriteAheadLog.class);
+
+    /**
+     * Bir WAL dosya parçası.
+     */
+    private static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final AtomicLong pending = new AtomicLong();
+        final AtomicLong size = new AtomicLong();
+
+        Segment(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * WAL'a eklenmiş, veritabanına yazılmayı bekleyen bir mesaj.
+     */
+    public static final class Entry {
+        private final ChatMessage message;
+        private final Segment segment;
+
+        /**
+         * committed veya abort ile kapatıldı mı (parçanın sayacı yalnızca bir kez azaltılır).
+         */
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Entry(ChatMessage message, Segment segment) {
+            this.message = message;
+            this.segment = segment;
+        }
+
+        public ChatMessage message() {
+            return message;
+        }
+    }
+
+    /**
+     * Açılışta bulunan, önceki çalışmadan kalmış mesajlar ve okundukları dosyalar.
+     * @param messages Dosyalardaki mesajlar (yazılma sırasıyla)
+     * @param files Okunan dosyalar
+     */
+    public record Recovered(List<ChatMessage> messages, List<Path> files) {
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * WAL dosyalarının tutulduğu klasör.
+     */
+    @Value("${chat.write-behind.wal-dir:./data/wal}")
+    private Path directory;
+
+    /**
+     * Bir parçanın yenisine geçilmeden önce ulaşabileceği boyut.
+     */
+    @Value("${chat.write-behind.wal-segment-bytes:16777216}")
+    private long segmentBytes;
+
+    /**
+     * Ekleme (okuma kilidi, eşzamanlı) ile parça değiştirme (yazma kilidi) arasındaki kilit.
+     */
+    private final ReentrantReadWriteLock rotation = new ReentrantReadWriteLock();
+
+    /**
+     * Yeni mesajların eklendiği parça.
+     */
+    private volatile Segment current;
+
+    /**
+     * Kapatılmış, bekleyen mesajı kalmayınca silinecek parçalar.
+     */
+    private final ConcurrentLinkedQueue<Segment> closed = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong segmentCounter = new AtomicLong();
+
+    /**
+     * Önceki çalışmadan kalan WAL dosyalarını okur (yeni parça açılmadan önce çağrılmalıdır).
+     * <p>
+     * <b>Nasıl çalışır?</b> Çökme sırasında yarım yazılmış son satır okunamazsa atlanır; o mesaj hiç yayınlanmamıştır.
+     * abort ile işaretlenmiş mesajlar sonuca eklenmez.
+     * </p>
+     * @return Okunan mesajlar ve dosyalar
+     */
+    public Recovered recover() {
+        List<ChatMessage> messages = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return new Recovered(messages, files);
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(p -> p.getFileName().toString().matches("wal-\\d+-\\d+\\.log"))
+                .sorted()
+                .forEach(files::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Set<Long> aborted = new HashSet<>();
+        for (Path file : files) {
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) continue;
+                    try {
+                        JsonNode node = objectMapper.readTree(line);
+                        if (node.has("aborted")) {
+                            aborted.add(node.get("aborted").asLong());
+                        } else {
+                            messages.add(objectMapper.treeToValue(node, ChatMessage.class));
+                        }
+                    } catch (IOException e) {
+                        log.warn("WAL satırı okunamadı, atlanıyor ({})", file.getFileName());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (!aborted.isEmpty()) messages.removeIf(m -> aborted.contains(m.getId()));
+        return new Recovered(messages, files);
+    }
+
+    /**
+     * recover ile okunan ve veritabanına yazılan dosyaları siler.
+     * @param files Silinecek dosyalar
+     */
+    public void deleteRecovered(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("WAL dosyası silinemedi: {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Yeni mesajlar için ilk parçayı açar.
+     */
+    public void open() {
+        try {
+            Files.createDirectories(directory);
+            current = newSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Mesajı WAL'a ekler (birden fazla thread aynı anda çağırabilir).
+     * <p>
+     * <b>Nasıl çalışır?</b> FileChannel APPEND modunda her write çağrısı dosyanın sonuna bütün olarak yazılır;
+     * okuma kilidi yalnızca parça değiştirilirken eklemelerin beklemesi içindir.
+     * </p>
+     * @param message Eklenecek mesaj (id atanmış olmalı)
+     * @return Mesaj veritabanına yazılınca committed ile bildirilecek kayıt
+     * @throws UncheckedIOException Dosyaya yazılamazsa
+     */
+    public Entry append(ChatMessage message) {
+        byte[] line;
+        try {
+            line = (objectMapper.writeValueAsString(message) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rotation.readLock().lock();
+        try {
+            Segment segment = current;
+            if (segment == null) throw new IllegalStateException("WAL açılmadı");
+            segment.pending.incrementAndGet();
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) segment.channel.write(buffer);
+            } catch (IOException e) {
+                segment.pending.decrementAndGet();
+                throw new UncheckedIOException(e);
+            }
+            segment.size.addAndGet(line.length);
+            return new Entry(message, segment);
+        } finally {
+            rotation.readLock().unlock();
+        }
+    }
+
+    /**
+     * Kaydın veritabanına yazıldığını bildirir.
+     * @param entry append ile dönen kayıt
+     */
+    public void committed(Entry entry) {
+        if (entry.done.compareAndSet(false, true)) entry.segment.pending.decrementAndGet();
+    }
+
+    /**
+     * Kaydın veritabanına yazılmayacağını bildirir; mesaj bir sonraki açılışta da yazılmaz.
+     * <p>
+     * <b>Nasıl çalışır?</b> İşaret satırı mesajın kendi parçasına eklenir ve fsync edilir, sonra parçanın sayacı azaltılır.
+     * Parça, sayacı sıfırlanmadan silinmediği için işaret satırı mesajdan önce silinemez.
+     * committed ile kapatılmış kayıt için hiçbir şey yapmaz.
+     * </p>
+     * @param entry append ile dönen kayıt
+     */
+    public void abort(Entry entry) {
+        if (!entry.done.compareAndSet(false, true)) return;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(("{\"aborted\":" + entry.message.getId() + "}\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) entry.segment.channel.write(buffer);
+            entry.segment.channel.force(false);
+        } catch (IOException e) {
+            log.error("WAL'a iptal işareti yazılamadı, mesaj {} bir sonraki açılışta yazılabilir", entry.message.getId(), e);
+        } finally {
+            entry.segment.pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Veritabanına yazılamayan mesajı karantina dosyasına ekler ve WAL'daki kaydını iptal eder.
+     * <p>
+     * <b>Nasıl çalışır?</b> Mesaj önce quarantine.log'a eklenip fsync edilir, sonra abort çağrılır;
+     * karantinaya yazılamazsa kayıt WAL'da kalır ve hata fırlatılır.
+     * </p>
+     * @param entry append ile dönen kayıt
+     * @throws UncheckedIOException Karantina dosyasına yazılamazsa
+     */
+    public synchronized void quarantine(Entry entry) {
+        try (FileChannel channel = FileChannel.open(directory.resolve("quarantine.log"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap((objectMapper.writeValueAsString(entry.message) + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        abort(entry);
+    }
+
+    /**
+     * Açık parçayı diske zorla yazar (fsync).
+     */
+    public void sync() {
+        Segment segment = current;
+        if (segment == null) return;
+        try {
+            segment.channel.force(false);
+        } catch (IOException e) {
+            log.error("WAL fsync başarısız", e);
+        }
+    }
+
+    /**
+     * Büyüyen parçayı kapatıp yenisine geçer ve bekleyen mesajı kalmayan eski parçaları siler.
+     * Toplu yazıcı tarafından, her tur sonunda çağrılır.
+     * <p>
+     * <b>Nasıl çalışır?</b> sync yalnızca açık parçayı diske yazar; bu yüzden kapatılan parça yazma kilidi altında,
+     * yeni ekleme gelemezken fsync edilir. Aksi halde son sync'ten sonra eklenen mesajlar hiç fsync edilmeyebilirdi.
+     * </p>
+     */
+    public void maintain() {
+        Segment segment = current;
+        if (segment != null && segment.size.get() >= segmentBytes) {
+            rotation.writeLock().lock();
+            try {
+                try {
+                    current.channel.force(false);
+                } catch (IOException e) {
+                    log.error("WAL fsync başarısız", e);
+                }
+                closed.add(current);
+                current = newSegment();
+            } catch (IOException e) {
+                log.error("Yeni WAL parçası açılamadı", e);
+            } finally {
+                rotation.writeLock().unlock();
+            }
+        }
+        closed.removeIf(s -> {
+            if (s.pending.get() > 0) return false;
+            try {
+                s.channel.close();
+                Files.deleteIfExists(s.path);
+            } catch (IOException e) {
+                log.warn("WAL parçası silinemedi: {}", s.path, e);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Uygulama kapanırken çağrılır; tüm mesajları yazılmış parçalar silinir, diğerleri bir sonraki açılışa kalır.
+     */
+    public void close() {
+        rotation.writeLock().lock();
+        try {
+            if (current != null) {
+                closed.add(current);
+                current = null;
+            }
+        } finally {
+            rotation.writeLock().unlock();
+        }
+        for (Segment s : closed) {
+            try {
+                s.channel.force(false);
+                s.channel.close();
+                if (s.pending.get() == 0) Files.deleteIfExists(s.path);
+            } catch (IOException e) {
+                log.warn("WAL parçası kapatılamadı: {}", s.path, e);
+            }
+        }
+        closed.clear();
+    }
+
+    private Segment newSegment() throws IOException {
+        String name = String.format("wal-%d-%06d.log", System.currentTimeMillis(), segmentCounter.incrementAndGet());
+        return new Segment(directory.resolve(name));
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.chat.chat_service.service;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.example.chat.chat_service.model.User;
+import com.example.chat.chat_service.repository.FriendRequestRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * PresenceRegistry, WebSocket'e bağlı kullanıcıları (çevrimiçi durumu) ve "yazıyor" (typing) olaylarını bellekte tutar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>STOMP bağlantı/bağlantı kesme olayları (SessionConnectedEvent, SessionDisconnectEvent) dinlenir; hiçbir şey veritabanına yazılmaz.</li>
+ *   <li>Bir kullanıcının birden fazla oturumu (ör: iki sekme) olabilir; ilk oturum açılınca çevrimiçi, son oturum kapanınca çevrimdışı olur.</li>
+ *   <li>Durum değişiklikleri yalnızca çevrimiçi arkadaşlara "/topic/presence/{arkadaş}" kanalından gönderilir;
+ *       bu kanala yalnızca kanalın sahibi abone olabilir (StompAuthChannelInterceptor).</li>
+ *   <li>Arkadaş listesi kullanıcı bağlandığında bir kez okunur ve bellekte tutulur; arkadaşlık değişince onFriendshipChanged ile güncellenir.</li>
+ *   <li>Typing olayları kullanıcı ve sohbet başına birleştirilir (coalescing): aynı durum chat.typing.min-interval-ms içinde tekrar gönderilmez.</li>
+ *   <li>MeterBinder: Açık WebSocket oturumu (chat.websocket.sessions) ve çevrimiçi kullanıcı (chat.presence.online.users)
+ *       sayıları metrik olarak kaydedilir.</li>
+ * </ul>
+ */
+@Service
+public class PresenceRegistry implements MeterBinder {
+    /**
+     * Çevrimiçi bir kullanıcının oturumları ve arkadaşları.
+     */
+    private static final class Presence {
+        final String username;
+        final Set<String> sessionIds = ConcurrentHashMap.newKeySet();
+        final Set<String> friendKeys;
+
+        Presence(String username, Set<String> friendKeys) {
+            this.username = username;
+            this.friendKeys = friendKeys;
+        }
+    }
+
+    /**
+     * Bir kullanıcının bir sohbetteki son gönderilen typing durumu.
+     */
+    private static final class TypingState {
+        boolean typing;
+        long lastSentNanos;
+    }
+
+    /**
+     * Kullanıcı anahtarı → çevrimiçi durum.
+     */
+    private final ConcurrentHashMap<String, Presence> online = new ConcurrentHashMap<>();
+
+    /**
+     * Kullanıcı anahtarı → (sohbet id → typing durumu).
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, TypingState>> typingStates = new ConcurrentHashMap<>();
+
+    @Autowired
+    private FriendRequestRepository friendRequestRepository;
+
+    /**
+     * Presence ve typing olaylarını WebSocket ile göndermek için kullanılır.
+     */
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Aynı typing durumunun tekrar gönderilebilmesi için geçmesi gereken en kısa süre.
+     */
+    @Value("${chat.typing.min-interval-ms:2000}")
+    private long typingMinIntervalMs;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("chat.websocket.sessions", this, PresenceRegistry::sessionCount)
+            .description("Token ile bağlanmış açık STOMP oturumları")
+            .register(registry);
+        Gauge.builder("chat.presence.online.users", online, Map::size)
+            .description("En az bir açık oturumu olan kullanıcılar")
+            .register(registry);
+    }
+
+    /**
+     * Açık oturum sayısı (bir kullanıcının birden fazla oturumu olabilir).
+     */
+    public int sessionCount() {
+        int count = 0;
+        for (Presence presence : online.values()) count += presence.sessionIds.size();
+        return count;
+    }
+
+    /**
+     * Token ile bağlanan bir oturum açıldığında kullanıcıyı çevrimiçi yapar.
+     */
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (user == null || sessionId == null) return;
+        String key = User.normalize(user.getName());
+        // Arkadaş listesi yalnızca kullanıcının ilk oturumunda okunur
+        Set<String> friends = online.containsKey(key) ? null : loadFriendKeys(user.getName());
+        boolean[] cameOnline = { false };
+        Presence presence = online.compute(key, (k, p) -> {
+            if (p == null) {
+                p = new Presence(user.getName(), friends != null ? friends : loadFriendKeys(user.getName()));
+                cameOnline[0] = true;
+            }
+            p.sessionIds.add(sessionId);
+            return p;
+        });
+        if (cameOnline[0]) publishPresence(presence, true);
+    }
+
+    /**
+     * Oturum kapandığında, kullanıcının başka oturumu kalmadıysa çevrimdışı yapar.
+     */
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        Principal user = event.getUser();
+        if (user == null) return;
+        String key = User.normalize(user.getName());
+        Presence[] wentOffline = { null };
+        online.computeIfPresent(key, (k, p) -> {
+            p.sessionIds.remove(event.getSessionId());
+            if (!p.sessionIds.isEmpty()) return p;
+            wentOffline[0] = p;
+            return null;
+        });
+        if (wentOffline[0] != null) {
+            typingStates.remove(key);
+            publishPresence(wentOffline[0], false);
+        }
+    }
+
+    /**
+     * Kullanıcının çevrimiçi arkadaşlarını döndürür.
+     * @param username Kullanıcı adı
+     * @return Çevrimiçi arkadaşların kullanıcı adları
+     */
+    public List<String> onlineFriends(String username) {
+        Presence self = online.get(User.normalize(username));
+        Set<String> friends = self != null ? self.friendKeys : loadFriendKeys(username);
+        return friends.stream()
+            .map(online::get)
+            .filter(p -> p != null)
+            .map(p -> p.username)
+            .toList();
+    }
+
+    /**
+     * Arkadaşlık eklendiğinde veya silindiğinde bellekteki arkadaş listelerini günceller.
+     * <p>
+     * <b>Nasıl çalışır?</b> İki kullanıcı da çevrimiçiyse yeni arkadaşlıkta birbirlerinin durumu hemen gönderilir;
+     * silinen arkadaşlıkta ise artık birbirlerine presence/typing olayı gönderilmez.
+     * </p>
+     * @param username1 Birinci kullanıcı
+     * @param username2 İkinci kullanıcı
+     * @param friends Arkadaş oldularsa true, arkadaşlık silindiyse false
+     */
+    public void onFriendshipChanged(String username1, String username2, boolean friends) {
+        String key1 = User.normalize(username1);
+        String key2 = User.normalize(username2);
+        Presence p1 = online.get(key1);
+        Presence p2 = online.get(key2);
+        if (p1 != null) {
+            if (friends) p1.friendKeys.add(key2); else p1.friendKeys.remove(key2);
+        }
+        if (p2 != null) {
+            if (friends) p2.friendKeys.add(key1); else p2.friendKeys.remove(key1);
+        }
+        if (friends && p1 != null && p2 != null) {
+            sendPresence(p2.username, p1.username, true);
+            sendPresence(p1.username, p2.username, true);
+        }
+    }
+
+    /**
+     * Typing olayını birleştirerek alıcıya iletir.
+     * <p>
+     * <b>Nasıl çalışır?</b> "Yazıyor" durumu değişmediyse ve son gönderimden bu yana chat.typing.min-interval-ms
+     * geçmediyse olay düşürülür. "Yazmayı bıraktı" olayı yalnızca önceki durum "yazıyor" ise gönderilir.
+     * Alıcı çevrimiçi değilse hiçbir şey gönderilmez.
+     * </p>
+     * @param username Yazan kullanıcı
+     * @param recipient Sohbetin diğer katılımcısı
+     * @param conversationId Sohbet id'si
+     * @param typing Yazıyorsa true
+     * @return Olay alıcıya gönderildiyse true
+     */
+    public boolean typing(String username, String recipient, Long conversationId, boolean typing) {
+        String key = User.normalize(username);
+        Presence sender = online.get(key);
+        Presence receiver = online.get(User.normalize(recipient));
+        if (sender == null || receiver == null || !sender.friendKeys.contains(User.normalize(recipient))) return false;
+        TypingState state = typingStates.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(conversationId, k -> new TypingState());
+        long now = System.nanoTime();
+        synchronized (state) {
+            if (state.typing == typing) {
+                if (!typing) return false;
+                if (now - state.lastSentNanos < TimeUnit.MILLISECONDS.toNanos(typingMinIntervalMs)) return false;
+            }
+            state.typing = typing;
+            state.lastSentNanos = now;
+        }
+        messagingTemplate.convertAndSend("/topic/typing/" + receiver.username, Map.of(
+            "type", "typing",
+            "conversationId", conversationId,
+            "username", sender.username,
+            "typing", typing
+        ));
+        return true;
+    }
+
+    /**
+     * Kullanıcının durum değişikliğini çevrimiçi arkadaşlarına gönderir.
+     */
+    private void publishPresence(Presence presence, boolean isOnline) {
+        for (String friendKey : presence.friendKeys) {
+            Presence friend = online.get(friendKey);
+            if (friend != null) sendPresence(friend.username, presence.username, isOnline);
+        }
+    }
+
+    private void sendPresence(String recipient, String username, boolean isOnline) {
+        messagingTemplate.convertAndSend("/topic/presence/" + recipient, Map.of(
+            "type", "presence",
+            "username", username,
+            "online", isOnline
+        ));
+    }
+
+    /**
+     * Kullanıcının arkadaşlarını (küçük harfli anahtarlar olarak) veritabanından okur.
+     */
+    private Set<String> loadFriendKeys(String username) {
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        friendRequestRepository.findFriendUsernames(username).forEach(n -> keys.add(User.normalize(n)));
+        return keys;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.chat.chat_service.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+
+import com.example.chat.chat_service.model.ChatMessage;
+import com.example.chat.chat_service.model.Conversation;
+import com.example.chat.chat_service.service.ConversationParticipantCache.Participants;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ReactiveMessageHistory, bir sohbetin mesaj geçmişini R2DBC ile engellemeden (non-blocking) okuyup akış (Flux) olarak döndürür.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>JDBC'de her sorgu bir thread'i cevap gelene kadar bekletir. R2DBC'de sorgu gönderilir ve thread serbest kalır;
+ *       satırlar geldikçe az sayıda event-loop thread'i tarafından işlenir.</li>
+ *   <li>Geçmiş, chat.reactive.history.chunk-size'lık parçalar halinde keyset (timestamp, id) sayfalamasıyla okunur.
+ *       Bir parça okunup bağlantı havuza geri verildikten sonra, istemci önceki parçayı tükettiğinde sıradaki sorgu çalışır (backpressure).
+ *       Böylece yavaş okuyan binlerce istemci aynı anda bağlantı tutmaz; bellekte istemci başına en fazla bir parça bulunur.</li>
+ *   <li>Bağlantı havuzu bu sınıfın içinde tutulur ve bean olarak yayınlanmaz: ConnectionFactory bean'i olursa Spring Boot
+ *       JDBC DataSource'unu otomatik oluşturmaz (JPA ve Flyway JDBC kullanmaya devam eder).</li>
+ *   <li>Mesaj ekleme (gönderme) bu sınıfta yoktur; tüm yeni mesajlar doğrulama, mükerrer kontrolü ve yayın için MessageIngestPipeline'dan geçer.</li>
+ * </ul>
+ */
+@Service
+public class ReactiveMessageHistory {
+    private static final String COLUMNS = "SELECT id, sender, content, timestamp, channel, client_message_id FROM chat_messages ";
+
+    @Value("${chat.reactive.r2dbc.url:r2dbc:postgresql://localhost:5432/chatapp_auth}")
+    private String url;
+
+    @Value("${chat.reactive.r2dbc.username:${spring.datasource.username:}}")
+    private String username;
+
+    @Value("${chat.reactive.r2dbc.password:${spring.datasource.password:}}")
+    private String password;
+
+    @Value("${chat.reactive.r2dbc.pool.max-size:10}")
+    private int maxPoolSize;
+
+    /**
+     * Tek sorguda okunacak mesaj sayısı.
+     */
+    @Value("${chat.reactive.history.chunk-size:500}")
+    private int chunkSize;
+
+    private ConnectionPool pool;
+    private DatabaseClient databaseClient;
+
+    /**
+     * Bağlantı havuzunu oluşturur; bağlantılar ilk sorguda açılır.
+     */
+    @PostConstruct
+    void init() {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+            .option(ConnectionFactoryOptions.USER, username)
+            .option(ConnectionFactoryOptions.PASSWORD, password)
+            .build();
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+            .name("reactive-history")
+            .initialSize(0)
+            .maxSize(maxPoolSize)
+            .maxIdleTime(Duration.ofMinutes(10))
+            .build());
+        databaseClient = DatabaseClient.create(pool);
+    }
+
+    @PreDestroy
+    void close() {
+        pool.dispose();
+    }
+
+    /**
+     * Sohbetin [from, to] aralığındaki mesajlarını eskiden yeniye akış olarak döndürür.
+     * @param participants Sohbet (katılımcı kontrolü çağıran tarafından yapılmıştır)
+     * @param from Başlangıç zamanı (null ise sohbetin başı)
+     * @param to Bitiş zamanı; akış bu ana kadar yazılmış mesajlarla sınırlıdır
+     * @return Mesaj akışı
+     */
+    public Flux<ChatMessage> stream(Participants participants, LocalDateTime from, LocalDateTime to) {
+        Long conversationId = participants.conversationId();
+        Conversation conversation = participants.toConversation();
+        return chunk(conversationId, from, to, null)
+            .expand(chunk -> chunk.size() < chunkSize ? Mono.empty()
+                : chunk(conversationId, from, to, chunk.get(chunk.size() - 1)))
+            .flatMapIterable(chunk -> chunk)
+            .doOnNext(message -> message.setConversation(conversation));
+    }
+
+    /**
+     * after'dan sonraki (yoksa from'dan itibaren) en fazla chunkSize mesajı okur.
+     */
+    private Mono<List<ChatMessage>> chunk(Long conversationId, LocalDateTime from, LocalDateTime to, ChatMessage after) {
+        StringBuilder sql = new StringBuilder(COLUMNS).append("WHERE conversation_id = :conversationId AND timestamp <= :to");
+        if (from != null) sql.append(" AND timestamp >= :from");
+        if (after != null) sql.append(" AND (timestamp, id) > (:afterTimestamp, :afterId)");
+        sql.append(" ORDER BY timestamp, id LIMIT :limit");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+            .bind("conversationId", conversationId)
+            .bind("to", to)
+            .bind("limit", chunkSize);
+        if (from != null) spec = spec.bind("from", from);
+        if (after != null) {
+            spec = spec.bind("afterTimestamp", after.getTimestamp()).bind("afterId", after.getId());
+        }
+        return spec.map(ReactiveMessageHistory::toMessage).all().collectList();
+    }
+
+    private static ChatMessage toMessage(Readable row) {
+        ChatMessage message = new ChatMessage();
+        message.setId(row.get("id", Long.class));
+        message.setSender(row.get("sender", String.class));
+        message.setContent(row.get("content", String.class));
+        message.setTimestamp(row.get("timestamp", LocalDateTime.class));
+        message.setChannel(row.get("channel", String.class));
+        message.setClientMessageId(row.get("client_message_id", String.class));
+        return message;
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.chat.chat_service.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.chat.chat_service.model.User;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * UnreadCounterService, kullanıcı başına ve sohbet başına okunmamış mesaj sayılarını tutar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Her gönderilen mesaj için veritabanına yazmak yerine sayaç bellekte artırılır.</li>
+ *   <li>Bir kullanıcının sayaçları yalnızca ConcurrentHashMap.compute içinde değiştirilir; compute aynı anahtar için
+ *       atomiktir, bu yüzden artış, okuma ve silme birbirini ezmez.</li>
+ *   <li>Biriken artışlar belirli aralıklarla (chat.unread.flush-interval-ms) tek bir batch UPSERT ile conversation_read_state tablosuna yazılır
+ *       ve bellekten silinir; harita yalnızca son flush'tan beri mesaj alan kullanıcıları tutar.</li>
+ *   <li>flush ile markRead bir ReadWriteLock ile sıralanır: markRead'ler birbirini beklemez, flush ise çalışırken markRead beklemez
+ *       sayaçları veritabanına eklemez. Aksi halde okundu olarak sıfırlanan sayıya, okunmadan önce alınmış artışlar geri eklenebilirdi.</li>
+ *   <li>Uygulama kapanırken (@PreDestroy) bekleyen artışlar da yazılır.</li>
+ *   <li>Değişiklikler "/topic/unread/{kullanıcı}" kanalına WebSocket (STOMP) ile anlık gönderilir;
+ *       bu kanala yalnızca kanalın sahibi abone olabilir (StompAuthChannelInterceptor).</li>
+ * </ul>
+ */
+@Service
+public class UnreadCounterService {
+    private static final Logger log = LoggerFactory.getLogger(UnreadCounterService.class);
+
+    /**
+     * Bir kullanıcının bir sohbetteki okunma durumu.
+     * @param conversationId Sohbet id'si
+     * @param unreadCount Okunmamış mesaj sayısı
+     * @param lastReadMessageId En son okunan mesajın id'si (hiç okunmadıysa null)
+     * @param lastReadAt En son okunma zamanı (hiç okunmadıysa null)
+     */
+    public record ReadState(Long conversationId, long unreadCount, Long lastReadMessageId, LocalDateTime lastReadAt) {
+    }
+
+    /**
+     * Henüz veritabanına yazılmamış artışlar: kullanıcı anahtarı → (sohbet id → artış).
+     * İç harita yalnızca dış haritanın compute/computeIfPresent çağrıları içinde okunur ve değiştirilir.
+     */
+    private final ConcurrentHashMap<String, Map<Long, Long>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * markRead (okuma kilidi, birbirleriyle paralel) ile flush (yazma kilidi) arasındaki sıralama.
+     */
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Sayaçlar veritabanına yazıldığında veya sıfırlandığında inbox önbelleğini temizlemek için kullanılır.
+     * InboxService de bu servise bağlı olduğu için döngüsel bağımlılığı önlemek amacıyla @Lazy ile enjekte edilir.
+     */
+    @Lazy
+    @Autowired
+    private InboxService inboxService;
+
+    /**
+     * Sayaç değişikliklerini WebSocket ile göndermek için kullanılır.
+     */
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Alıcının bu sohbetteki okunmamış sayısını bir artırır (veritabanına hemen yazılmaz).
+     * @param conversationId Sohbet id'si
+     * @param recipient Mesajın alıcısı
+     * @param messageId Gönderilen mesajın id'si (mesaj henüz kaydedilmediyse null)
+     */
+    public void onMessageSent(Long conversationId, String recipient, Long messageId) {
+        pending.compute(User.normalize(recipient), (user, counters) -> {
+            Map<Long, Long> result = counters != null ? counters : new HashMap<>();
+            result.merge(conversationId, 1L, Long::sum);
+            return result;
+        });
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", "unread-increment");
+        event.put("conversationId", conversationId);
+        event.put("messageId", messageId);
+        messagingTemplate.convertAndSend("/topic/unread/" + recipient, event);
+    }
+
+    /**
+     * Kullanıcının sohbeti okuduğunu kaydeder ve okunmamış sayısını sıfırlar.
+     * <p>
+     * <b>Nasıl çalışır?</b> Bellekte bekleyen artışlar atılır ve satır tek bir UPSERT ile güncellenir.
+     * lastReadMessageId yalnızca ileri gider (GREATEST). Okundu bilgisi sohbet kanalına da gönderilir (read receipt).
+     * Çalışan bir flush varsa bitmesi beklenir; böylece flush'ın okumadan önce aldığı artışlar sıfırlamadan sonra eklenmez.
+     * </p>
+     * @param conversationId Sohbet id'si
+     * @param username Okuyan kullanıcı
+     * @param lastReadMessageId Okunan en son mesajın id'si (opsiyonel)
+     * @return Güncel okunma durumu
+     */
+    public ReadState markRead(Long conversationId, String username, Long lastReadMessageId) {
+        String key = User.normalize(username);
+        LocalDateTime now = LocalDateTime.now();
+        Long lastRead;
+        flushLock.readLock().lock();
+        try {
+            pending.computeIfPresent(key, (user, counters) -> {
+                counters.remove(conversationId);
+                return counters.isEmpty() ? null : counters;
+            });
+            lastRead = jdbcTemplate.queryForObject(
+                "INSERT INTO conversation_read_state (conversation_id, username_key, unread_count, last_read_message_id, last_read_at) " +
+                "VALUES (?, ?, 0, ?, ?) " +
+                "ON CONFLICT (conversation_id, username_key) DO UPDATE SET unread_count = 0, " +
+                "last_read_message_id = GREATEST(conversation_read_state.last_read_message_id, EXCLUDED.last_read_message_id), " +
+                "last_read_at = EXCLUDED.last_read_at " +
+                "RETURNING last_read_message_id",
+                Long.class, conversationId, key, lastReadMessageId, Timestamp.valueOf(now));
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        inboxService.invalidate(username);
+        ReadState state = new ReadState(conversationId, 0, lastRead, now);
+        messagingTemplate.convertAndSend("/topic/unread/" + username, Map.of(
+            "type", "read",
+            "conversationId", conversationId,
+            "unreadCount", 0
+        ));
+        Map<String, Object> receipt = new LinkedHashMap<>();
+        receipt.put("type", "read");
+        receipt.put("conversationId", conversationId);
+        receipt.put("username", username);
+        receipt.put("lastReadMessageId", lastRead);
+        messagingTemplate.convertAndSend("/topic/conversation/" + conversationId, receipt);
+        return state;
+    }
+
+    /**
+     * Kullanıcının okunmamış mesajı olan veya okunma kaydı bulunan tüm sohbetlerini döndürür.
+     * <p>
+     * <b>Nasıl çalışır?</b> Veritabanındaki sayılar tek sorguyla okunur, bellekte bekleyen artışlar üzerine eklenir.
+     * </p>
+     * @param username Kullanıcı adı
+     * @return Sohbet id'sine göre okunma durumları
+     */
+    public Map<Long, ReadState> summary(String username) {
+        String key = User.normalize(username);
+        Map<Long, ReadState> states = new LinkedHashMap<>();
+        jdbcTemplate.query(
+            "SELECT conversation_id, unread_count, last_read_message_id, last_read_at " +
+            "FROM conversation_read_state WHERE username_key = ?",
+            rs -> {
+                Timestamp lastReadAt = rs.getTimestamp("last_read_at");
+                states.put(rs.getLong("conversation_id"), new ReadState(
+                    rs.getLong("conversation_id"),
+                    rs.getLong("unread_count"),
+                    rs.getObject("last_read_message_id", Long.class),
+                    lastReadAt != null ? lastReadAt.toLocalDateTime() : null));
+            }, key);
+        pendingFor(username).forEach((conversationId, delta) -> {
+                ReadState s = states.get(conversationId);
+                states.put(conversationId, s == null
+                    ? new ReadState(conversationId, delta, null, null)
+                    : new ReadState(conversationId, s.unreadCount() + delta, s.lastReadMessageId(), s.lastReadAt()));
+        });
+        return states;
+    }
+
+    /**
+     * Kullanıcının henüz veritabanına yazılmamış okunmamış artışlarını döndürür (SQL çalıştırmaz).
+     * @param username Kullanıcı adı
+     * @return Sohbet id'si → bekleyen artış
+     */
+    public Map<Long, Long> pendingFor(String username) {
+        Map<Long, Long> result = new HashMap<>();
+        pending.computeIfPresent(User.normalize(username), (user, counters) -> {
+            result.putAll(counters);
+            return counters;
+        });
+        return result;
+    }
+
+    /**
+     * Bellekte biriken artışları tek bir batch UPSERT ile veritabanına yazar.
+     * <p>
+     * <b>Nasıl çalışır?</b> Her kullanıcının artışları haritadan atomik olarak alınıp silinir (yeni artışlar yeni bir haritada birikir).
+     * Yazma başarısız olursa değerler haritaya geri eklenir. Tüm işlem yazma kilidi altında yapılır; bu sırada markRead çalışmaz.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${chat.unread.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.writeLock().lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private void flushPending() {
+        List<Object[]> batch = new ArrayList<>();
+        for (String key : pending.keySet()) {
+            pending.computeIfPresent(key, (user, counters) -> {
+                counters.forEach((conversationId, delta) -> batch.add(new Object[] { conversationId, user, delta }));
+                return null;
+            });
+        }
+        if (batch.isEmpty()) return;
+        try {
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO conversation_read_state (conversation_id, username_key, unread_count) " +
+                "SELECT ?, ?, ? WHERE EXISTS (SELECT 1 FROM conversations WHERE id = ?) " +
+                "ON CONFLICT (conversation_id, username_key) " +
+                "DO UPDATE SET unread_count = conversation_read_state.unread_count + EXCLUDED.unread_count",
+                batch.stream().map(row -> new Object[] { row[0], row[1], row[2], row[0] }).toList());
+            // Önbellekteki inbox'lar artık eski veritabanı değerlerini içeriyor
+            batch.forEach(row -> inboxService.invalidate((String) row[1]));
+        } catch (RuntimeException e) {
+            for (Object[] row : batch) {
+                pending.compute((String) row[1], (user, counters) -> {
+                    Map<Long, Long> result = counters != null ? counters : new HashMap<>();
+                    result.merge((Long) row[0], (Long) row[2], Long::sum);
+                    return result;
+                });
+            }
+            log.error("Okunmamış sayaçları yazılamadı, bir sonraki denemede tekrar yazılacak", e);
+        }
+    }
+
+    /**
+     * Uygulama kapanırken bekleyen artışları yazar.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,388 @@
+package com.example.chat.chat_service.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.chat.chat_service.buffer.MpscRingBuffer;
+import com.example.chat.chat_service.metrics.ChatMetrics;
+import com.example.chat.chat_service.model.ChatMessage;
+import com.example.chat.chat_service.model.Conversation;
+import com.example.chat.chat_service.model.User;
+import com.example.chat.chat_service.service.MessageWriteAheadLog.Entry;
+import com.example.chat.chat_service.service.MessageWriteAheadLog.Recovered;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * WriteBehindMessageWriter, write-behind modda yayınlanmış mesajları arka planda toplu olarak veritabanına yazar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>submit: Mesaj önce MessageWriteAheadLog'a (yerel dosya) eklenir, sonra kilitsiz MpscRingBuffer'a konur; veritabanı beklenmez.</li>
+ *   <li>Tek bir arka plan thread'i (write-behind-writer) kuyruğu boşaltır ve en fazla chat.write-behind.batch-size mesajı
+ *       tek transaction'da JDBC batch INSERT ile yazar. Kuyruk boşsa chat.write-behind.flush-interval-ms kadar bekler.</li>
+ *   <li>Mükerrer kontrolü için chat_message_dedup satırları aynı transaction'da eklenir; çakışan mesaj yazılmaz.</li>
+ *   <li>INSERT'ler ON CONFLICT DO NOTHING kullandığı için aynı mesajın (ör: WAL'dan geri yüklenen) iki kez yazılması zararsızdır.</li>
+ *   <li>Veritabanı hatasında aynı batch chat.write-behind.retry-delay-ms sonra tekrar denenir; mesajlar WAL'da kalır.
+ *       chat.write-behind.max-attempts deneme başarısız olursa mesajlar tek tek yazılır; veritabanı erişilebilir olduğu halde
+ *       tek başına da yazılamayan mesaj karantinaya alınır (MessageWriteAheadLog.quarantine), böylece tek bir bozuk mesaj
+ *       kuyruğu sonsuza kadar durdurmaz.</li>
+ *   <li>Kuyruk doluysa üretici chat.write-behind.offer-timeout-ms kadar bekler, yine yer açılmazsa mesajı kendisi yazar (geri basınç).
+ *       Bu yazma başarısız olursa mesaj WAL'da iptal edilir (abort) ve gönderene hata döner.</li>
+ *   <li>Açılışta (@PostConstruct) önceki çalışmadan kalan WAL dosyaları, mod ne olursa olsun veritabanına yazılır.</li>
+ *   <li>MeterBinder: Kuyruk doluluğu (chat.write-behind.pending), taşma sayısı (chat.write-behind.overflow.writes) ve
+ *       karantinaya alınan mesaj sayısı (chat.write-behind.quarantined) Spring Boot tarafından metrik olarak kaydedilir.</li>
+ * </ul>
+ */
+@Service
+public class WriteBehindMessageWriter implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindMessageWriter.class);
+
+    private static final String INSERT_MESSAGE_SQL =
+        "INSERT INTO chat_messages (id, sender, content, timestamp, channel, conversation_id, client_message_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (id, timestamp) DO NOTHING";
+
+    private static final String INSERT_DEDUP_SQL =
+        "INSERT INTO chat_message_dedup (sender_key, client_message_id, message_id, message_timestamp, created_at) " +
+        "VALUES (?, ?, ?, ?, now()) ON CONFLICT (sender_key, client_message_id) DO NOTHING";
+
+    @Autowired
+    private MessageWriteAheadLog writeAheadLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Mesajları ve dedup satırlarını tek transaction'da yazmak için kullanılır.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private InboxService inboxService;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    /**
+     * Yazıcı thread'i yalnızca write-behind modda başlatılır.
+     */
+    @Value("${chat.ingest.mode:sync}")
+    private MessageIngestPipeline.Mode mode;
+
+    /**
+     * Tek transaction'da yazılacak en fazla mesaj sayısı.
+     */
+    @Value("${chat.write-behind.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Kuyruk boşken yazıcının bekleme süresi.
+     */
+    @Value("${chat.write-behind.flush-interval-ms:20}")
+    private long flushIntervalMs;
+
+    /**
+     * Veritabanı hatasından sonra tekrar denemeden önce beklenecek süre.
+     */
+    @Value("${chat.write-behind.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    /**
+     * Batch'in mesajları tek tek yazılmadan önce kaç kez bütün olarak deneneceği.
+     */
+    @Value("${chat.write-behind.max-attempts:5}")
+    private int maxAttempts;
+
+    /**
+     * Kuyruk doluyken üreticinin yer açılmasını bekleyeceği en uzun süre.
+     */
+    @Value("${chat.write-behind.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+
+    /**
+     * Yayınlanmış, yazılmayı bekleyen mesajlar.
+     */
+    private final MpscRingBuffer<Entry> buffer;
+
+    /**
+     * Kuyruk dolu olduğu için üreticinin kendisinin yazdığı mesaj sayısı.
+     */
+    private final LongAdder overflowWrites = new LongAdder();
+
+    /**
+     * Tek başına da yazılamadığı için karantinaya alınan mesaj sayısı.
+     */
+    private final LongAdder quarantined = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    /**
+     * @param bufferSize Kuyruk kapasitesi (2'nin kuvveti)
+     */
+    public WriteBehindMessageWriter(@Value("${chat.write-behind.buffer-size:65536}") int bufferSize) {
+        this.buffer = new MpscRingBuffer<>(bufferSize);
+    }
+
+    /**
+     * Önceki çalışmadan kalan WAL'ı veritabanına yazar; write-behind moddaysa yazıcı thread'ini başlatır.
+     */
+    @PostConstruct
+    public void start() {
+        recover();
+        if (mode != MessageIngestPipeline.Mode.WRITE_BEHIND) return;
+        writeAheadLog.open();
+        running = true;
+        writerThread = new Thread(this::run, "write-behind-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Uygulama kapanırken kuyruktaki mesajlar yazılır; yazılamayanlar WAL'da kalır.
+     */
+    @PreDestroy
+    public void stop() {
+        if (writerThread == null) return;
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeAheadLog.close();
+    }
+
+    /**
+     * Yayınlanan mesajı yazılmak üzere kuyruğa verir.
+     * <p>
+     * <b>Nasıl çalışır?</b> WAL'a eklendikten sonra mesaj kaybolmaz: kuyruk taşsa bile üretici mesajı kendisi yazar,
+     * uygulama çökerse bir sonraki açılışta WAL'dan yazılır. Üreticinin kendi yazması başarısız olursa mesaj WAL'da
+     * iptal edilir; çağıran hatayı gönderene döndürdüğü için mesaj sonradan da yazılmaz.
+     * </p>
+     * @param message id'si MessageIdAllocator ile atanmış mesaj
+     * @throws java.io.UncheckedIOException WAL dosyasına yazılamazsa (mesaj kabul edilmemiştir)
+     * @throws RuntimeException Kuyruk doluyken mesaj veritabanına yazılamazsa (mesaj kabul edilmemiştir)
+     */
+    public void submit(ChatMessage message) {
+        Entry entry = writeAheadLog.append(message);
+        if (buffer.offer(entry)) return;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        while (System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            if (buffer.offer(entry)) return;
+        }
+        overflowWrites.increment();
+        try {
+            write(List.of(entry));
+        } catch (RuntimeException e) {
+            writeAheadLog.abort(entry);
+            throw e;
+        }
+    }
+
+    /**
+     * Kuyrukta yazılmayı bekleyen mesaj sayısı.
+     */
+    public int pending() {
+        return buffer.size();
+    }
+
+    /**
+     * Kuyruk dolu olduğu için doğrudan yazılan mesaj sayısı.
+     */
+    public long overflowWrites() {
+        return overflowWrites.sum();
+    }
+
+    /**
+     * Karantinaya alınan mesaj sayısı.
+     */
+    public long quarantined() {
+        return quarantined.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("chat.write-behind.pending", this, WriteBehindMessageWriter::pending)
+            .description("Veritabanına yazılmayı bekleyen mesajlar")
+            .register(registry);
+        FunctionCounter.builder("chat.write-behind.overflow.writes", this, WriteBehindMessageWriter::overflowWrites)
+            .description("Kuyruk dolu olduğu için üreticinin doğrudan yazdığı mesajlar")
+            .register(registry);
+        FunctionCounter.builder("chat.write-behind.quarantined", this, WriteBehindMessageWriter::quarantined)
+            .description("Veritabanına yazılamadığı için karantina dosyasına taşınan mesajlar")
+            .register(registry);
+    }
+
+    /**
+     * Yazıcı thread'inin döngüsü: kuyruğu boşalt, toplu yaz, WAL'ı bakımdan geçir.
+     */
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        int attempts = 0;
+        while (running || !buffer.isEmpty() || !batch.isEmpty()) {
+            if (batch.isEmpty() && buffer.drainTo(batch, batchSize) == 0) {
+                writeAheadLog.maintain();
+                if (running) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+                continue;
+            }
+            try {
+                writeAheadLog.sync();
+                if (attempts < maxAttempts) {
+                    write(batch);
+                    batch.clear();
+                } else {
+                    writeOneByOne(batch);
+                }
+                attempts = 0;
+                writeAheadLog.maintain();
+            } catch (RuntimeException e) {
+                attempts++;
+                log.error("{} mesaj veritabanına yazılamadı, tekrar denenecek ({}. deneme)", batch.size(), attempts, e);
+                if (!running) break; // Kapanırken yazılamayanlar WAL'dan geri yüklenir
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retryDelayMs));
+            }
+        }
+    }
+
+    /**
+     * Bütün olarak yazılamayan batch'i mesaj mesaj yazar; yazılan veya karantinaya alınan kayıt batch'ten çıkarılır.
+     * <p>
+     * <b>Nasıl çalışır?</b> Bir mesaj yazılamazsa veritabanı SELECT 1 ile yoklanır. Veritabanı cevap vermiyorsa sorun mesajda değil
+     * bağlantıdadır: hata fırlatılır ve kalan mesajlar sonra tekrar denenir. Cevap veriyorsa mesaj karantinaya alınır.
+     * </p>
+     * @throws RuntimeException Veritabanına ulaşılamazsa
+     */
+    private void writeOneByOne(List<Entry> batch) {
+        for (Iterator<Entry> it = batch.iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            try {
+                write(List.of(entry));
+            } catch (RuntimeException e) {
+                jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                log.error("Mesaj {} tek başına da yazılamadı, karantinaya alınıyor", entry.message().getId(), e);
+                writeAheadLog.quarantine(entry);
+                quarantined.increment();
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * Kayıtları yazar, WAL'a bildirir ve ilgili inbox önbelleklerini temizler.
+     */
+    private void write(List<Entry> entries) {
+        List<ChatMessage> messages = new ArrayList<>(entries.size());
+        for (Entry entry : entries) messages.add(entry.message());
+        List<ChatMessage> written = chatMetrics.stage(ChatMetrics.PERSIST, MessageIngestPipeline.Mode.WRITE_BEHIND)
+            .observe(() -> insert(messages));
+        chatMetrics.recordBatch(messages.size());
+        for (Entry entry : entries) writeAheadLog.committed(entry);
+        // Yayın anında mesaj henüz veritabanında olmadığı için önbelleğe eski liste girmiş olabilir
+        Map<Long, Conversation> conversations = new LinkedHashMap<>();
+        for (ChatMessage message : written) {
+            Conversation conversation = message.getConversation();
+            if (conversation != null) conversations.putIfAbsent(conversation.getId(), conversation);
+        }
+        for (Conversation conversation : conversations.values()) {
+            inboxService.invalidate(conversation.getUser1(), conversation.getUser2());
+        }
+    }
+
+    /**
+     * Mesajları ve dedup satırlarını tek transaction'da ekler.
+     * <p>
+     * <b>Nasıl çalışır?</b> Önce dedup satırları eklenir; eklenemeyen (aynı gönderen ve clientMessageId daha önce
+     * kaydedilmiş) mesajlar atlanır. Kalan mesajlar tek batch INSERT ile yazılır.
+     * </p>
+     * @return Yazılan (mükerrer olmayan) mesajlar
+     */
+    private List<ChatMessage> insert(List<ChatMessage> messages) {
+        return transactionTemplate.execute(status -> {
+            List<ChatMessage> keyed = new ArrayList<>();
+            for (ChatMessage message : messages) {
+                String clientMessageId = message.getClientMessageId();
+                if (clientMessageId != null && !clientMessageId.isBlank()) keyed.add(message);
+            }
+            Set<ChatMessage> duplicates = Collections.newSetFromMap(new IdentityHashMap<>());
+            if (!keyed.isEmpty()) {
+                int[] counts = jdbcTemplate.batchUpdate(INSERT_DEDUP_SQL, keyed, keyed.size(), (ps, m) -> {
+                    ps.setString(1, User.normalize(m.getSender()));
+                    ps.setString(2, m.getClientMessageId());
+                    ps.setLong(3, m.getId());
+                    ps.setTimestamp(4, Timestamp.valueOf(m.getTimestamp()));
+                })[0];
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) duplicates.add(keyed.get(i));
+                }
+                if (!duplicates.isEmpty()) log.debug("{} mükerrer mesaj yazılmadı", duplicates.size());
+            }
+            List<ChatMessage> fresh = new ArrayList<>(messages.size());
+            for (ChatMessage message : messages) {
+                if (!duplicates.contains(message)) fresh.add(message);
+            }
+            if (!fresh.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_MESSAGE_SQL, fresh, fresh.size(), WriteBehindMessageWriter::bindMessage);
+            }
+            return fresh;
+        });
+    }
+
+    private static void bindMessage(PreparedStatement ps, ChatMessage m) throws SQLException {
+        ps.setLong(1, m.getId());
+        ps.setString(2, m.getSender());
+        ps.setString(3, m.getContent());
+        ps.setTimestamp(4, Timestamp.valueOf(m.getTimestamp()));
+        ps.setString(5, m.getChannel());
+        ps.setObject(6, m.getConversation() != null ? m.getConversation().getId() : null, Types.BIGINT);
+        ps.setString(7, m.getClientMessageId());
+    }
+
+    /**
+     * Önceki çalışmadan kalan WAL dosyalarındaki mesajları yazar ve dosyaları siler.
+     * Veritabanına yazılamazsa dosyalar bir sonraki açılış için bırakılır.
+     */
+    private void recover() {
+        Recovered recovered = writeAheadLog.recover();
+        if (recovered.files().isEmpty()) return;
+        try {
+            List<ChatMessage> messages = recovered.messages();
+            for (int from = 0; from < messages.size(); from += batchSize) {
+                insert(messages.subList(from, Math.min(from + batchSize, messages.size())));
+            }
+            writeAheadLog.deleteRecovered(recovered.files());
+            log.info("WAL'dan {} mesaj geri yüklendi ({} dosya)", messages.size(), recovered.files().size());
+        } catch (RuntimeException e) {
+            log.error("WAL geri yüklemesi başarısız, dosyalar bir sonraki açılışa bırakıldı", e);
+        }
+    }
+}
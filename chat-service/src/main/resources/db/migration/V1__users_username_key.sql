@@ -0,0 +1,17 @@
+-- Kullanıcı adı için büyük/küçük harf duyarsız arama anahtarı.
+-- findByUsernameIgnoreCase eskiden upper(username) = upper(?) sorgusuna dönüşüyordu ve unique index'i kullanamıyordu.
+-- users tablosu auth-service'e aittir (auth-service V1__users_lookup_keys.sql oluşturur ve username_key'i zaten ekler);
+-- burada tablo oluşturulmaz, yalnızca tablo varsa ve sütun/index eksikse eklenir.
+
+DO $$
+BEGIN
+    IF to_regclass('users') IS NULL THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE users ADD COLUMN IF NOT EXISTS username_key VARCHAR(255);
+    UPDATE users SET username_key = lower(username) WHERE username_key IS NULL;
+    ALTER TABLE users ALTER COLUMN username_key SET NOT NULL;
+    CREATE UNIQUE INDEX IF NOT EXISTS ux_users_username_key ON users (username_key);
+END
+$$;
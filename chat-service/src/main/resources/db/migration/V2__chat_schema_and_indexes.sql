@@ -0,0 +1,50 @@
+-- chat-service tabloları ve repository sorgularının ihtiyaç duyduğu index'ler.
+-- Tablolar daha önce Hibernate ddl-auto=update ile oluşturulmuş olabilir; bu yüzden IF NOT EXISTS kullanılır.
+
+CREATE TABLE IF NOT EXISTS conversations (
+    id         BIGSERIAL    PRIMARY KEY,
+    user1      VARCHAR(255) NOT NULL,
+    user2      VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS chat_messages (
+    id              BIGSERIAL    PRIMARY KEY,
+    sender          VARCHAR(255) NOT NULL,
+    content         VARCHAR(255) NOT NULL,
+    timestamp       TIMESTAMP(6) NOT NULL,
+    channel         VARCHAR(255),
+    conversation_id BIGINT REFERENCES conversations (id)
+);
+
+CREATE TABLE IF NOT EXISTS friend_requests (
+    id            BIGSERIAL    PRIMARY KEY,
+    from_username VARCHAR(255) NOT NULL,
+    to_username   VARCHAR(255) NOT NULL,
+    status        VARCHAR(255) NOT NULL CHECK (status IN ('PENDING', 'ACCEPTED', 'REJECTED')),
+    created_at    TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user_friends (
+    user_id   BIGINT NOT NULL REFERENCES users (id),
+    friend_id BIGINT NOT NULL REFERENCES users (id),
+    PRIMARY KEY (user_id, friend_id)
+);
+
+-- ChatMessageRepository.findByConversationId (sohbet geçmişi)
+CREATE INDEX IF NOT EXISTS ix_chat_messages_conversation_ts ON chat_messages (conversation_id, timestamp);
+-- ChatMessageRepository.findByChannel
+CREATE INDEX IF NOT EXISTS ix_chat_messages_channel_ts ON chat_messages (channel, timestamp);
+-- ChatMessageRepository.findByChannelIgnoreCaseTrimmed: LOWER(TRIM(channel)) = LOWER(TRIM(?))
+CREATE INDEX IF NOT EXISTS ix_chat_messages_channel_norm ON chat_messages (lower(trim(channel)));
+-- ChatMessageRepository.findBySender
+CREATE INDEX IF NOT EXISTS ix_chat_messages_sender_ts ON chat_messages (sender, timestamp);
+-- Zaman aralığına göre okuma ve temizlik işleri
+CREATE INDEX IF NOT EXISTS ix_chat_messages_timestamp ON chat_messages (timestamp);
+
+-- ConversationRepository.findByUser1AndUser2 / findByUser2AndUser1 (iki sorgu da aynı sütun çiftini kullanır)
+CREATE INDEX IF NOT EXISTS ix_conversations_users ON conversations (user1, user2);
+
+-- FriendRequestRepository.findByFromUsernameAndStatus / findByToUsernameAndStatus / findByFromUsernameOrToUsername
+CREATE INDEX IF NOT EXISTS ix_friend_requests_from_status ON friend_requests (from_username, status);
+CREATE INDEX IF NOT EXISTS ix_friend_requests_to_status ON friend_requests (to_username, status);
@@ -0,0 +1,93 @@
+-- chat_messages tablosunu timestamp sütununa göre aylık range partition'lara böler.
+-- Eski (partition'sız) tablo yeniden adlandırılır, veriler yeni tabloya kopyalanır ve eski tablo silinir.
+-- Partition anahtarı birincil anahtarın parçası olmak zorunda olduğu için PK (id, timestamp) olur;
+-- id değerleri hâlâ tek bir sequence'tan geldiği için tekil kalır.
+
+ALTER TABLE chat_messages RENAME TO chat_messages_unpartitioned;
+ALTER TABLE chat_messages_unpartitioned RENAME CONSTRAINT chat_messages_pkey TO chat_messages_unpartitioned_pkey;
+DROP INDEX IF EXISTS ix_chat_messages_conversation_ts;
+DROP INDEX IF EXISTS ix_chat_messages_channel_ts;
+DROP INDEX IF EXISTS ix_chat_messages_channel_norm;
+DROP INDEX IF EXISTS ix_chat_messages_sender_ts;
+DROP INDEX IF EXISTS ix_chat_messages_timestamp;
+
+-- Hibernate ddl-auto=update ile oluşturulmuş veritabanlarında id "GENERATED BY DEFAULT AS IDENTITY" sütunudur ve
+-- sequence'ı sütuna kilitlidir (sahipliği taşınamaz). Bu durumda identity kaldırılır ve aynı adla, kalınan değerden
+-- devam eden bağımsız bir sequence oluşturulur. BIGSERIAL (V2) ile oluşturulan tablolarda hiçbir şey yapılmaz.
+DO $$
+DECLARE
+    identity_seq TEXT;
+    next_id      BIGINT;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_attribute
+                    WHERE attrelid = 'chat_messages_unpartitioned'::regclass AND attname = 'id' AND attidentity <> '') THEN
+        RETURN;
+    END IF;
+    identity_seq := pg_get_serial_sequence('chat_messages_unpartitioned', 'id');
+    EXECUTE format('SELECT CASE WHEN is_called THEN last_value + 1 ELSE last_value END FROM %s', identity_seq) INTO next_id;
+    SELECT GREATEST(next_id, COALESCE(max(id), 0) + 1) INTO next_id FROM chat_messages_unpartitioned;
+    ALTER TABLE chat_messages_unpartitioned ALTER COLUMN id DROP IDENTITY;
+    CREATE SEQUENCE chat_messages_id_seq;
+    PERFORM setval('chat_messages_id_seq', next_id, false);
+END
+$$;
+
+CREATE TABLE chat_messages (
+    id              BIGINT       NOT NULL DEFAULT nextval('chat_messages_id_seq'),
+    sender          VARCHAR(255) NOT NULL,
+    content         VARCHAR(255) NOT NULL,
+    timestamp       TIMESTAMP(6) NOT NULL,
+    channel         VARCHAR(255),
+    conversation_id BIGINT REFERENCES conversations (id),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Sequence eski tabloya bağlı; eski tablo silinince sequence da silinmesin diye sahipliği taşınır.
+ALTER SEQUENCE chat_messages_id_seq OWNED BY chat_messages.id;
+
+-- Index'ler ana tabloda tanımlanır, PostgreSQL bunları her partition'a otomatik uygular.
+CREATE INDEX ix_chat_messages_conversation_ts ON chat_messages (conversation_id, timestamp);
+CREATE INDEX ix_chat_messages_channel_ts ON chat_messages (channel, timestamp);
+CREATE INDEX ix_chat_messages_channel_norm ON chat_messages (lower(trim(channel)));
+CREATE INDEX ix_chat_messages_sender_ts ON chat_messages (sender, timestamp);
+CREATE INDEX ix_chat_messages_timestamp ON chat_messages (timestamp);
+
+-- Hiçbir aylık partition'a düşmeyen satırlar için güvenlik ağı. Bakım işi ileri tarihli partition'ları
+-- önceden oluşturduğu için normalde boş kalır.
+CREATE TABLE chat_messages_default PARTITION OF chat_messages DEFAULT;
+
+-- Verilen ayın partition'ını (chat_messages_pYYYYMM) oluşturur; zaten varsa hiçbir şey yapmaz.
+-- Default partition'da o aya ait satır varsa önce yeni tabloya taşınır, sonra tablo partition olarak eklenir.
+CREATE OR REPLACE FUNCTION create_chat_messages_partition(month_start DATE) RETURNS TEXT AS $$
+DECLARE
+    range_from TIMESTAMP := date_trunc('month', month_start);
+    range_to   TIMESTAMP := date_trunc('month', month_start) + INTERVAL '1 month';
+    part_name  TEXT      := 'chat_messages_p' || to_char(month_start, 'YYYYMM');
+BEGIN
+    IF to_regclass(part_name) IS NOT NULL THEN
+        RETURN part_name;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE chat_messages INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part_name);
+    EXECUTE format('INSERT INTO %I SELECT * FROM chat_messages_default WHERE timestamp >= %L AND timestamp < %L',
+                   part_name, range_from, range_to);
+    DELETE FROM chat_messages_default WHERE timestamp >= range_from AND timestamp < range_to;
+    EXECUTE format('ALTER TABLE chat_messages ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   part_name, range_from, range_to);
+    RETURN part_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Mevcut verinin kapsadığı aylar ve önümüzdeki 3 ay için partition'lar.
+SELECT create_chat_messages_partition(month::DATE)
+  FROM generate_series(
+           date_trunc('month', LEAST(COALESCE((SELECT min(timestamp) FROM chat_messages_unpartitioned), now()), now())),
+           date_trunc('month', now()) + INTERVAL '3 months',
+           INTERVAL '1 month') AS month;
+
+INSERT INTO chat_messages (id, sender, content, timestamp, channel, conversation_id)
+SELECT id, sender, content, timestamp, channel, conversation_id FROM chat_messages_unpartitioned;
+
+DROP TABLE chat_messages_unpartitioned;
+
+-- Retention işinin eski partition'ları taşıyacağı arşiv şeması.
+CREATE SCHEMA IF NOT EXISTS chat_archive;
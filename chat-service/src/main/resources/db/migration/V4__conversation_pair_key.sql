@@ -0,0 +1,34 @@
+-- İki kullanıcı arasındaki sohbet için sıralanmış ve küçük harfe çevrilmiş tekil anahtar.
+-- Java tarafındaki Conversation.pairKeyOf ile aynı kuralı uygular; COLLATE "C" sıralamanın
+-- veritabanı dil ayarından bağımsız (Java String.compareTo ile aynı) olmasını sağlar.
+
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS pair_key VARCHAR(511);
+
+UPDATE conversations
+   SET pair_key = least(lower(user1) COLLATE "C", lower(user2) COLLATE "C")
+               || '|' || greatest(lower(user1) COLLATE "C", lower(user2) COLLATE "C")
+ WHERE pair_key IS NULL;
+
+-- Eşzamanlı /start çağrılarının oluşturduğu mükerrer sohbetleri birleştir: en eski kayıt kalır,
+-- diğerlerinin mesajları ona taşınır.
+WITH ranked AS (
+    SELECT id, min(id) OVER (PARTITION BY pair_key) AS keeper_id
+      FROM conversations
+)
+UPDATE chat_messages m
+   SET conversation_id = r.keeper_id
+  FROM ranked r
+ WHERE m.conversation_id = r.id
+   AND r.id <> r.keeper_id;
+
+DELETE FROM conversations c
+ USING conversations k
+ WHERE c.pair_key = k.pair_key
+   AND c.id > k.id;
+
+ALTER TABLE conversations ALTER COLUMN pair_key SET NOT NULL;
+
+CREATE UNIQUE INDEX ux_conversations_pair_key ON conversations (pair_key);
+
+-- findByUser1AndUser2 / findByUser2AndUser1 artık kullanılmıyor.
+DROP INDEX IF EXISTS ix_conversations_users;
@@ -0,0 +1,5 @@
+-- Mesaj gönderirken yapılan arkadaşlık kontrolü (FriendRequestRepository.existsAcceptedBetween) için kısmi index.
+-- Yalnızca kabul edilmiş istekler indexlenir; sorgu iki yönü de bu index üzerinden arar.
+CREATE INDEX IF NOT EXISTS ix_friend_requests_accepted_pair
+    ON friend_requests (lower(from_username), lower(to_username))
+    WHERE status = 'ACCEPTED';
@@ -0,0 +1,10 @@
+-- Mesaj araması (ChatMessageRepository.search) için tam metin index'i.
+-- Index bir ifade (expression) üzerinde tanımlanır; ek sütun gerekmez ve her INSERT/UPDATE'te PostgreSQL
+-- tarafından otomatik güncellenir. 'simple' yapılandırması dile özgü kök bulma yapmaz (Türkçe ve İngilizce
+-- mesajlar için aynı şekilde çalışır). Ana tabloda tanımlandığı için tüm aylık partition'lara uygulanır.
+CREATE INDEX IF NOT EXISTS ix_chat_messages_content_fts
+    ON chat_messages USING GIN (to_tsvector('simple', content));
+
+-- Arama kapsamı kullanıcının sohbetleriyle sınırlanır; sohbetler kullanıcı adına göre (harf duyarsız) bulunur.
+CREATE INDEX IF NOT EXISTS ix_conversations_user1_norm ON conversations (lower(user1));
+CREATE INDEX IF NOT EXISTS ix_conversations_user2_norm ON conversations (lower(user2));
@@ -0,0 +1,14 @@
+-- Kullanıcı başına, sohbet başına okunma durumu ve okunmamış mesaj sayısı.
+-- unread_count, UnreadCounterService tarafından bellekte biriktirilip toplu olarak (batch) eklenir;
+-- kullanıcı sohbeti okuduğunda sıfırlanır. Sohbet silinince satırlar da silinir.
+CREATE TABLE IF NOT EXISTS conversation_read_state (
+    conversation_id      BIGINT       NOT NULL REFERENCES conversations (id) ON DELETE CASCADE,
+    username_key         VARCHAR(255) NOT NULL,
+    unread_count         INTEGER      NOT NULL DEFAULT 0,
+    last_read_message_id BIGINT,
+    last_read_at         TIMESTAMP(6),
+    PRIMARY KEY (conversation_id, username_key)
+);
+
+-- Inbox özeti kullanıcı adına göre okunur.
+CREATE INDEX IF NOT EXISTS ix_conversation_read_state_user ON conversation_read_state (username_key);
@@ -0,0 +1,6 @@
+-- Arkadaş listesi ve bekleyen istek sorguları (FriendRequestRepository projection'ları) kullanıcı adını
+-- harf büyüklüğünden bağımsız karşılaştırır; V2'deki düz index'ler lower(...) ifadesinde kullanılamaz.
+CREATE INDEX IF NOT EXISTS ix_friend_requests_lower_from_status
+    ON friend_requests (lower(from_username), status);
+CREATE INDEX IF NOT EXISTS ix_friend_requests_lower_to_status
+    ON friend_requests (lower(to_username), status);
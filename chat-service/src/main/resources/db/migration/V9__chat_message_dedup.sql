@@ -0,0 +1,16 @@
+-- İstemcinin verdiği mesaj kimliği (retry'larda aynı kalır).
+ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS client_message_id VARCHAR(64);
+
+-- Mükerrer mesaj kontrolü. chat_messages partition'lı olduğu için üzerindeki UNIQUE kısıtı timestamp'i
+-- içermek zorunda kalır ve retry'lar farklı timestamp aldığı için işe yaramaz; tekillik bu tabloda sağlanır.
+-- Satırlar MessageDeduplicator tarafından chat.dedup.retention-hours sonra silinir.
+CREATE TABLE IF NOT EXISTS chat_message_dedup (
+    sender_key        VARCHAR(255) NOT NULL,
+    client_message_id VARCHAR(64)  NOT NULL,
+    message_id        BIGINT       NOT NULL,
+    message_timestamp TIMESTAMP(6) NOT NULL,
+    created_at        TIMESTAMP(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (sender_key, client_message_id)
+);
+
+CREATE INDEX IF NOT EXISTS ix_chat_message_dedup_created_at ON chat_message_dedup (created_at);
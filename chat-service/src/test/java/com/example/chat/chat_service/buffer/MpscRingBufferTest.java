@@ -0,0 +1,121 @@
+package com.example.chat.chat_service.buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * MpscRingBuffer'ın dolu/boş davranışını ve çok üreticili sıralamayı doğrular.
+ */
+class MpscRingBufferTest {
+
+    @Test
+    void rejectsCapacityThatIsNotAPowerOfTwo() {
+        assertThatThrownBy(() -> new MpscRingBuffer<>(6)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MpscRingBuffer<>(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void emptyBufferPollsNull() {
+        MpscRingBuffer<String> buffer = new MpscRingBuffer<>(4);
+
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.isEmpty()).isTrue();
+        assertThat(buffer.drainTo(new ArrayList<>(), 10)).isZero();
+    }
+
+    @Test
+    void offerFailsWhenFullAndSucceedsAfterPoll() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) assertThat(buffer.offer(i)).isTrue();
+
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+
+        assertThat(buffer.poll()).isZero();
+        assertThat(buffer.offer(4)).isTrue();
+        assertThat(buffer.offer(5)).isFalse();
+    }
+
+    @Test
+    void keepsFifoOrderAcrossWrapAround() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            while (buffer.offer(next)) next++;
+            buffer.drainTo(drained, 3);
+        }
+        buffer.drainTo(drained, Integer.MAX_VALUE);
+
+        assertThat(drained).hasSize(next);
+        for (int i = 0; i < drained.size(); i++) assertThat(drained.get(i)).isEqualTo(i);
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    void offerRejectsNull() {
+        assertThatThrownBy(() -> new MpscRingBuffer<String>(2).offer(null)).isInstanceOf(NullPointerException.class);
+    }
+
+    /**
+     * Her üreticinin elemanları kendi içinde sırayla gelmeli, hiçbir eleman kaybolmamalı veya iki kez gelmemeli.
+     */
+    @Test
+    void multipleProducersKeepPerProducerOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(256);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long seq = 0; seq < perProducer; seq++) {
+                        long[] element = { producer, seq };
+                        while (!buffer.offer(element)) Thread.yield();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            long[] expected = new long[producers];
+            List<long[]> batch = new ArrayList<>();
+            long received = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (received < (long) producers * perProducer) {
+                assertThat(System.nanoTime() - deadline).as("tüketici zaman aşımı").isNegative();
+                batch.clear();
+                if (buffer.drainTo(batch, 64) == 0) {
+                    Thread.yield();
+                    continue;
+                }
+                for (long[] element : batch) {
+                    int producer = (int) element[0];
+                    assertThat(element[1]).isEqualTo(expected[producer]);
+                    expected[producer]++;
+                }
+                received += batch.size();
+            }
+            for (Future<?> future : futures) future.get(5, TimeUnit.SECONDS);
+
+            assertThat(expected).containsOnly(perProducer);
+            assertThat(buffer.poll()).isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.chat.chat_service.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.chat.chat_service.model.ChatMessage;
+import com.example.chat.chat_service.ratelimit.RateLimitExceededException;
+import com.example.chat.chat_service.ratelimit.SendRateLimiter;
+import com.example.chat.chat_service.security.StompAuthChannelInterceptor.StompUser;
+import com.example.chat.chat_service.service.MessageIngestPipeline;
+
+/**
+ * /app/chat.send'in gönderen olarak yalnızca token ile doğrulanan oturum kullanıcısını kullandığını doğrular.
+ */
+class ChatWebSocketControllerTest {
+    private ChatWebSocketController controller;
+    private MessageIngestPipeline messageIngestPipeline;
+    private SendRateLimiter sendRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        controller = new ChatWebSocketController();
+        messageIngestPipeline = mock(MessageIngestPipeline.class);
+        sendRateLimiter = mock(SendRateLimiter.class);
+        ReflectionTestUtils.setField(controller, "messageIngestPipeline", messageIngestPipeline);
+        ReflectionTestUtils.setField(controller, "sendRateLimiter", sendRateLimiter);
+    }
+
+    @Test
+    void anonymousSendIsRejectedEvenWithSenderField() {
+        controller.send(message("zeynep"), null);
+
+        verifyNoInteractions(messageIngestPipeline);
+        verifyNoInteractions(sendRateLimiter);
+    }
+
+    @Test
+    void senderComesFromPrincipalNotFromMessage() {
+        ChatMessage message = message("zeynep");
+
+        controller.send(message, new StompUser("veli"));
+
+        verify(messageIngestPipeline).ingest(eq(message), eq("veli"), isNull());
+        verify(messageIngestPipeline, never()).ingest(any(), eq("zeynep"), any());
+    }
+
+    @Test
+    void throttledSenderIsNotified() {
+        RateLimitExceededException limited = new RateLimitExceededException(SendRateLimiter.Scope.CHANNEL, 1000);
+        doThrow(limited).when(messageIngestPipeline).ingest(any(), anyString(), any());
+
+        controller.send(message(null), new StompUser("veli"));
+
+        verify(sendRateLimiter).notifyThrottled("veli", limited);
+    }
+
+    private static ChatMessage message(String sender) {
+        ChatMessage message = new ChatMessage();
+        message.setSender(sender);
+        message.setContent("merhaba");
+        message.setChannel("private_veli_zeynep");
+        return message;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.chat.chat_service.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.chat.chat_service.metrics.ChatMetrics;
+
+/**
+ * SendRateLimiter'ın bellek ve Redis kovalarıyla sınırı uyguladığını doğrular.
+ * Redis'li test yalnızca localhost:6379'da bir Redis çalışıyorsa koşar, aksi halde atlanır.
+ */
+class SendRateLimiterTest {
+    private SendRateLimiter limiter;
+    private ChatMetrics chatMetrics;
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new SendRateLimiter();
+        chatMetrics = mock(ChatMetrics.class);
+        redisTemplate = mock(StringRedisTemplate.class);
+        ReflectionTestUtils.setField(limiter, "chatMetrics", chatMetrics);
+        ReflectionTestUtils.setField(limiter, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "store", "memory");
+        ReflectionTestUtils.setField(limiter, "redisRetryMs", 10_000L);
+        ReflectionTestUtils.setField(limiter, "userRatePerSecond", 0.1);
+        ReflectionTestUtils.setField(limiter, "userBurst", 3);
+        ReflectionTestUtils.setField(limiter, "channelRatePerSecond", 0.1);
+        ReflectionTestUtils.setField(limiter, "channelBurst", 2);
+    }
+
+    @Test
+    void memoryStoreRejectsAfterBurst() {
+        for (int i = 0; i < 3; i++) limiter.acquireUser("Veli", "http");
+
+        assertThatThrownBy(() -> limiter.acquireUser("veli", "http"))
+            .isInstanceOfSatisfying(RateLimitExceededException.class, e -> {
+                assertThat(e.getScope()).isEqualTo(SendRateLimiter.Scope.USER);
+                assertThat(e.getRetryAfterMs()).isPositive();
+            });
+        verify(chatMetrics).rateLimited("user", "http");
+        limiter.acquireUser("zeynep", "http");
+    }
+
+    @Test
+    void channelLimitIsSharedBySenders() {
+        limiter.acquireChannel("conversation:4", "stomp");
+        limiter.acquireChannel("Conversation:4", "stomp");
+
+        assertThatThrownBy(() -> limiter.acquireChannel("conversation:4", "stomp"))
+            .isInstanceOfSatisfying(RateLimitExceededException.class,
+                e -> assertThat(e.getScope()).isEqualTo(SendRateLimiter.Scope.CHANNEL));
+    }
+
+    @Test
+    void disabledLimiterAllowsEverything() {
+        ReflectionTestUtils.setField(limiter, "enabled", false);
+
+        for (int i = 0; i < 10; i++) limiter.acquireUser("veli", "http");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void redisFailureFallsBackToLocalBuckets() {
+        ReflectionTestUtils.setField(limiter, "store", "redis");
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+            .thenThrow(new RedisConnectionFailureException("bağlantı yok"));
+
+        for (int i = 0; i < 3; i++) limiter.acquireUser("veli", "http");
+
+        assertThatThrownBy(() -> limiter.acquireUser("veli", "http")).isInstanceOf(RateLimitExceededException.class);
+        // İlk hatadan sonra redis-retry-ms boyunca Redis denenmez
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    void redisScriptAllowsBurstThenRejects() {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate redis = new StringRedisTemplate(connectionFactory);
+        String username = "test-" + UUID.randomUUID();
+        try {
+            assumeThat(ping(redis)).as("localhost:6379'da Redis çalışmıyor").isTrue();
+            ReflectionTestUtils.setField(limiter, "redisTemplate", redis);
+            ReflectionTestUtils.setField(limiter, "store", "redis");
+            try {
+                for (int i = 0; i < 3; i++) limiter.acquireUser(username, "http");
+
+                assertThatThrownBy(() -> limiter.acquireUser(username, "http"))
+                    .isInstanceOfSatisfying(RateLimitExceededException.class,
+                        e -> assertThat(e.getRetryAfterMs()).isBetween(1L, 10_001L));
+                assertThat(redis.getExpire("rate:user:" + username)).isPositive();
+            } finally {
+                redis.delete("rate:user:" + username);
+            }
+        } finally {
+            connectionFactory.destroy();
+        }
+    }
+
+    private static boolean ping(StringRedisTemplate redis) {
+        try {
+            return "PONG".equals(redis.execute(connection -> connection.ping(), true));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.chat.chat_service.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * TokenBucket'ın patlama (burst) kapasitesini ve dolma (refill) hızını doğrular.
+ * Saat, tryAcquire(now) ile elle ilerletilir; testler gerçek zamana bağlı değildir.
+ */
+class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void allowsBurstThenRejects() {
+        TokenBucket bucket = new TokenBucket(10, 5);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) assertThat(bucket.tryAcquire(now)).isZero();
+
+        assertThat(bucket.tryAcquire(now)).isEqualTo(SECOND / 10);
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(10, 5);
+        long now = System.nanoTime();
+        for (int i = 0; i < 5; i++) bucket.tryAcquire(now);
+
+        long wait = bucket.tryAcquire(now + SECOND / 20);
+        assertThat(wait).isEqualTo(SECOND / 20);
+
+        assertThat(bucket.tryAcquire(now + SECOND / 10)).isZero();
+        assertThat(bucket.tryAcquire(now + SECOND / 10)).isPositive();
+    }
+
+    @Test
+    void idleBucketRefillsOnlyUpToBurst() {
+        TokenBucket bucket = new TokenBucket(10, 5);
+        long later = System.nanoTime() + 60 * SECOND;
+
+        int allowed = 0;
+        while (bucket.tryAcquire(later) == 0) allowed++;
+
+        assertThat(allowed).isEqualTo(5);
+    }
+
+    @Test
+    void isFullOnlyWhenNoTokenIsMissing() {
+        TokenBucket bucket = new TokenBucket(1, 2);
+        assertThat(bucket.isFull()).isTrue();
+
+        bucket.tryAcquire();
+
+        assertThat(bucket.isFull()).isFalse();
+    }
+
+    @Test
+    void concurrentCallersNeverExceedBurst() throws Exception {
+        TokenBucket bucket = new TokenBucket(0.001, 100);
+        long now = System.nanoTime();
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < 4; t++) {
+                executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        if (bucket.tryAcquire(now) == 0) allowed.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(allowed).hasValue(100);
+    }
+}
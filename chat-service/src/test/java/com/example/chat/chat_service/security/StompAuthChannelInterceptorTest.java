@@ -0,0 +1,78 @@
+package com.example.chat.chat_service.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.security.Principal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.chat.chat_service.security.StompAuthChannelInterceptor.StompUser;
+
+/**
+ * StompAuthChannelInterceptor'ın kişiye özel kanallara yalnızca kanalın sahibini abone ettiğini doğrular.
+ */
+class StompAuthChannelInterceptorTest {
+    private StompAuthChannelInterceptor interceptor;
+    private MessageChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new StompAuthChannelInterceptor();
+        ReflectionTestUtils.setField(interceptor, "jwtVerifier", mock(JwtVerifier.class));
+        channel = mock(MessageChannel.class);
+    }
+
+    @Test
+    void ownerCanSubscribeToPersonalTopics() {
+        assertThat(subscribe("/topic/presence/veli", new StompUser("veli"))).isNotNull();
+        assertThat(subscribe("/topic/typing/Veli", new StompUser("veli"))).isNotNull();
+        assertThat(subscribe("/topic/unread/veli", new StompUser("Veli"))).isNotNull();
+        assertThat(subscribe("/topic/throttle/veli", new StompUser("veli"))).isNotNull();
+    }
+
+    @Test
+    void otherUsersPersonalTopicIsRejected() {
+        assertThat(subscribe("/topic/presence/zeynep", new StompUser("veli"))).isNull();
+        assertThat(subscribe("/topic/typing/zeynep", new StompUser("veli"))).isNull();
+        assertThat(subscribe("/topic/unread/zeynep", new StompUser("veli"))).isNull();
+        assertThat(subscribe("/topic/throttle/zeynep", new StompUser("veli"))).isNull();
+    }
+
+    @Test
+    void anonymousSessionCannotSubscribeToPersonalTopics() {
+        assertThat(subscribe("/topic/presence/veli", null)).isNull();
+        assertThat(subscribe("/topic/typing/veli", null)).isNull();
+        assertThat(subscribe("/topic/unread/veli", null)).isNull();
+        assertThat(subscribe("/topic/throttle/veli", null)).isNull();
+    }
+
+    @Test
+    void wildcardSubscriptionsAreRejected() {
+        assertThat(subscribe("/topic/presence/*", new StompUser("veli"))).isNull();
+        assertThat(subscribe("/topic/**", new StompUser("veli"))).isNull();
+        assertThat(subscribe("/topic/typing/{user}", new StompUser("veli"))).isNull();
+    }
+
+    @Test
+    void sharedTopicsStayOpen() {
+        assertThat(subscribe("/topic/messages/general", null)).isNotNull();
+        assertThat(subscribe("/topic/messages/general", new StompUser("veli"))).isNotNull();
+    }
+
+    private Message<?> subscribe(String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("s1");
+        accessor.setUser(user);
+        accessor.setLeaveMutable(true);
+        return interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), channel);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.chat.chat_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.chat.chat_service.model.ChatMessage;
+import com.example.chat.chat_service.repository.ChatMessageRepository;
+import com.example.chat.chat_service.service.MessageDeduplicator.SaveResult;
+
+/**
+ * MessageDeduplicator'ın bellekteki claim/release davranışını ve saveOnce'ın mükerrer kayıtta transaction'ı
+ * geri alıp ilk mesajı döndürdüğünü doğrular. Veritabanı Mockito ile taklit edilir.
+ */
+class MessageDeduplicatorTest {
+    private MessageDeduplicator deduplicator;
+    private ChatMessageRepository chatMessageRepository;
+    private JdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = new MessageDeduplicator(1000);
+        chatMessageRepository = mock(ChatMessageRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(deduplicator, "chatMessageRepository", chatMessageRepository);
+        ReflectionTestUtils.setField(deduplicator, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(deduplicator, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(deduplicator, "windowSeconds", 300L);
+    }
+
+    @Test
+    void claimRejectsSecondSendWithSameId() {
+        assertThat(deduplicator.claim(message("Veli", "abc"))).isTrue();
+
+        assertThat(deduplicator.claim(message("veli", "abc"))).isFalse();
+        assertThat(deduplicator.claim(message("zeynep", "abc"))).isTrue();
+    }
+
+    @Test
+    void messagesWithoutClientIdAreNeverDeduplicated() {
+        assertThat(deduplicator.claim(message("veli", null))).isTrue();
+        assertThat(deduplicator.claim(message("veli", null))).isTrue();
+        assertThat(deduplicator.recent(message("veli", null))).isEmpty();
+    }
+
+    @Test
+    void releaseLetsTheRetryThrough() {
+        ChatMessage first = message("veli", "abc");
+        deduplicator.claim(first);
+
+        deduplicator.release(first);
+
+        assertThat(deduplicator.claim(message("veli", "abc"))).isTrue();
+    }
+
+    @Test
+    void expiredClaimCanBeClaimedAgain() throws InterruptedException {
+        ReflectionTestUtils.setField(deduplicator, "windowSeconds", 0L);
+        deduplicator.claim(message("veli", "abc"));
+        Thread.sleep(1);
+
+        assertThat(deduplicator.recent(message("veli", "abc"))).isEmpty();
+        assertThat(deduplicator.claim(message("veli", "abc"))).isTrue();
+    }
+
+    @Test
+    void recentReturnsTheClaimedMessage() {
+        ChatMessage first = message("veli", "abc");
+        first.setId(7L);
+        deduplicator.claim(first);
+
+        assertThat(deduplicator.recent(message("veli", "abc"))).containsSame(first);
+    }
+
+    @Test
+    void rejectsTooLongClientId() {
+        ChatMessage message = message("veli", "x".repeat(MessageDeduplicator.MAX_CLIENT_MESSAGE_ID_LENGTH + 1));
+
+        assertThatThrownBy(() -> deduplicator.claim(message)).isInstanceOf(ResponseStatusException.class);
+    }
+
+    /**
+     * Aynı mesajın eşzamanlı gönderimlerinden yalnızca biri claim'i almalı.
+     */
+    @Test
+    void concurrentDuplicateClaimsAdmitExactlyOne() throws Exception {
+        int senders = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(senders);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < senders; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return deduplicator.claim(message("veli", "same"));
+                }));
+            }
+            start.countDown();
+
+            int admitted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(5, TimeUnit.SECONDS)) admitted++;
+            }
+            assertThat(admitted).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void saveOnceCommitsFirstSave() {
+        ChatMessage message = message("veli", "abc");
+        when(chatMessageRepository.save(message)).thenAnswer(invocation -> withId(message, 10L));
+        when(jdbcTemplate.update(anyString(), any(), any(), any(), any())).thenReturn(1);
+
+        SaveResult result = deduplicator.saveOnce(message);
+
+        assertThat(result.duplicate()).isFalse();
+        assertThat(result.message().getId()).isEqualTo(10L);
+        verify(transactionManager).commit(any());
+        verify(transactionManager, never()).rollback(any());
+        assertThat(deduplicator.recent(message("veli", "abc"))).containsSame(result.message());
+    }
+
+    @Test
+    void saveOnceRollsBackDuplicateAndReturnsOriginal() {
+        ChatMessage original = withId(message("veli", "abc"), 10L);
+        ChatMessage retry = message("veli", "abc");
+        when(chatMessageRepository.save(retry)).thenAnswer(invocation -> withId(retry, 11L));
+        when(jdbcTemplate.update(anyString(), any(), any(), any(), any())).thenReturn(0);
+        doReturn(List.<Object[]>of(new Object[] { 10L, original.getTimestamp() }))
+            .when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq("veli"), eq("abc"));
+        when(chatMessageRepository.findByIdAndTimestamp(10L, original.getTimestamp())).thenReturn(Optional.of(original));
+
+        SaveResult result = deduplicator.saveOnce(retry);
+
+        assertThat(result.duplicate()).isTrue();
+        assertThat(result.message()).isSameAs(original);
+        assertThat(retry.getId()).isNull();
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void saveOnceWithoutClientIdSkipsDedupTable() {
+        ChatMessage message = message("veli", null);
+        when(chatMessageRepository.save(message)).thenReturn(message);
+
+        assertThat(deduplicator.saveOnce(message).duplicate()).isFalse();
+        verify(jdbcTemplate, never()).update(anyString(), any(), any(), any(), any());
+    }
+
+    /**
+     * Eşzamanlı saveOnce çağrılarında dedup satırını yalnızca biri ekleyebilir (veritabanının ON CONFLICT davranışı taklit edilir);
+     * diğerleri geri alınıp mükerrer olarak döner.
+     */
+    @Test
+    void concurrentSaveOnceKeepsOneRow() throws Exception {
+        AtomicBoolean inserted = new AtomicBoolean();
+        AtomicLong ids = new AtomicLong();
+        when(chatMessageRepository.save(any())).thenAnswer(invocation -> withId(invocation.getArgument(0), ids.incrementAndGet()));
+        when(jdbcTemplate.update(anyString(), any(), any(), any(), any()))
+            .thenAnswer(invocation -> inserted.compareAndSet(false, true) ? 1 : 0);
+        doReturn(List.of()).when(jdbcTemplate).query(anyString(), any(RowMapper.class), any(), any());
+
+        int senders = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(senders);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<SaveResult>> results = new ArrayList<>();
+            for (int i = 0; i < senders; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return deduplicator.saveOnce(message("veli", "same"));
+                }));
+            }
+            start.countDown();
+
+            int saved = 0;
+            for (Future<SaveResult> result : results) {
+                if (!result.get(5, TimeUnit.SECONDS).duplicate()) saved++;
+            }
+            assertThat(saved).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ChatMessage message(String sender, String clientMessageId) {
+        ChatMessage message = new ChatMessage();
+        message.setSender(sender);
+        message.setContent("merhaba");
+        message.setChannel("general");
+        message.setTimestamp(LocalDateTime.of(2026, 1, 1, 12, 0));
+        message.setClientMessageId(clientMessageId);
+        return message;
+    }
+
+    private static ChatMessage withId(ChatMessage message, long id) {
+        message.setId(id);
+        return message;
+    }
+}
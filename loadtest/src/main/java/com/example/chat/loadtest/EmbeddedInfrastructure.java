@@ -0,0 +1,111 @@
+package com.example.chat.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.server.SystemLauncher;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import redis.embedded.RedisServer;
+
+/**
+ * Servislerin ihtiyaç duyduğu altyapıyı yük testi JVM'i içinde başlatır.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Postgres: EmbeddedPostgres gerçek PostgreSQL ikililerini yerel bir süreç olarak çalıştırır
+ *       (H2 değil; partitioning, ON CONFLICT ve tsvector gibi özellikler aynen çalışır).</li>
+ *   <li>RabbitMQ: Qpid Broker-J, AMQP 0-9-1 konuşan ve mesajları bellekte tutan bir broker'dır; Spring AMQP ile uyumludur.</li>
+ *   <li>Redis: embedded-redis paketlenmiş redis-server ikilisini başlatır.</li>
+ *   <li>Tüm portlar boş portlardan seçilir; makinede çalışan başka servislerle çakışmaz.</li>
+ * </ul>
+ */
+final class EmbeddedInfrastructure implements AutoCloseable {
+    static final String DATABASE = "chatapp";
+
+    private final EmbeddedPostgres postgres;
+    private final SystemLauncher broker;
+    private final RedisServer redis;
+    private final int amqpPort;
+    private final int redisPort;
+
+    private EmbeddedInfrastructure(EmbeddedPostgres postgres, SystemLauncher broker, int amqpPort, RedisServer redis, int redisPort) {
+        this.postgres = postgres;
+        this.broker = broker;
+        this.amqpPort = amqpPort;
+        this.redis = redis;
+        this.redisPort = redisPort;
+    }
+
+    static EmbeddedInfrastructure start(Path workDir) throws Exception {
+        Path pgData = workDir.resolve("postgres");
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+            .setDataDirectory(pgData)
+            .setCleanDataDirectory(true)
+            .setServerConfig("max_connections", "300")
+            .start();
+        try (Connection c = postgres.getPostgresDatabase().getConnection(); Statement s = c.createStatement()) {
+            s.execute("CREATE DATABASE " + DATABASE);
+        }
+        System.out.println("Postgres hazır: port " + postgres.getPort());
+
+        int amqpPort = freePort();
+        Path brokerDir = Files.createDirectories(workDir.resolve("qpid"));
+        SystemLauncher broker = new SystemLauncher();
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("type", "Memory");
+        attributes.put("initialConfigurationLocation",
+            EmbeddedInfrastructure.class.getClassLoader().getResource("qpid-config.json").toExternalForm());
+        attributes.put("startupLoggedToSystemOut", false);
+        attributes.put("context", Map.of(
+            "qpid.amqp_port", String.valueOf(amqpPort),
+            "qpid.work_dir", brokerDir.toString(),
+            "qpid.home_dir", brokerDir.toString()));
+        broker.startup(attributes);
+        System.out.println("AMQP broker hazır: port " + amqpPort);
+
+        int redisPort = freePort();
+        RedisServer redis = new RedisServer(redisPort);
+        redis.start();
+        System.out.println("Redis hazır: port " + redisPort);
+
+        return new EmbeddedInfrastructure(postgres, broker, amqpPort, redis, redisPort);
+    }
+
+    String jdbcUrl() {
+        return "jdbc:postgresql://localhost:" + postgres.getPort() + "/" + DATABASE;
+    }
+
+    int amqpPort() {
+        return amqpPort;
+    }
+
+    int redisPort() {
+        return redisPort;
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            redis.stop();
+        } finally {
+            try {
+                broker.shutdown();
+            } finally {
+                postgres.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.chat.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gecikme ölçümlerini (nanosaniye) toplayan ve yüzdelik değerleri hesaplayan kayıtçı.
+ * <p>
+ * <b>Nasıl çalışır?</b> Her ölçüm büyüyen bir long dizisine eklenir; rapor anında dizi sıralanır ve
+ * p50/p99/p999 değerleri doğrudan okunur (yaklaşık histogram değil, kesin değerler).
+ * </p>
+ */
+final class LatencyRecorder {
+    private final String name;
+    private long[] samples = new long[1024];
+    private int count;
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    synchronized void record(long nanos) {
+        if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+        samples[count++] = nanos;
+    }
+
+    /**
+     * Isınma turunun ölçümlerini atar.
+     */
+    synchronized void reset() {
+        count = 0;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Sayı, ortalama ve yüzdelik değerleri milisaniye olarak döndürür.
+     */
+    synchronized Map<String, Object> summary() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("count", count);
+        if (count == 0) return result;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long s : sorted) sum += s;
+        result.put("meanMs", millis(sum / count));
+        result.put("p50Ms", millis(percentile(sorted, 0.50)));
+        result.put("p99Ms", millis(percentile(sorted, 0.99)));
+        result.put("p999Ms", millis(percentile(sorted, 0.999)));
+        result.put("maxMs", millis(sorted[count - 1]));
+        return result;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1) * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.chat.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * LoadTest, chat-service ve auth-service'i gömülü altyapıyla başlatıp uçtan uca yük testi yapar.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>Hazırlık: Kullanıcılar auth-service'e kaydolup giriş yapar (JWT), ikişerli arkadaş olur ve her çift için sohbet açılır.</li>
+ *   <li>Her kullanıcı STOMP ile bağlanır ve kendi sohbetinin "/topic/conversation/{id}" kanalına abone olur.</li>
+ *   <li>Her çiftin ilk kullanıcısı REST ile (/api/conversation/{id}/send) mesaj gönderir; mesaj ikinci kullanıcının
+ *       oturumuna ulaştığı an ölçülür (send → broadcast gecikmesi).</li>
+ *   <li>Aynı anda ayrı thread'ler sohbet geçmişini (/api/conversation/{id}/messages) sorgular.</li>
+ *   <li>Sonuç: throughput ve p50/p99/p999 gecikmeler; konsola ve JSON rapora yazılır. Aynı parametrelerle tekrar
+ *       çalıştırılan raporlar karşılaştırılarak regresyon görülebilir.</li>
+ * </ul>
+ */
+public final class LoadTest {
+    /**
+     * İki servisin de kullandığı JWT gizli anahtarı (auth-service imzalar, chat-service doğrular).
+     */
+    private static final String JWT_SECRET = "loadtest-secret-key-at-least-32-characters";
+    private static final String PASSWORD = "loadtest-password";
+
+    private final LoadTestOptions options;
+    private final String authUrl;
+    private final String chatUrl;
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5)).build();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final LatencyRecorder broadcastLatency = new LatencyRecorder("send→broadcast");
+    private final LatencyRecorder sendLatency = new LatencyRecorder("send (HTTP)");
+    private final LatencyRecorder historyLatency = new LatencyRecorder("history");
+
+    /**
+     * Gönderilen ve henüz alıcıya ulaşmamış mesajlar: içerik → gönderim anı (nanoTime).
+     */
+    private final ConcurrentHashMap<String, Long> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LongAdder historyErrors = new LongAdder();
+    private final AtomicLong lastReceivedNanos = new AtomicLong();
+
+    private final List<Pair> pairs = new ArrayList<>();
+    private final List<StompClient> stompClients = new ArrayList<>();
+
+    /**
+     * Bir sohbet çifti: gönderen, alıcı ve sohbet id'si.
+     */
+    private record Pair(int index, String sender, String senderToken, String receiver, String receiverToken, long conversationId) {
+    }
+
+    private LoadTest(LoadTestOptions options, String authUrl, String chatUrl) {
+        this.options = options;
+        this.authUrl = authUrl;
+        this.chatUrl = chatUrl;
+    }
+
+    public static void main(String[] args) {
+        int status = 0;
+        try {
+            launch(LoadTestOptions.parse(args));
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 1;
+        }
+        System.exit(status); // Gömülü broker'ın daemon olmayan thread'leri JVM'i açık tutmasın
+    }
+
+    private static void launch(LoadTestOptions options) throws Exception {
+        Path workDir = Files.createDirectories(options.workDir().toAbsolutePath());
+        try (EmbeddedInfrastructure infra = EmbeddedInfrastructure.start(workDir)) {
+            Map<String, String> common = new LinkedHashMap<>();
+            common.put("spring.datasource.url", infra.jdbcUrl());
+            common.put("spring.datasource.username", "postgres");
+            common.put("spring.datasource.password", "postgres");
+            common.put("spring.jpa.show-sql", "false");
+            common.put("jwt.secret", JWT_SECRET);
+            common.put("logging.level.root", "WARN");
+
+            try (ServiceProcess auth = ServiceProcess.start("auth-service",
+                    options.servicesDir().resolve("auth-service-exec.jar"), workDir, EmbeddedInfrastructure.freePort(), common)) {
+                auth.awaitReady(Duration.ofMinutes(2));
+
+                Map<String, String> chatProperties = new LinkedHashMap<>(common);
+                chatProperties.put("auth-service.url", auth.baseUrl() + "/api/auth");
+                chatProperties.put("spring.rabbitmq.port", String.valueOf(infra.amqpPort()));
+                chatProperties.put("spring.data.redis.port", String.valueOf(infra.redisPort()));
+                chatProperties.put("chat.ingest.mode", options.mode());
+                chatProperties.put("chat.write-behind.wal-dir", workDir.resolve("wal").toString());
+                // Ölçülen şey hattın kapasitesi; gönderim sınırı açık kalırsa --rate=0 ile gönderilen mesajların çoğu 429 alır
+                chatProperties.put("chat.rate-limit.enabled", "false");
+                // Qpid gecikme kuyruklarının x-dead-letter-exchange argümanını desteklemez; kaydedilemeyen mesaj doğrudan DLQ'ya gider
+                chatProperties.put("chat.consumer.retry.max-attempts", "0");
+                try (ServiceProcess chat = ServiceProcess.start("chat-service",
+                        options.servicesDir().resolve("chat-service-exec.jar"), workDir, EmbeddedInfrastructure.freePort(), chatProperties)) {
+                    chat.awaitReady(Duration.ofMinutes(2));
+                    new LoadTest(options, auth.baseUrl(), chat.baseUrl()).run();
+                }
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        setUp();
+        try {
+            System.out.printf("Isınma: çift başına %d mesaj%n", options.warmupMessages());
+            runSenders(options.warmupMessages(), "warmup");
+            awaitDrain();
+            resetCounters();
+
+            System.out.printf("Ölçüm: %d çift × %d mesaj, %d geçmiş thread'i × %d sorgu (mode=%s)%n",
+                pairs.size(), options.messages(), options.historyThreads(), options.historyQueries(), options.mode());
+            ExecutorService historyPool = Executors.newFixedThreadPool(Math.max(1, options.historyThreads()));
+            List<Future<?>> historyTasks = new ArrayList<>();
+            long historyStart = System.nanoTime();
+            for (int t = 0; t < options.historyThreads(); t++) historyTasks.add(historyPool.submit(this::queryHistory));
+            long sendStart = System.nanoTime();
+            runSenders(options.messages(), "lt");
+            long sendEnd = System.nanoTime();
+            boolean drained = awaitDrain();
+            for (Future<?> task : historyTasks) task.get();
+            long historyEnd = System.nanoTime();
+            historyPool.shutdown();
+
+            report(sendStart, sendEnd, historyStart, historyEnd, drained);
+        } finally {
+            for (StompClient client : stompClients) client.close();
+        }
+    }
+
+    /**
+     * Kullanıcıları, arkadaşlıkları, sohbetleri ve STOMP oturumlarını hazırlar.
+     */
+    private void setUp() throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<Pair>> futures = new ArrayList<>();
+        for (int i = 0; i < options.pairs(); i++) {
+            int index = i;
+            futures.add(pool.submit(() -> createPair(index, "lt" + runId + "a" + index, "lt" + runId + "b" + index)));
+        }
+        for (Future<Pair> f : futures) pairs.add(f.get());
+        pool.shutdown();
+        System.out.printf("%d kullanıcı ve %d sohbet hazır%n", options.users(), pairs.size());
+
+        for (Pair pair : pairs) {
+            StompClient senderClient = StompClient.connect(http, chatUrl, pair.senderToken(), (d, b, t) -> { });
+            senderClient.subscribe("conv", "/topic/conversation/" + pair.conversationId());
+            StompClient receiverClient = StompClient.connect(http, chatUrl, pair.receiverToken(), this::onBroadcast);
+            receiverClient.subscribe("conv", "/topic/conversation/" + pair.conversationId());
+            stompClients.add(senderClient);
+            stompClients.add(receiverClient);
+        }
+        Thread.sleep(500); // SUBSCRIBE çerçevelerinin işlenmesi için
+        System.out.printf("%d STOMP oturumu bağlandı%n", stompClients.size());
+    }
+
+    private Pair createPair(int index, String sender, String receiver) throws Exception {
+        String senderToken = registerAndLogin(sender);
+        String receiverToken = registerAndLogin(receiver);
+        post(chatUrl + "/api/user/friend-request/" + receiver, senderToken, null);
+        JsonNode requests = get(chatUrl + "/api/user/" + receiver + "/friend-requests", receiverToken);
+        long requestId = requests.get(0).get("id").asLong();
+        post(chatUrl + "/api/user/friend-request/" + requestId + "/accept", receiverToken, null);
+        JsonNode conversation = post(chatUrl + "/api/conversation/start", senderToken,
+            Map.of("user1", sender, "user2", receiver));
+        return new Pair(index, sender, senderToken, receiver, receiverToken, conversation.get("id").asLong());
+    }
+
+    private String registerAndLogin(String username) throws Exception {
+        post(authUrl + "/api/auth/register", null,
+            Map.of("username", username, "password", PASSWORD, "email", username + "@loadtest.local"));
+        JsonNode login = post(authUrl + "/api/auth/login", null, Map.of("username", username, "password", PASSWORD));
+        return login.get("token").asText();
+    }
+
+    /**
+     * Her çift için bir gönderici thread'i çalıştırır ve hepsinin bitmesini bekler.
+     */
+    private void runSenders(int messagesPerSender, String prefix) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(pairs.size());
+        List<Future<?>> tasks = new ArrayList<>();
+        for (Pair pair : pairs) tasks.add(pool.submit(() -> send(pair, messagesPerSender, prefix)));
+        for (Future<?> task : tasks) task.get();
+        pool.shutdown();
+    }
+
+    private Void send(Pair pair, int count, String prefix) throws Exception {
+        long intervalNanos = options.rate() > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / options.rate()) : 0;
+        long start = System.nanoTime();
+        URI uri = URI.create(chatUrl + "/api/conversation/" + pair.conversationId() + "/send");
+        for (int seq = 0; seq < count; seq++) {
+            long sentAt = System.nanoTime();
+            if (intervalNanos > 0) {
+                // Planlanan anı beklenir; gecikme bu andan ölçülür (coordinated omission'a karşı)
+                long intended = start + seq * intervalNanos;
+                long wait = intended - sentAt;
+                if (wait > 0) LockSupport.parkNanos(wait);
+                sentAt = intended;
+            }
+            String content = prefix + "|" + pair.index() + "|" + seq;
+            inFlight.put(content, sentAt);
+            String body = mapper.writeValueAsString(Map.of("content", content, "clientMessageId", content));
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Bearer " + pair.senderToken())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+            long httpStart = System.nanoTime();
+            try {
+                HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                sendLatency.record(System.nanoTime() - httpStart);
+                if (response.statusCode() != 200) {
+                    sendErrors.increment();
+                    inFlight.remove(content);
+                }
+            } catch (java.io.IOException e) {
+                sendErrors.increment();
+                inFlight.remove(content);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Alıcı oturumuna gelen yayını ölçer.
+     */
+    private void onBroadcast(String destination, String body, long receivedNanos) {
+        String content;
+        try {
+            content = mapper.readTree(body).path("content").asText();
+        } catch (java.io.IOException e) {
+            return;
+        }
+        Long sentAt = inFlight.remove(content);
+        if (sentAt == null) return;
+        if (content.startsWith("lt|")) broadcastLatency.record(receivedNanos - sentAt);
+        received.increment();
+        lastReceivedNanos.accumulateAndGet(receivedNanos, Math::max);
+    }
+
+    private Void queryHistory() {
+        for (int i = 0; i < options.historyQueries(); i++) {
+            Pair pair = pairs.get(ThreadLocalRandom.current().nextInt(pairs.size()));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(chatUrl + "/api/conversation/" + pair.conversationId()
+                    + "/messages?page=0&size=" + options.historyPageSize()))
+                .header("Authorization", "Bearer " + pair.receiverToken())
+                .GET()
+                .build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                historyLatency.record(System.nanoTime() - start);
+                if (response.statusCode() != 200) historyErrors.increment();
+            } catch (Exception e) {
+                historyErrors.increment();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gönderilen tüm mesajlar alıcılara ulaşana veya süre dolana kadar bekler.
+     * @return Tüm mesajlar ulaştıysa true
+     */
+    private boolean awaitDrain() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.drainTimeoutMs());
+        while (!inFlight.isEmpty() && System.nanoTime() < deadline) Thread.sleep(50);
+        return inFlight.isEmpty();
+    }
+
+    private void resetCounters() {
+        inFlight.clear();
+        received.reset();
+        sendErrors.reset();
+        historyErrors.reset();
+        lastReceivedNanos.set(0);
+        broadcastLatency.reset();
+        sendLatency.reset();
+        historyLatency.reset();
+    }
+
+    private void report(long sendStart, long sendEnd, long historyStart, long historyEnd, boolean drained) throws Exception {
+        long expected = (long) pairs.size() * options.messages();
+        long deliveredEnd = Math.max(sendEnd, lastReceivedNanos.get());
+        double sendSeconds = (deliveredEnd - sendStart) / 1e9;
+        double historySeconds = (historyEnd - historyStart) / 1e9;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("mode", options.mode());
+        config.put("users", options.users());
+        config.put("stompSessions", stompClients.size());
+        config.put("restSenders", pairs.size());
+        config.put("messagesPerSender", options.messages());
+        config.put("ratePerSender", options.rate());
+        config.put("historyThreads", options.historyThreads());
+        config.put("historyQueriesPerThread", options.historyQueries());
+        config.put("historyPageSize", options.historyPageSize());
+        config.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("config", config);
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("messagesPerSecond", round(received.sum() / sendSeconds));
+        throughput.put("historyQueriesPerSecond", round(historyLatency.count() / historySeconds));
+        report.put("throughput", throughput);
+        report.put("latency", List.of(broadcastLatency.summary(), sendLatency.summary(), historyLatency.summary()));
+        Map<String, Object> errors = new LinkedHashMap<>();
+        errors.put("sendErrors", sendErrors.sum());
+        errors.put("historyErrors", historyErrors.sum());
+        errors.put("missingBroadcasts", expected - sendErrors.sum() - received.sum());
+        errors.put("drained", drained);
+        report.put("errors", errors);
+
+        String json = mapper.enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(report);
+        Path reportPath = options.report().toAbsolutePath();
+        Files.createDirectories(reportPath.getParent());
+        Files.writeString(reportPath, json);
+        System.out.println(json);
+        System.out.println("Rapor: " + reportPath);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private JsonNode post(String url, String token, Object body) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).header("Content-Type", "application/json");
+        if (token != null) builder.header("Authorization", "Bearer " + token);
+        builder.POST(body == null ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)));
+        return execute(builder.build());
+    }
+
+    private JsonNode get(String url, String token) throws Exception {
+        return execute(HttpRequest.newBuilder(URI.create(url)).header("Authorization", "Bearer " + token).GET().build());
+    }
+
+    private JsonNode execute(HttpRequest request) throws Exception {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " → " + response.statusCode() + ": " + response.body());
+        }
+        String body = response.body();
+        if (body == null || body.isEmpty() || !(body.startsWith("{") || body.startsWith("["))) return mapper.nullNode();
+        return mapper.readTree(body);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.chat.loadtest;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Yük testinin komut satırı seçenekleri (--ad=değer biçiminde).
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>--users: STOMP ile bağlanan kullanıcı sayısı (çift sayı). Kullanıcılar ikişerli arkadaş yapılır ve her çiftin bir sohbeti olur.</li>
+ *   <li>--messages: Her çiftte REST ile gönderilen ölçülen mesaj sayısı; öncesinde --warmup-messages kadar ısınma mesajı gönderilir.</li>
+ *   <li>--rate: Gönderici başına saniyede mesaj (0 = yanıt gelir gelmez sıradaki). Hız verilirse gecikme planlanan gönderim anından ölçülür.</li>
+ *   <li>--history-threads / --history-queries: Aynı anda sohbet geçmişi (sayfa) sorgulayan thread sayısı ve her birinin sorgu sayısı.</li>
+ *   <li>--mode: chat-service'in chat.ingest.mode değeri (sync, async, write-behind).</li>
+ * </ul>
+ */
+public record LoadTestOptions(
+        int users,
+        int messages,
+        int warmupMessages,
+        double rate,
+        int historyThreads,
+        int historyQueries,
+        int historyPageSize,
+        String mode,
+        Path servicesDir,
+        Path workDir,
+        Path report,
+        long drainTimeoutMs) {
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Beklenen biçim --ad=değer: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        int users = Integer.parseInt(values.getOrDefault("users", "100"));
+        if (users < 2 || users % 2 != 0) throw new IllegalArgumentException("--users 2 veya daha büyük bir çift sayı olmalı");
+        return new LoadTestOptions(
+            users,
+            Integer.parseInt(values.getOrDefault("messages", "200")),
+            Integer.parseInt(values.getOrDefault("warmup-messages", "20")),
+            Double.parseDouble(values.getOrDefault("rate", "0")),
+            Integer.parseInt(values.getOrDefault("history-threads", "4")),
+            Integer.parseInt(values.getOrDefault("history-queries", "500")),
+            Integer.parseInt(values.getOrDefault("history-page-size", "50")),
+            values.getOrDefault("mode", "sync"),
+            Path.of(values.getOrDefault("services-dir", "target/services")),
+            Path.of(values.getOrDefault("work-dir", "target/loadtest")),
+            Path.of(values.getOrDefault("report", "target/loadtest-report.json")),
+            Long.parseLong(values.getOrDefault("drain-timeout-ms", "30000")));
+    }
+
+    public int pairs() {
+        return users / 2;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.chat.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test edilen bir servisi (çalıştırılabilir jar) ayrı bir JVM'de başlatır.
+ * <p>
+ * <b>Nasıl çalışır?</b> Ayarlar Spring Boot komut satırı argümanları (--ad=değer) olarak verilir ve
+ * application.properties'teki değerleri ezer. Servisin çıktısı çalışma klasöründe {ad}.log dosyasına yazılır.
+ * Ayrı süreç kullanıldığı için auth-service ve chat-service'in farklı Spring Boot sürümleri çakışmaz.
+ * </p>
+ */
+final class ServiceProcess implements AutoCloseable {
+    private final String name;
+    private final Process process;
+    private final int port;
+
+    private ServiceProcess(String name, Process process, int port) {
+        this.name = name;
+        this.process = process;
+        this.port = port;
+    }
+
+    static ServiceProcess start(String name, Path jar, Path workDir, int port, Map<String, String> properties) throws IOException {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(jar + " bulunamadı; önce servisi 'mvn install' ile kurup loadtest'i paketleyin");
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-jar");
+        command.add(jar.toAbsolutePath().toString());
+        command.add("--server.port=" + port);
+        properties.forEach((k, v) -> command.add("--" + k + "=" + v));
+        Path log = workDir.resolve(name + ".log");
+        Process process = new ProcessBuilder(command)
+            .directory(workDir.toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(log.toFile())
+            .start();
+        System.out.println(name + " başlatıldı (port " + port + ", log: " + log + ")");
+        return new ServiceProcess(name, process, port);
+    }
+
+    /**
+     * Servis HTTP isteğine yanıt verene kadar bekler (yanıtın durum kodu önemli değildir).
+     */
+    void awaitReady(Duration timeout) throws InterruptedException {
+        HttpClient http = HttpClient.newHttpClient();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) throw new IllegalStateException(name + " beklenmedik şekilde kapandı; log dosyasına bakın");
+            try {
+                http.send(HttpRequest.newBuilder(URI.create(baseUrl() + "/")).timeout(Duration.ofSeconds(2)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+                System.out.println(name + " hazır");
+                return;
+            } catch (IOException e) {
+                Thread.sleep(500);
+            }
+        }
+        throw new IllegalStateException(name + " " + timeout.toSeconds() + " saniyede hazır olmadı");
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    int port() {
+        return port;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy(); // SIGTERM: Spring @PreDestroy metotları (ör: sayaç flush) çalışır
+        if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+    }
+}
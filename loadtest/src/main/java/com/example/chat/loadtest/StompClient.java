@@ -0,0 +1,111 @@
+package com.example.chat.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java'nın yerleşik WebSocket istemcisi üzerinde çalışan küçük bir STOMP 1.2 istemcisi.
+ * <p>
+ * <b>Java öğrenenler için açıklama:</b>
+ * <ul>
+ *   <li>chat-service'in /ws endpoint'i SockJS kullanır; SockJS ham WebSocket'i /ws/websocket adresinde de sunar.</li>
+ *   <li>CONNECT çerçevesinde "Authorization: Bearer {token}" gönderilir (StompAuthChannelInterceptor).</li>
+ *   <li>Spring her STOMP çerçevesini tek bir WebSocket mesajı olarak gönderir; parçalı gelen metin birleştirilir.</li>
+ *   <li>MESSAGE çerçeveleri alındıkları an (System.nanoTime) ile birlikte handler'a verilir.</li>
+ * </ul>
+ */
+final class StompClient implements WebSocket.Listener {
+    /**
+     * Gelen MESSAGE çerçevelerini işleyen geri çağırım.
+     */
+    interface MessageHandler {
+        void onMessage(String destination, String body, long receivedNanos);
+    }
+
+    private final MessageHandler handler;
+    private final StringBuilder partial = new StringBuilder();
+    private final CompletableFuture<Void> connected = new CompletableFuture<>();
+    private WebSocket socket;
+
+    private StompClient(MessageHandler handler) {
+        this.handler = handler;
+    }
+
+    static StompClient connect(HttpClient http, String baseUrl, String token, MessageHandler handler) throws Exception {
+        StompClient client = new StompClient(handler);
+        URI uri = URI.create(baseUrl.replaceFirst("^http", "ws") + "/ws/websocket");
+        client.socket = http.newWebSocketBuilder().buildAsync(uri, client).get(10, TimeUnit.SECONDS);
+        client.frame("CONNECT", Map.of(
+            "accept-version", "1.2",
+            "host", "localhost",
+            "heart-beat", "0,0",
+            "Authorization", "Bearer " + token), "");
+        client.connected.get(10, TimeUnit.SECONDS);
+        return client;
+    }
+
+    void subscribe(String id, String destination) {
+        frame("SUBSCRIBE", Map.of("id", id, "destination", destination), "");
+    }
+
+    void close() {
+        socket.sendClose(WebSocket.NORMAL_CLOSURE, "").orTimeout(5, TimeUnit.SECONDS).exceptionally(e -> null).join();
+    }
+
+    private synchronized void frame(String command, Map<String, String> headers, String body) {
+        StringBuilder sb = new StringBuilder(command).append('\n');
+        headers.forEach((k, v) -> sb.append(k).append(':').append(v).append('\n'));
+        sb.append('\n').append(body).append('\0');
+        socket.sendText(sb, true).join();
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            long receivedNanos = System.nanoTime();
+            String text = partial.toString();
+            partial.setLength(0);
+            handleFrame(text, receivedNanos);
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        connected.completeExceptionally(error);
+    }
+
+    private void handleFrame(String text, long receivedNanos) {
+        if (text.isBlank()) return; // heart-beat
+        int commandEnd = text.indexOf('\n');
+        String command = text.substring(0, commandEnd);
+        int headersEnd = text.indexOf("\n\n", commandEnd);
+        Map<String, String> headers = new HashMap<>();
+        for (String line : text.substring(commandEnd + 1, Math.max(commandEnd + 1, headersEnd)).split("\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0) headers.put(line.substring(0, colon), line.substring(colon + 1));
+        }
+        String body = headersEnd < 0 ? "" : text.substring(headersEnd + 2);
+        int nul = body.indexOf('\0');
+        if (nul >= 0) body = body.substring(0, nul);
+        switch (command) {
+            case "CONNECTED" -> connected.complete(null);
+            case "ERROR" -> connected.completeExceptionally(new IllegalStateException("STOMP ERROR: " + headers.get("message")));
+            case "MESSAGE" -> handler.onMessage(headers.get("destination"), body, receivedNanos);
+            default -> { }
+        }
+    }
+}